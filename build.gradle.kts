@@ -4,8 +4,15 @@ plugins {
 	`jvm-test-suite`
 	id("org.springframework.boot") version "3.3.5"
 	id("io.spring.dependency-management") version "1.1.6"
+	id("org.graalvm.buildtools.native") version "0.10.3"
 }
 
+// Spring AOT (applied along with the native plugin): processAot generates the bean definitions at build time and
+// bootJar packages them, on the JVM they are only used when started with -Dspring.aot.enabled=true
+
+// the unit tests run on the JVM only, test AOT processing does not support @MockBean
+tasks.named("processTestAot") { enabled = false }
+
 group = "com.cmpny"
 version = "0.0.1"
 
@@ -34,9 +41,17 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-data-jpa")
 	implementation("org.springframework.boot:spring-boot-starter-web")
 	implementation("org.springframework.boot:spring-boot-starter-actuator")
+	implementation("io.micrometer:micrometer-registry-prometheus")
+	implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
+	implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
 	implementation("commons-validator:commons-validator:1.9.0")
 	implementation("org.apache.commons:commons-lang3:3.17.0")
+	implementation("org.hibernate.orm:hibernate-jcache")
+	implementation("org.flywaydb:flyway-core")
+	implementation("com.github.ben-manes.caffeine:jcache")
 	compileOnly("org.projectlombok:lombok")
+	// meta-annotations of Spring's @Nullable and @NonNull, without them javac warns "unknown enum constant When.MAYBE"
+	compileOnly("com.google.code.findbugs:jsr305:3.0.2")
 	runtimeOnly("com.h2database:h2")
 	annotationProcessor("org.projectlombok:lombok")
 	testImplementation("org.springframework.boot:spring-boot-starter-test")
@@ -59,12 +74,29 @@ sourceSets {
 		compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath + sourceSets.test.get().compileClasspath
 		runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath + sourceSets.test.get().runtimeClasspath
 	}
+	create("jmh") {
+		java {
+			srcDir("src/jmh/java")
+		}
+		compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+		runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+	}
+	create("perf") {
+		java {
+			srcDir("src/perf/java")
+		}
+	}
 }
 
 val integrationTest = task<Test>("integ") {
 	testClassesDirs = sourceSets["integ"].output.classesDirs
 	classpath = sourceSets["integ"].runtimeClasspath
 	shouldRunAfter("test")
+	// cached test contexts are only closed when the JVM exits, a full warm-up would still be running in the last
+	// ones started
+	systemProperty("customerdataservice.warmup.iterations", "50")
+	// import and export files go below the build directory, so concurrent builds of other checkouts keep theirs
+	systemProperty("customerdataservice.integ.directory", temporaryDir.path)
 
 	useJUnitPlatform()
 
@@ -72,6 +104,58 @@ val integrationTest = task<Test>("integ") {
 
 tasks.check { dependsOn(integrationTest) }
 
+// native image: nativeCompile builds build/native/nativeCompile/customerdataservice and nativeIntegTest runs the
+// integration tests as a native test binary. Their AOT processed test contexts go into the aotInteg source set
+val processIntegAot = tasks.register<org.springframework.boot.gradle.tasks.aot.ProcessTestAot>("processIntegAot") {
+	group = "build"
+	description = "Processes the integration tests ahead of time for the native test binary"
+	classpathRoots = sourceSets["integ"].output.classesDirs
+	classpath(sourceSets["integ"].output, sourceSets["integ"].runtimeClasspath)
+	sourcesOutput = layout.buildDirectory.dir("generated/aotIntegSources")
+	resourcesOutput = layout.buildDirectory.dir("generated/aotIntegResources")
+	classesOutput = layout.buildDirectory.dir("generated/aotIntegClasses")
+	groupId = project.group.toString()
+	artifactId = project.name
+}
+
+val aotInteg = sourceSets.create("aotInteg") {
+	java.srcDir(processIntegAot.flatMap { it.sourcesOutput })
+	resources.srcDir(processIntegAot.flatMap { it.resourcesOutput })
+	compileClasspath += sourceSets["integ"].output + sourceSets["integ"].runtimeClasspath
+	runtimeClasspath += sourceSets["integ"].output + sourceSets["integ"].runtimeClasspath +
+		files(processIntegAot.flatMap { it.classesOutput })
+}
+
+// the integration tests on the JVM with the AOT generated test contexts, a quick check of the AOT processing that
+// does not need GraalVM
+tasks.register<Test>("integAot") {
+	group = "verification"
+	description = "Runs the integration tests on the JVM with Spring AOT enabled"
+	testClassesDirs = sourceSets["integ"].output.classesDirs
+	classpath = aotInteg.runtimeClasspath
+	systemProperty("spring.aot.enabled", "true")
+	systemProperty("customerdataservice.warmup.iterations", "50")
+	systemProperty("customerdataservice.integ.directory", temporaryDir.path)
+	useJUnitPlatform()
+}
+
+graalvmNative {
+	metadataRepository {
+		enabled = true
+	}
+	binaries {
+		named("main") {
+			imageName = "customerdataservice"
+			// the profiling endpoint records with JFR
+			buildArgs.add("--enable-monitoring=jfr")
+		}
+	}
+	registerTestBinary("integTest") {
+		usingSourceSet(aotInteg)
+		forTestTask(tasks.named<Test>("integ"))
+	}
+}
+
 tasks.test {
 	filter {
 		includeTestsMatching("*Test")
@@ -92,4 +176,89 @@ tasks.test {
 	finalizedBy(tasks.jacocoTestReport) // report is always generated after tests run
 }
 
+dependencies {
+	"jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+	"jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+	// fault injection tests hook into the embedded database with H2 triggers
+	"integImplementation"("com.h2database:h2")
+}
+
+// benchmarks are run on demand, narrow them down with -Pjmh.includes=<regex> and pass extra JMH options
+// with -Pjmh.args="-p rows=100000 -f 1"
+tasks.register<JavaExec>("jmh") {
+	group = "verification"
+	description = "Runs the JMH benchmarks under src/jmh"
+	classpath = sourceSets["jmh"].runtimeClasspath
+	mainClass = "org.openjdk.jmh.Main"
+	val results = layout.buildDirectory.file("results/jmh/results.json")
+	args(providers.gradleProperty("jmh.includes").getOrElse(".*"), "-rf", "json", "-rff", results.get().asFile.path)
+	args(providers.gradleProperty("jmh.args").getOrElse("").split(" ").filter { it.isNotBlank() })
+	doFirst { results.get().asFile.parentFile.mkdirs() }
+}
+
+// fast start: the boot jar extracted into the layout class data sharing needs (application jar plus lib/), and a CDS
+// archive recorded from a training run that exits once the context is refreshed
+val java21 = javaToolchains.launcherFor { languageVersion = JavaLanguageVersion.of(21) }
+val cdsDirectory = layout.buildDirectory.dir("cds")
+
+val extractBootJar = tasks.register<Exec>("extractBootJar") {
+	group = "build"
+	description = "Extracts the boot jar into build/cds for class data sharing"
+	dependsOn(tasks.bootJar)
+	val jar = tasks.bootJar.flatMap { it.archiveFile }
+	inputs.file(jar)
+	outputs.dir(cdsDirectory)
+	doFirst { delete(cdsDirectory) }
+	executable(java21.get().executablePath.asFile)
+	args("-Djarmode=tools", "-jar", jar.get().asFile, "extract", "--destination", cdsDirectory.get().asFile)
+}
+
+tasks.register<Exec>("cdsArchive") {
+	group = "build"
+	description = "Records build/cds/application.jsa from a training run of the extracted application"
+	dependsOn(extractBootJar)
+	val archive = cdsDirectory.map { it.file("application.jsa") }
+	outputs.file(archive)
+	workingDir(cdsDirectory)
+	executable(java21.get().executablePath.asFile)
+	args("-XX:ArchiveClassesAtExit=application.jsa", "-Xlog:cds=off", "-Dspring.aot.enabled=true", "-Dspring.context.exit=onRefresh",
+		"-jar", tasks.bootJar.get().archiveFileName.get(),
+		"--spring.profiles.active=faststart", "--server.port=0")
+}
+
+// starts the packaged application repeatedly with each fast start option and reports the time until the first
+// successful GET, pass -Pstartup.runs=<n> to change the number of runs per option
+tasks.register<JavaExec>("startupBenchmark") {
+	group = "verification"
+	description = "Measures startup, RSS and throughput for each fast start option and the native image"
+	dependsOn("cdsArchive")
+	classpath = sourceSets["perf"].runtimeClasspath
+	mainClass = "com.cmpny.customerdataservice.perf.StartupBenchmark"
+	args(java21.get().executablePath.asFile, tasks.bootJar.get().archiveFile.get().asFile, cdsDirectory.get().asFile,
+		providers.gradleProperty("startup.runs").getOrElse("5"),
+		layout.buildDirectory.file("native/nativeCompile/customerdataservice").get().asFile)
+}
 
+dependencies {
+	"perfImplementation"("org.hdrhistogram:HdrHistogram:2.2.2")
+	"perfImplementation"("com.fasterxml.jackson.dataformat:jackson-dataformat-yaml")
+	"perfImplementation"("com.fasterxml.jackson.datatype:jackson-datatype-jsr310")
+}
+
+// open model HTTP load test against the packaged application, started on a random port. Pick a workload with
+// -PloadTest.profile=<name> (src/perf/resources/loadtest/<name>.yaml, or a path to a profile file). The build fails
+// when p99 latency or sustainable throughput regress against src/perf/baselines/<name>.yaml beyond the profile's
+// thresholds, -PloadTest.updateBaseline=true records the run as the new baseline instead
+tasks.register<JavaExec>("loadTest") {
+	group = "verification"
+	description = "Drives a constant arrival rate workload against the application and checks it against a baseline"
+	dependsOn(tasks.bootJar)
+	classpath = sourceSets["perf"].runtimeClasspath
+	mainClass = "com.cmpny.customerdataservice.perf.LoadTest"
+	val profile = providers.gradleProperty("loadTest.profile").getOrElse("mixed")
+	val profileName = file(profile).name.removeSuffix(".yaml")
+	args(java21.get().executablePath.asFile, tasks.bootJar.get().archiveFile.get().asFile, profile,
+		layout.projectDirectory.file("src/perf/baselines/$profileName.yaml").asFile,
+		layout.buildDirectory.dir("results/loadtest").get().asFile,
+		providers.gradleProperty("loadTest.updateBaseline").getOrElse("false"))
+}
@@ -0,0 +1,35 @@
+package com.cmpny.customerdataservice;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remembers the SQL statements Hibernate prepared on the calling thread, so tests can look at the plan of the
+ * queries the repository really generates or check which statements an operation issues
+ */
+public class CapturingStatementInspector implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    static String lastStatement() {
+        List<String> statements = STATEMENTS.get();
+        return statements.isEmpty() ? null : statements.get(statements.size() - 1);
+    }
+
+    /**
+     * @return the statements prepared on the calling thread since the last call, oldest first
+     */
+    static List<String> drainStatements() {
+        List<String> statements = List.copyOf(STATEMENTS.get());
+        STATEMENTS.get().clear();
+        return statements;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return sql;
+    }
+}
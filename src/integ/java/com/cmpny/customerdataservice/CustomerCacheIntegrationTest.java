@@ -0,0 +1,104 @@
+package com.cmpny.customerdataservice;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerView;
+import com.cmpny.customerdataservice.service.CustomerDataService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Two instances of the application in one JVM, sharing a database and the embedded shared cache tier and
+ * invalidation bus, to check the hit ratio and staleness window of the two tier customer cache
+ */
+class CustomerCacheIntegrationTest {
+
+    private static final String EMAIL = "yuvan@outlook.com";
+
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void startInstances() {
+        // the instances are started by hand, the AOT processed test contexts do not cover them
+        assumeFalse(AotDetector.useGeneratedArtifacts());
+        first = start(true);
+        second = start(false);
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        if (second != null) {
+            second.close();
+        }
+        if (first != null) {
+            first.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean seed) {
+        List<String> args = List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:cache-integ;DB_CLOSE_DELAY=-1",
+                "--spring.jmx.enabled=false",
+                "--customerdataservice.data-loader.enabled=" + seed,
+                "--customerdataservice.cache.shared.name=cache-integ",
+                "--customerdataservice.warmup.enabled=false");
+        return new SpringApplicationBuilder(CustomerDataServiceApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private static double requests(ConfigurableApplicationContext instance, String tier, String result) {
+        return instance.getBean(MeterRegistry.class).get("customerdataservice.cache.requests")
+                .tag("cache", "customers").tag("tier", tier).tag("result", result).counter().count();
+    }
+
+    @Test
+    void readsAreServedFromCacheAndWritesReachTheOtherInstance() throws InterruptedException {
+        CustomerDataService firstService = first.getBean(CustomerDataService.class);
+        CustomerDataService secondService = second.getBean(CustomerDataService.class);
+
+        CustomerView customer = firstService.findCustomerByEmail(EMAIL).orElseThrow();
+        firstService.findCustomerByEmail(EMAIL);
+        for (int i = 0; i < 100; i++) {
+            assertThat(secondService.findCustomerByEmail(EMAIL)).contains(customer);
+        }
+        double nearHits = requests(second, "near", "hit");
+        double nearMisses = requests(second, "near", "miss");
+        assertThat(requests(second, "shared", "hit")).isEqualTo(1);
+        assertThat(nearHits / (nearHits + nearMisses)).isGreaterThan(0.95);
+
+        Customer update = Customer.builder()
+                .id(customer.id())
+                .firstName(customer.firstName())
+                .middleName(customer.middleName())
+                .lastName(customer.lastName())
+                .emailAddress(customer.emailAddress())
+                .phoneNumber("4255250000")
+                .build();
+        long written = System.nanoTime();
+        firstService.updateCustomer(update);
+        assertThat(firstService.findCustomerByEmail(EMAIL).orElseThrow().phoneNumber()).isEqualTo("4255250000");
+
+        long deadline = written + Duration.ofSeconds(5).toNanos();
+        while (!"4255250000".equals(secondService.findCustomerByEmail(EMAIL).orElseThrow().phoneNumber())
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Duration stalenessWindow = Duration.ofNanos(System.nanoTime() - written);
+        assertThat(secondService.findCustomerByEmail(EMAIL).orElseThrow().phoneNumber()).isEqualTo("4255250000");
+        // well within the near-cache expiry, so it was the invalidation that ended it
+        assertThat(stalenessWindow).isLessThan(Duration.ofSeconds(2));
+        assertThat(second.getBean(MeterRegistry.class).get("customerdataservice.cache.invalidation.lag").timer().count())
+                .isEqualTo(1);
+    }
+}
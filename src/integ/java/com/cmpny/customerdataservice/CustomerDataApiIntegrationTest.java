@@ -19,6 +19,7 @@ import org.springframework.test.web.servlet.ResultActions;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
@@ -257,4 +258,106 @@ class CustomerDataApiIntegrationTest {
 
         response.andExpect(status().isOk());
     }
+
+    @Test
+    @Order(14)
+    public void get_Customer_ByEmail_IgnoresCase() throws Exception{
+        Customer firstCustomer = getCurrentCustomers().getFirst();
+
+        ResultActions response = mockMvc.perform(
+                get("/customerByEmail")
+                        .param("email", firstCustomer.getEmailAddress().toUpperCase())
+        );
+
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(firstCustomer.getId().toString())));
+    }
+
+    @Test
+    @Order(15)
+    public void put_customer_ReturnsBadRequest_ForCustomerEmailPresentInOtherCase() throws Exception {
+
+        Customer firstCustomer = getCurrentCustomers().getFirst();
+
+        Customer customer = Customer.builder()
+                .firstName("firstName")
+                .lastName("lastName")
+                .emailAddress(firstCustomer.getEmailAddress().toUpperCase())
+                .phoneNumber("4255252233")
+                .build();
+
+        ResultActions response = mockMvc.perform(
+                put("/customer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(customer))
+        );
+
+        response.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(16)
+    public void getCustomers_ReturnsOnlyRequestedFields() throws Exception {
+        ResultActions response = mockMvc.perform(get("/customers").param("fields", "id,emailAddress"));
+
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").exists())
+                .andExpect(jsonPath("$[0].emailAddress").exists())
+                .andExpect(jsonPath("$[0].lastName").doesNotExist());
+    }
+
+    @Test
+    @Order(17)
+    public void delete_customer_EvictsCachedLookups() throws Exception {
+        Customer customer = createCustomer("single.delete@email.com");
+        mockMvc.perform(get("/customer").param("id", customer.getId().toString())).andExpect(status().isOk());
+        mockMvc.perform(get("/customerByEmail").param("email", customer.getEmailAddress())).andExpect(status().isOk());
+
+        mockMvc.perform(delete("/customer").param("id", customer.getId().toString())).andExpect(status().isOk());
+
+        mockMvc.perform(get("/customer").param("id", customer.getId().toString())).andExpect(status().isNotFound());
+        mockMvc.perform(get("/customerByEmail").param("email", customer.getEmailAddress()))
+                .andExpect(status().isNotFound());
+        assertThat(customerRepository.existsById(customer.getId())).isFalse();
+    }
+
+    @Test
+    @Order(18)
+    public void delete_customers_DeletesAllAndEvictsCachedLookups() throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Customer customer = createCustomer("bulk.delete" + i + "@email.com");
+            mockMvc.perform(get("/customer").param("id", customer.getId().toString())).andExpect(status().isOk());
+            ids.add(customer.getId());
+        }
+        ids.add(UUID.randomUUID());
+        long before = customerRepository.count();
+
+        mockMvc.perform(delete("/customers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(ids)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", is(3)));
+
+        for (UUID id : ids) {
+            mockMvc.perform(get("/customer").param("id", id.toString())).andExpect(status().isNotFound());
+        }
+        mockMvc.perform(get("/customerByEmail").param("email", "bulk.delete0@email.com"))
+                .andExpect(status().isNotFound());
+        assertThat(customerRepository.count()).isEqualTo(before - 3);
+    }
+
+    private Customer createCustomer(String email) throws Exception {
+        Customer customer = Customer.builder()
+                .firstName("firstName")
+                .lastName("lastName")
+                .emailAddress(email)
+                .phoneNumber("4255252233")
+                .build();
+        mockMvc.perform(put("/customer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(customer)))
+                .andExpect(status().isOk());
+        return customerRepository.findByNormalizedEmailAddress(email).orElseThrow();
+    }
 }
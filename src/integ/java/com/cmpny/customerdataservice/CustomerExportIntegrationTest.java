@@ -0,0 +1,162 @@
+package com.cmpny.customerdataservice;
+
+import com.cmpny.customerdataservice.export.CustomerExportService;
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "customerdataservice.export.directory=${customerdataservice.integ.directory:build/tmp/integ}/customer-exports",
+        "customerdataservice.export.page-size=7"})
+class CustomerExportIntegrationTest {
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    CustomerExportService exportService;
+
+    @Value("${customerdataservice.export.directory}")
+    Path directory;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        if (customerRepository.count() < 50) {
+            customerRepository.saveAll(IntStream.range(0, 50)
+                    .mapToObj(i -> Customer.builder()
+                            .firstName("first, \"quoted\"")
+                            .lastName("lastName")
+                            .emailAddress("export" + i + "@email.com")
+                            .phoneNumber("4255252233")
+                            .build())
+                    .toList());
+        }
+    }
+
+    private HttpResponse<byte[]> send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private JsonNode awaitCompletion(String location) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            JsonNode status = objectMapper.readTree(send("GET", location).body());
+            if (!status.get("status").asText().equals("QUEUED") && !status.get("status").asText().equals("RUNNING")) {
+                return status;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Export did not complete");
+    }
+
+    private static List<String> gunzipLines(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+
+    @Test
+    void export_Ndjson_ContainsEveryCustomerOnce() throws Exception {
+        HttpResponse<byte[]> started = send("POST", "/customers/exports");
+        assertThat(started.statusCode()).isEqualTo(202);
+        String location = started.headers().firstValue("Location").orElseThrow();
+
+        JsonNode status = awaitCompletion(location);
+        long customers = customerRepository.count();
+        assertThat(status.get("status").asText()).isEqualTo("COMPLETED");
+        assertThat(status.get("rowsWritten").asLong()).isEqualTo(customers);
+
+        HttpResponse<byte[]> file = send("GET", location + "/file");
+        assertThat(file.statusCode()).isEqualTo(200);
+        assertThat(file.headers().firstValue("Content-Type")).hasValue("application/gzip");
+        List<String> lines = gunzipLines(file.body());
+        assertThat(lines).hasSize((int) customers);
+        assertThat(lines.stream().map(line -> readId(line)).distinct().count()).isEqualTo(customers);
+    }
+
+    @Test
+    void export_Csv_QuotesValues() throws Exception {
+        HttpResponse<byte[]> started = send("POST", "/customers/exports?format=csv");
+        String location = started.headers().firstValue("Location").orElseThrow();
+        awaitCompletion(location);
+
+        List<String> lines = gunzipLines(send("GET", location + "/file").body());
+        assertThat(lines.get(0)).isEqualTo("id,firstName,middleName,lastName,emailAddress,phoneNumber");
+        assertThat(lines).hasSize((int) customerRepository.count() + 1);
+        assertThat(lines).anyMatch(line -> line.contains(",\"first, \"\"quoted\"\"\",,lastName,export"));
+    }
+
+    @Test
+    void export_UnknownFormatOrId_Rejected() throws Exception {
+        assertThat(send("POST", "/customers/exports?format=xml").statusCode()).isEqualTo(400);
+        assertThat(send("GET", "/customers/exports/" + UUID.randomUUID()).statusCode()).isEqualTo(404);
+        assertThat(send("GET", "/customers/exports/" + UUID.randomUUID() + "/file").statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void cleanUp_RemovesOldFilesOfNoKnownExport() throws Exception {
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofHours(2)));
+        Path oldOrphan = Files.writeString(directory.resolve(UUID.randomUUID() + ".csv.gz"), "old");
+        Path oldPart = Files.writeString(directory.resolve(UUID.randomUUID() + ".ndjson.gz.part"), "old");
+        Path otherFile = Files.writeString(directory.resolve("notes-" + UUID.randomUUID() + ".txt"), "old");
+        for (Path file : List.of(oldOrphan, oldPart, otherFile)) {
+            Files.setLastModifiedTime(file, old);
+        }
+        Path recentOrphan = Files.writeString(directory.resolve(UUID.randomUUID() + ".csv.gz"), "recent");
+        try {
+            exportService.cleanUp();
+
+            assertThat(oldOrphan).doesNotExist();
+            assertThat(oldPart).doesNotExist();
+            assertThat(otherFile).exists();
+            assertThat(recentOrphan).exists();
+        } finally {
+            Files.deleteIfExists(otherFile);
+            Files.deleteIfExists(recentOrphan);
+        }
+    }
+
+    private String readId(String line) {
+        try {
+            return objectMapper.readTree(line).get("id").asText();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
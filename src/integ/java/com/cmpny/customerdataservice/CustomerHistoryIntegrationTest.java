@@ -0,0 +1,214 @@
+package com.cmpny.customerdataservice;
+
+import com.cmpny.customerdataservice.history.CustomerHistoryCompaction;
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerChange;
+import com.cmpny.customerdataservice.model.CustomerHistoryRepository;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import com.cmpny.customerdataservice.model.CustomerSnapshot;
+import com.cmpny.customerdataservice.model.CustomerVersion;
+import com.cmpny.customerdataservice.model.CustomerVersionView;
+import com.cmpny.customerdataservice.service.CustomerDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CustomerHistoryIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    CustomerHistoryRepository historyRepository;
+
+    @Autowired
+    CustomerDataService customerDataService;
+
+    @Autowired
+    CustomerHistoryCompaction compaction;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Test
+    void everyWriteIsAVersionReadableAsOfItsTime() throws Exception {
+        mockMvc.perform(put("/customer").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(customer("history-before@email.com"))))
+                .andExpect(status().isOk());
+        Customer customer = customerRepository.findByNormalizedEmailAddress("history-before@email.com").orElseThrow();
+        customer.setEmailAddress("history-after@email.com");
+        customerDataService.updateCustomer(customer);
+        mockMvc.perform(delete("/customer").param("id", customer.getId().toString()))
+                .andExpect(status().isOk());
+
+        List<CustomerVersionView> history = customerDataService.findCustomerHistory(customer.getId());
+        assertThat(history).extracting(CustomerVersionView::change)
+                .containsExactly(CustomerChange.CREATE, CustomerChange.UPDATE, CustomerChange.DELETE);
+
+        mockMvc.perform(get("/customer/history").param("id", customer.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].customer.emailAddress", is("history-before@email.com")))
+                .andExpect(jsonPath("$[1].customer.emailAddress", is("history-after@email.com")))
+                .andExpect(jsonPath("$[2].change", is("delete")));
+        mockMvc.perform(get("/customer").param("id", customer.getId().toString())
+                        .param("asOf", history.get(0).validFrom().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.emailAddress", is("history-before@email.com")));
+        mockMvc.perform(get("/customer").param("id", customer.getId().toString())
+                        .param("asOf", history.get(1).validFrom().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.emailAddress", is("history-after@email.com")));
+        mockMvc.perform(get("/customer").param("id", customer.getId().toString())
+                        .param("asOf", history.get(0).validFrom().minusMillis(1).toString()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/customer").param("id", customer.getId().toString())
+                        .param("asOf", history.get(2).validFrom().toString()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void failedUpdateLeavesNoVersion() {
+        customerDataService.saveCustomer(customer("history-taken@email.com"));
+        Customer customer = customer("history-failed@email.com");
+        customerDataService.saveCustomer(customer);
+
+        customer.setEmailAddress("history-taken@email.com");
+        assertThatThrownBy(() -> customerDataService.updateCustomer(customer)).isNotNull();
+
+        assertThat(historyRepository.findByCustomerIdOrderByValidFromAscIdAsc(customer.getId()))
+                .extracting(CustomerVersion::getChange)
+                .containsExactly(CustomerChange.CREATE);
+    }
+
+    @Test
+    void bulkDeleteAppendsDeletesForExistingCustomers() {
+        Customer customer = customer("history-bulk@email.com");
+        customerDataService.saveCustomer(customer);
+        UUID missing = UUID.randomUUID();
+
+        assertThat(customerDataService.deleteCustomersById(List.of(customer.getId(), missing))).isEqualTo(1);
+
+        assertThat(historyRepository.findByCustomerIdOrderByValidFromAscIdAsc(customer.getId()))
+                .extracting(CustomerVersion::getChange)
+                .containsExactly(CustomerChange.CREATE, CustomerChange.DELETE);
+        assertThat(historyRepository.findByCustomerIdOrderByValidFromAscIdAsc(missing)).isEmpty();
+    }
+
+    @Test
+    void compactionKeepsTheVersionInEffectAtTheHorizon() {
+        UUID kept = UUID.randomUUID();
+        UUID deleted = UUID.randomUUID();
+        Instant longAgo = Instant.now().minus(Duration.ofDays(3650));
+        insert(kept, longAgo, CustomerChange.CREATE, "first");
+        insert(kept, longAgo.plusSeconds(1), CustomerChange.UPDATE, "second");
+        insert(kept, Instant.now(), CustomerChange.UPDATE, "recent");
+        insert(deleted, longAgo, CustomerChange.CREATE, "gone");
+        insert(deleted, longAgo.plusSeconds(1), CustomerChange.DELETE, null);
+
+        assertThat(compaction.compact()).isGreaterThanOrEqualTo(3);
+
+        assertThat(historyRepository.findByCustomerIdOrderByValidFromAscIdAsc(kept))
+                .extracting(version -> version.toView().orElseThrow().firstName())
+                .containsExactly("second", "recent");
+        assertThat(historyRepository.findByCustomerIdOrderByValidFromAscIdAsc(deleted)).isEmpty();
+        assertThat(customerDataService.findCustomerAsOf(kept, longAgo.plusSeconds(2)).orElseThrow().firstName())
+                .isEqualTo("second");
+    }
+
+    @Test
+    void compactionWalksCustomersInBatches() {
+        Instant longAgo = Instant.now().minus(Duration.ofDays(3650));
+        List<UUID> customers = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        for (UUID customer : customers) {
+            insert(customer, longAgo, CustomerChange.CREATE, "first");
+            insert(customer, longAgo.plusSeconds(1), CustomerChange.UPDATE, "second");
+        }
+        CustomerHistoryCompaction oneAtATime = new CustomerHistoryCompaction(historyRepository, false,
+                Duration.ofDays(2555), Duration.ofHours(1), 1, new SimpleMeterRegistry());
+
+        assertThat(oneAtATime.compact()).isGreaterThanOrEqualTo(customers.size());
+
+        for (UUID customer : customers) {
+            assertThat(historyRepository.findByCustomerIdOrderByValidFromAscIdAsc(customer))
+                    .extracting(version -> version.toView().orElseThrow().firstName())
+                    .containsExactly("second");
+        }
+    }
+
+    @Test
+    void versionsOfATransactionShareTheirValidFrom() {
+        Instant before = Instant.now();
+        UUID id = new TransactionTemplate(transactionManager).execute(status -> {
+            Customer customer = Customer.builder().firstName("first").lastName("lastName")
+                    .phoneNumber("4255252233").build();
+            customer.setEmailAddress("history-stamp-" + UUID.randomUUID() + "@email.com");
+            entityManager.persist(customer);
+            entityManager.flush();
+            customer.setFirstName("second");
+            entityManager.flush();
+            return customer.getId();
+        });
+
+        List<CustomerVersion> versions = historyRepository.findByCustomerIdOrderByValidFromAscIdAsc(id);
+        assertThat(versions).extracting(CustomerVersion::getChange)
+                .containsExactly(CustomerChange.CREATE, CustomerChange.UPDATE);
+        assertThat(versions.get(0).getValidFrom()).isEqualTo(versions.get(1).getValidFrom())
+                .isAfterOrEqualTo(before.truncatedTo(ChronoUnit.MICROS));
+    }
+
+    private void insert(UUID customerId, Instant validFrom, CustomerChange change, String firstName) {
+        byte[] snapshot = firstName == null ? null
+                : CustomerSnapshot.encode(Customer.builder().firstName(firstName).lastName("lastName").build());
+        jdbcTemplate.update(CustomerVersion.INSERT, customerId, OffsetDateTime.ofInstant(validFrom, ZoneOffset.UTC),
+                change.ordinal(), snapshot);
+    }
+
+    private static Customer customer(String email) {
+        return Customer.builder()
+                .firstName("firstName")
+                .lastName("lastName")
+                .emailAddress(email)
+                .phoneNumber("4255252233")
+                .build();
+    }
+}
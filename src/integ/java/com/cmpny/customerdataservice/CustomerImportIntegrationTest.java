@@ -0,0 +1,193 @@
+package com.cmpny.customerdataservice;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "customerdataservice.import.directory=${customerdataservice.integ.directory:build/tmp/integ}/customer-imports",
+        "customerdataservice.import.chunk-size=2"})
+@AutoConfigureMockMvc
+class CustomerImportIntegrationTest {
+
+    @Value("${customerdataservice.import.directory}")
+    Path importDirectory;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @BeforeEach
+    void cleanImportDirectory() throws IOException {
+        try (Stream<Path> files = Files.list(importDirectory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private JsonNode importFile(String file) throws Exception {
+        MvcResult started = mockMvc.perform(post("/customers/imports").param("file", file))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        String location = started.getResponse().getHeader("Location");
+
+        for (int i = 0; i < 100; i++) {
+            JsonNode status = objectMapper.readTree(mockMvc.perform(get(location)).andReturn().getResponse().getContentAsString());
+            if (status.get("status").asText().equals("COMPLETED") || status.get("status").asText().equals("FAILED")) {
+                return status;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Import did not complete");
+    }
+
+    @Test
+    void importCsv_UpsertsByEmailAndWritesRejects() throws Exception {
+        customerRepository.save(Customer.builder()
+                .firstName("firstName")
+                .lastName("lastName")
+                .emailAddress("import.existing@email.com")
+                .phoneNumber("4255252233")
+                .build());
+        Files.writeString(importDirectory.resolve("partner.csv"), String.join("\n",
+                "emailAddress,firstName,lastName,phoneNumber,middleName",
+                "import.new1@email.com,New,One,4255252233,",
+                "IMPORT.EXISTING@email.com,Updated,Name,4255252233,Middle",
+                "not-an-email,Bad,Email,4255252233,",
+                "import.new2@email.com,\"Quoted, Name\",Two,4255252233,",
+                ""));
+
+        JsonNode status = importFile("partner.csv");
+
+        assertThat(status.get("status").asText()).isEqualTo("COMPLETED");
+        assertThat(status.get("inserted").asLong()).isEqualTo(2);
+        assertThat(status.get("updated").asLong()).isEqualTo(1);
+        assertThat(status.get("rejected").asLong()).isEqualTo(1);
+        assertThat(customerRepository.findByNormalizedEmailAddress("import.existing@email.com").orElseThrow().getFirstName())
+                .isEqualTo("Updated");
+        assertThat(customerRepository.findByNormalizedEmailAddress("import.new2@email.com").orElseThrow().getFirstName())
+                .isEqualTo("Quoted, Name");
+        List<String> rejects = Files.readAllLines(importDirectory.resolve("partner.csv.rejects"));
+        assertThat(rejects).hasSize(1);
+        assertThat(rejects.get(0)).startsWith("line 4: Invalid email address provided");
+        assertThat(importDirectory.resolve("partner.csv.checkpoint")).doesNotExist();
+    }
+
+    @Test
+    void importGzipNdjson_ResumesFromCheckpoint() throws Exception {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(importDirectory.resolve("resume.ndjson.gz")))) {
+            for (int i = 0; i < 5; i++) {
+                out.write(("{\"firstName\":\"Resume\",\"lastName\":\"Customer\",\"emailAddress\":\"import.resume" + i
+                        + "@email.com\",\"phoneNumber\":\"4255252233\"}\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        // an earlier run committed the first two lines before it was interrupted
+        Files.writeString(importDirectory.resolve("resume.ndjson.gz.checkpoint"),
+                "{\"lines\":2,\"inserted\":2,\"updated\":0,\"rejected\":0}");
+
+        JsonNode status = importFile("resume.ndjson.gz");
+
+        assertThat(status.get("status").asText()).isEqualTo("COMPLETED");
+        assertThat(status.get("resumedFromLine").asLong()).isEqualTo(2);
+        assertThat(status.get("linesProcessed").asLong()).isEqualTo(5);
+        assertThat(status.get("inserted").asLong()).isEqualTo(5);
+        assertThat(customerRepository.findByNormalizedEmailAddress("import.resume1@email.com")).isEmpty();
+        assertThat(customerRepository.findByNormalizedEmailAddress("import.resume2@email.com")).isPresent();
+        assertThat(customerRepository.findByNormalizedEmailAddress("import.resume4@email.com")).isPresent();
+    }
+
+    @Test
+    void importCsv_RowsTheDatabaseRejectsGoToRejects() throws Exception {
+        String tooLong = "x".repeat(300);
+        Files.writeString(importDirectory.resolve("constraints.csv"), String.join("\n",
+                "emailAddress,firstName,lastName,phoneNumber",
+                "import.valid1@email.com,Valid,One,4255252233",
+                "import.toolong@email.com,Too," + tooLong + ",4255252233",
+                "import.duplicate@email.com,First,Line,4255252233",
+                "import.duplicate@email.com,Second,Line,4255252233",
+                "import.valid2@email.com,Valid,Two,4255252233",
+                ""));
+
+        JsonNode status = importFile("constraints.csv");
+
+        assertThat(status.get("status").asText()).isEqualTo("COMPLETED");
+        // the duplicate email is one new customer, the last line wins
+        assertThat(status.get("inserted").asLong()).isEqualTo(3);
+        assertThat(status.get("updated").asLong()).isEqualTo(0);
+        assertThat(status.get("rejected").asLong()).isEqualTo(1);
+        assertThat(customerRepository.findByNormalizedEmailAddress("import.valid1@email.com")).isPresent();
+        assertThat(customerRepository.findByNormalizedEmailAddress("import.toolong@email.com")).isEmpty();
+        assertThat(customerRepository.findByNormalizedEmailAddress("import.duplicate@email.com").orElseThrow().getFirstName())
+                .isEqualTo("Second");
+        List<String> rejects = Files.readAllLines(importDirectory.resolve("constraints.csv.rejects"));
+        assertThat(rejects).hasSize(1);
+        assertThat(rejects.get(0)).startsWith("line 3: Rejected by the database");
+    }
+
+    @Test
+    void importCsv_ResumeDropsRejectsWrittenAfterTheCheckpoint() throws Exception {
+        Files.writeString(importDirectory.resolve("rejects.csv"), String.join("\n",
+                "emailAddress,firstName,lastName,phoneNumber",
+                "not-an-email,Bad,One,4255252233",
+                "import.rejects1@email.com,Good,One,4255252233",
+                "not-an-email-either,Bad,Two,4255252233",
+                "import.rejects2@email.com,Good,Two,4255252233",
+                ""));
+        String firstReject = "line 2: Invalid email address provided\tnot-an-email,Bad,One,4255252233" + System.lineSeparator();
+        // the previous run wrote the rejects of the second chunk but stopped before checkpointing it
+        Files.writeString(importDirectory.resolve("rejects.csv.rejects"), firstReject
+                + "line 4: Invalid email address provided\tnot-an-email-either,Bad,Two,4255252233" + System.lineSeparator());
+        Files.writeString(importDirectory.resolve("rejects.csv.checkpoint"),
+                "{\"lines\":2,\"inserted\":1,\"updated\":0,\"rejected\":1,\"rejectsBytes\":"
+                        + firstReject.getBytes(StandardCharsets.UTF_8).length + "}");
+
+        JsonNode status = importFile("rejects.csv");
+
+        assertThat(status.get("status").asText()).isEqualTo("COMPLETED");
+        assertThat(status.get("rejected").asLong()).isEqualTo(2);
+        assertThat(Files.readAllLines(importDirectory.resolve("rejects.csv.rejects")))
+                .extracting(line -> line.substring(0, line.indexOf(':')))
+                .containsExactly("line 2", "line 4");
+    }
+
+    @Test
+    void import_FileOutsideDirectoryOrUnsupported_Rejected() throws Exception {
+        Files.writeString(importDirectory.resolve("partner.txt"), "");
+
+        mockMvc.perform(post("/customers/imports").param("file", "../etc/passwd.csv"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/customers/imports").param("file", "missing.csv"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/customers/imports").param("file", "partner.txt"))
+                .andExpect(status().isBadRequest());
+    }
+}
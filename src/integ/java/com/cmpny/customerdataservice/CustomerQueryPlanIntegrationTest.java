@@ -0,0 +1,83 @@
+package com.cmpny.customerdataservice;
+
+import com.cmpny.customerdataservice.model.CustomerQuery;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks with H2's EXPLAIN that every search {@link CustomerQuery#isIndexed(Set, List)} accepts is answered from an
+ * index: filtered searches look rows up instead of scanning the table, sorted ones read them in index order instead
+ * of sorting them (unless they are sorted by filtered fields only, which leaves nothing to sort)
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.cmpny.customerdataservice.CapturingStatementInspector")
+class CustomerQueryPlanIntegrationTest {
+
+    private static final List<CustomerQuery> INDEXED = List.of(
+            query(Map.of(), List.of("lastName")),
+            query(Map.of(), List.of("lastName", "firstName")),
+            query(Map.of(), List.of("phoneNumber", "lastName", "firstName")),
+            query(Map.of(), List.of("id")),
+            query(Map.of("lastName", "Smith"), List.of()),
+            query(Map.of("lastName", "Smith"), List.of("firstName")),
+            query(Map.of("lastName", "Smith", "firstName", "John"), List.of()),
+            query(Map.of("phoneNumber", "4255252233"), List.of("lastName", "firstName")),
+            query(Map.of("phoneNumber", "4255252233", "lastName", "Smith"), List.of("firstName")),
+            query(Map.of("phoneNumber", "4255252233", "lastName", "Smith", "firstName", "John"), List.of("lastName")));
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void indexedSearchesUseAnIndex() {
+        for (CustomerQuery query : INDEXED) {
+            assertThat(CustomerQuery.isIndexed(query.filters().keySet(), query.sort())).as(query.toString()).isTrue();
+
+            String plan = explain(query);
+
+            if (!query.filters().isEmpty()) {
+                assertThat(plan).as(query.toString()).doesNotContain("tableScan");
+            }
+            if (!query.filters().keySet().containsAll(query.sort())) {
+                assertThat(plan).as(query.toString()).contains("index sorted");
+            }
+        }
+    }
+
+    @Test
+    void rejectedSearchesWouldScanOrSort() {
+        CustomerQuery firstNameOnly = query(Map.of("firstName", "John"), List.of());
+        CustomerQuery sortBySkippedColumn = query(Map.of("phoneNumber", "4255252233"), List.of("firstName"));
+
+        assertThat(CustomerQuery.isIndexed(firstNameOnly.filters().keySet(), firstNameOnly.sort())).isFalse();
+        assertThat(explain(firstNameOnly)).contains("tableScan");
+        assertThat(CustomerQuery.isIndexed(sortBySkippedColumn.filters().keySet(), sortBySkippedColumn.sort())).isFalse();
+        assertThat(explain(sortBySkippedColumn)).doesNotContain("index sorted");
+    }
+
+    private String explain(CustomerQuery query) {
+        customerRepository.findViews(query, Set.of());
+        String sql = CapturingStatementInspector.lastStatement();
+        // parameters are bound in the order the filters are iterated, the limit comes last
+        List<Object> parameters = new ArrayList<>(query.filters().values());
+        parameters.add(query.limit());
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters.toArray());
+    }
+
+    private static CustomerQuery query(Map<String, String> filters, List<String> sort) {
+        return new CustomerQuery(filters, sort, 10);
+    }
+}
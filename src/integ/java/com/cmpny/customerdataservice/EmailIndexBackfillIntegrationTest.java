@@ -0,0 +1,92 @@
+package com.cmpny.customerdataservice;
+
+import com.cmpny.customerdataservice.config.EmailIndexBackfill;
+import com.cmpny.customerdataservice.model.Customer;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmailIndexBackfillIntegrationTest {
+
+    @Test
+    void backfillsRowsWrittenBeforeTheColumnWithTheWriteNormalization() {
+        DriverManagerDataSource dataSource = dataSource();
+        migrate(dataSource, "2");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        List<String> emails = List.of("Plain@Example.com", " Padded@Example.com ", "ÜMLAUT@Exämple.com", "İSTANBUL@example.com",
+                "kept@example.com");
+        for (String email : emails) {
+            jdbcTemplate.update("INSERT INTO customer (id, first_name, last_name, email_address, phone_number) "
+                    + "VALUES (?, 'first', 'last', ?, '4255252233')", UUID.randomUUID(), email);
+        }
+        // written by the new release while the backfill had not reached it yet
+        jdbcTemplate.update("UPDATE customer SET normalized_email_address = 'already@set' WHERE email_address = 'kept@example.com'");
+
+        migrate(dataSource, "latest");
+
+        for (String email : emails.subList(0, 4)) {
+            assertThat(jdbcTemplate.queryForObject("SELECT normalized_email_address FROM customer WHERE email_address = ?",
+                    String.class, email)).isEqualTo(Customer.normalizeEmail(email));
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT normalized_email_address FROM customer WHERE email_address = ?",
+                String.class, "kept@example.com")).isEqualTo("already@set");
+        // constrained by V4, rows without a normalized email are rejected
+        assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO customer (id, first_name, last_name, email_address, "
+                + "phone_number) VALUES (?, 'first', 'last', 'x', '4255252233')", UUID.randomUUID()))
+                .hasMessageContaining("NORMALIZED_EMAIL_ADDRESS");
+    }
+
+    @Test
+    void failsListingCustomersWhoseEmailsOnlyDifferInCase() {
+        DriverManagerDataSource dataSource = dataSource();
+        migrate(dataSource, "2");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        UUID upper = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID lower = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        UUID padded = UUID.fromString("00000000-0000-0000-0000-000000000003");
+        UUID distinct = UUID.fromString("00000000-0000-0000-0000-000000000004");
+        jdbcTemplate.update("INSERT INTO customer (id, first_name, last_name, email_address, phone_number) "
+                + "VALUES (?, 'first', 'last', 'Foo@Example.com', '4255252233')", upper);
+        jdbcTemplate.update("INSERT INTO customer (id, first_name, last_name, email_address, phone_number) "
+                + "VALUES (?, 'first', 'last', 'foo@example.com', '4255252233')", lower);
+        jdbcTemplate.update("INSERT INTO customer (id, first_name, last_name, email_address, phone_number) "
+                + "VALUES (?, 'first', 'last', ' foo@example.com', '4255252233')", padded);
+        jdbcTemplate.update("INSERT INTO customer (id, first_name, last_name, email_address, phone_number) "
+                + "VALUES (?, 'first', 'last', 'bar@example.com', '4255252233')", distinct);
+
+        assertThatThrownBy(() -> migrate(dataSource, "latest"))
+                .rootCause()
+                .hasMessageContaining("share an email address")
+                .hasMessageContaining(upper + ", " + lower + ", " + padded)
+                .hasMessageNotContaining(distinct.toString());
+        // V4 was not attempted, the emails are still only unique as entered
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customer WHERE normalized_email_address = ?",
+                Integer.class, "foo@example.com")).isEqualTo(3);
+    }
+
+    private static DriverManagerDataSource dataSource() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setUrl("jdbc:h2:mem:backfill-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+
+    private static void migrate(DriverManagerDataSource dataSource, String target) {
+        EmailIndexBackfill backfill = new EmailIndexBackfill();
+        // smaller than the number of rows, so the backfill takes several batches
+        ReflectionTestUtils.setField(backfill, "batchSize", 2);
+        Flyway.configure()
+                .dataSource(dataSource)
+                .javaMigrations(backfill)
+                .target(target)
+                .load()
+                .migrate();
+    }
+}
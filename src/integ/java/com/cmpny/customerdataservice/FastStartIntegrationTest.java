@@ -0,0 +1,31 @@
+package com.cmpny.customerdataservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("faststart")
+class FastStartIntegrationTest {
+
+    @Autowired
+    ConfigurableListableBeanFactory beanFactory;
+
+    @Test
+    void applicationBeansAreCreatedAtStartup() {
+        assertThat(beanFactory.containsSingleton("customerDataController")).isTrue();
+        assertThat(beanFactory.containsSingleton("customerExportService")).isTrue();
+        assertThat(beanFactory.containsSingleton("customerHistoryCompaction")).isTrue();
+        assertThat(beanFactory.getBeanDefinition("customerHistoryCompaction").isLazyInit()).isFalse();
+    }
+
+    @Test
+    void otherBeansAreLazy() {
+        assertThat(beanFactory.getBeanDefinitionNames()).anyMatch(name ->
+                beanFactory.getBeanDefinition(name).isLazyInit() && !beanFactory.containsSingleton(name));
+    }
+}
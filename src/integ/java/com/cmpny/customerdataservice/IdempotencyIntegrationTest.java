@@ -0,0 +1,89 @@
+package com.cmpny.customerdataservice;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class IdempotencyIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Test
+    void retriedCreateReturnsTheFirstResponseInsteadOfEmailExists() throws Exception {
+        String body = objectMapper.writeValueAsString(customer("idempotent-create@email.com"));
+        String key = UUID.randomUUID().toString();
+
+        mockMvc.perform(put("/customer").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        mockMvc.perform(put("/customer").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+
+        // without a key the retry runs again and conflicts with the customer it created
+        mockMvc.perform(put("/customer").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest());
+        assertThat(customerRepository.findByNormalizedEmailAddress("idempotent-create@email.com")).isPresent();
+    }
+
+    @Test
+    void retriedUpdateReturnsTheStoredBody() throws Exception {
+        mockMvc.perform(put("/customer").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(customer("idempotent-update@email.com"))))
+                .andExpect(status().isOk());
+        Customer customer = customerRepository.findByNormalizedEmailAddress("idempotent-update@email.com").orElseThrow();
+        customer.setLastName("updated");
+        String body = objectMapper.writeValueAsString(customer);
+        String key = UUID.randomUUID().toString();
+
+        String first = mockMvc.perform(post("/customer").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(post("/customer").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(content().json(first));
+
+        customer.setLastName("different");
+        mockMvc.perform(post("/customer").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(customer)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    private static Customer customer(String email) {
+        return Customer.builder()
+                .firstName("firstName")
+                .lastName("lastName")
+                .emailAddress(email)
+                .phoneNumber("4255252233")
+                .build();
+    }
+}
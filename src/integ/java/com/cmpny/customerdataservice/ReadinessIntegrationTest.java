@@ -0,0 +1,53 @@
+package com.cmpny.customerdataservice;
+
+import com.cmpny.customerdataservice.lifecycle.WarmUp;
+import com.cmpny.customerdataservice.metrics.CustomerDataMetrics;
+import com.cmpny.customerdataservice.metrics.ServiceOperation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "customerdataservice.warmup.iterations=50")
+@AutoConfigureMockMvc
+class ReadinessIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    WarmUp warmUp;
+
+    @Autowired
+    CustomerDataMetrics metrics;
+
+    @Test
+    void readinessIsOutOfServiceUntilWarmUpIsDone() throws Exception {
+        long deadline = System.currentTimeMillis() + 30_000;
+        MvcResult result;
+        do {
+            boolean warmedUp = warmUp.isComplete();
+            result = mockMvc.perform(get("/actuator/health/readiness")).andReturn();
+            if (result.getResponse().getStatus() == 503) {
+                assertThat(warmedUp).isFalse();
+                assertThat(result.getResponse().getContentAsString()).contains("OUT_OF_SERVICE");
+                Thread.sleep(20);
+            }
+        } while (result.getResponse().getStatus() == 503 && System.currentTimeMillis() < deadline);
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        assertThat(warmUp.isComplete()).isTrue();
+        assertThat(warmUp.health().getDetails()).containsEntry("lookups", 50L);
+        // warm-up lookups are not client traffic
+        assertThat(metrics.serviceTimer(ServiceOperation.FIND_CUSTOMER_BY_ID).count()).isZero();
+        assertThat(metrics.serviceTimer(ServiceOperation.FIND_CUSTOMER_BY_EMAIL).count()).isZero();
+        mockMvc.perform(get("/actuator/health/liveness"))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,93 @@
+package com.cmpny.customerdataservice;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RequestDeadlineIntegrationTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void installSlowQuery() {
+        jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS slow_customer_select BEFORE SELECT ON customer CALL '"
+                + SlowQueryTrigger.class.getName() + "'");
+    }
+
+    @AfterEach
+    void removeSlowQuery() {
+        SlowQueryTrigger.reset();
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS slow_customer_select");
+    }
+
+    @Test
+    void slowQueryIsCancelledWhenTheDeadlinePasses() throws Exception {
+        double cancelledBefore = avoided("cancelledStatement");
+        double exceededBefore = requests("exceeded");
+        SlowQueryTrigger.slowDownCurrentThread(Duration.ofSeconds(30));
+
+        long start = System.nanoTime();
+        mockMvc.perform(get("/customer")
+                        .param("id", UUID.randomUUID().toString())
+                        .header("X-Request-Timeout", "300"))
+                .andExpect(status().isGatewayTimeout());
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThat(avoided("cancelledStatement")).isEqualTo(cancelledBefore + 1);
+        assertThat(requests("exceeded")).isEqualTo(exceededBefore + 1);
+    }
+
+    @Test
+    void requestArrivingPastItsDeadlineIsNotProcessed() throws Exception {
+        double avoidedBefore = avoided("request");
+
+        mockMvc.perform(get("/customer")
+                        .param("id", UUID.randomUUID().toString())
+                        .header("X-Request-Timeout", "0"))
+                .andExpect(status().isGatewayTimeout());
+
+        assertThat(avoided("request")).isEqualTo(avoidedBefore + 1);
+    }
+
+    @Test
+    void requestWithinItsDeadlineCompletes() throws Exception {
+        double metBefore = requests("met");
+
+        mockMvc.perform(get("/customer")
+                        .param("id", UUID.randomUUID().toString())
+                        .header("X-Request-Timeout", "1000"))
+                .andExpect(status().isNotFound());
+
+        assertThat(requests("met")).isEqualTo(metBefore + 1);
+    }
+
+    private double avoided(String work) {
+        return meterRegistry.get("customerdataservice.deadline.work.avoided").tag("work", work).counter().count();
+    }
+
+    private double requests(String outcome) {
+        return meterRegistry.get("customerdataservice.deadline.requests").tag("outcome", outcome).counter().count();
+    }
+}
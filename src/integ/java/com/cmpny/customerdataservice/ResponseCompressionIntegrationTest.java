@@ -0,0 +1,79 @@
+package com.cmpny.customerdataservice;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ResponseCompressionIntegrationTest {
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        if (customerRepository.count() < 50) {
+            customerRepository.saveAll(IntStream.range(0, 50)
+                    .mapToObj(i -> Customer.builder()
+                            .firstName("firstName")
+                            .lastName("lastName")
+                            .emailAddress("compression" + i + "@email.com")
+                            .phoneNumber("4255252233")
+                            .build())
+                    .toList());
+        }
+    }
+
+    private HttpResponse<byte[]> get(String path, HttpClient.Version version) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .version(version)
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Test
+    void getCustomers_IsGzipped_WhenAccepted() throws Exception {
+        HttpResponse<byte[]> response = get("/customers", HttpClient.Version.HTTP_1_1);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+    }
+
+    @Test
+    void getCustomer_IsNotGzipped_BelowMinimumSize() throws Exception {
+        Customer customer = customerRepository.findAll().iterator().next();
+
+        HttpResponse<byte[]> response = get("/customer?id=" + customer.getId(), HttpClient.Version.HTTP_1_1);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(response.headers().firstValue("Content-Length")).hasValue(Integer.toString(response.body().length));
+    }
+
+    @Test
+    void getCustomers_IsServedOverCleartextHttp2() throws Exception {
+        HttpResponse<byte[]> response = get("/customers", HttpClient.Version.HTTP_2);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.version()).isEqualTo(HttpClient.Version.HTTP_2);
+    }
+}
@@ -0,0 +1,89 @@
+package com.cmpny.customerdataservice;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import com.cmpny.customerdataservice.service.CustomerDataService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// started with tomcat, whose URL handlers resolve the classpath: URI of the prod cache configuration
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.cmpny.customerdataservice.CapturingStatementInspector")
+@ActiveProfiles("prod")
+class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    CustomerDataService customerDataService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void deletingACustomerEvictsOnlyThatCustomer() {
+        UUID deleted = create("second-level-deleted");
+        UUID kept = create("second-level-kept");
+        customerRepository.findById(deleted);
+        customerRepository.findById(kept);
+        customerRepository.findByNaturalId("second-level-kept@email.com");
+        assertThat(naturalIdCached("second-level-deleted@email.com")).isTrue();
+        CapturingStatementInspector.drainStatements();
+
+        customerDataService.deleteCustomerById(deleted);
+
+        assertThat(CapturingStatementInspector.drainStatements())
+                .isNotEmpty()
+                .noneMatch(sql -> sql.stripLeading().toLowerCase(Locale.ROOT).startsWith("select"));
+        assertThat(entityManagerFactory.getCache().contains(Customer.class, deleted)).isFalse();
+        assertThat(naturalIdCached("second-level-deleted@email.com")).isFalse();
+        assertThat(entityManagerFactory.getCache().contains(Customer.class, kept)).isTrue();
+        assertThat(naturalIdCached("second-level-kept@email.com")).isTrue();
+        assertThat(customerRepository.findById(deleted)).isEmpty();
+        assertThat(customerRepository.findByNaturalId("second-level-deleted@email.com")).isEmpty();
+        assertThat(customerDataService.findCustomerHistory(deleted)).hasSize(2);
+    }
+
+    @Test
+    void bulkDeleteEvictsEveryCustomer() {
+        UUID deleted = create("second-level-bulk-deleted");
+        UUID kept = create("second-level-bulk-kept");
+        customerRepository.findById(kept);
+        assertThat(entityManagerFactory.getCache().contains(Customer.class, kept)).isTrue();
+
+        customerDataService.deleteCustomersById(List.of(deleted));
+
+        assertThat(entityManagerFactory.getCache().contains(Customer.class, kept)).isFalse();
+    }
+
+    private boolean naturalIdCached(String normalizedEmail) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(Customer.class);
+        NaturalIdDataAccess naturalIdCache = persister.getNaturalIdMapping().getCacheAccess();
+        try (SessionImplementor session = (SessionImplementor) sessionFactory.openSession()) {
+            return naturalIdCache.contains(naturalIdCache.generateCacheKey(normalizedEmail, persister, session));
+        }
+    }
+
+    private UUID create(String name) {
+        Customer customer = Customer.builder().firstName(name).lastName("lastName").phoneNumber("4255252233").build();
+        customer.setEmailAddress(name + "@email.com");
+        customerDataService.saveCustomer(customer);
+        return customer.getId();
+    }
+}
@@ -0,0 +1,52 @@
+package com.cmpny.customerdataservice;
+
+import org.h2.api.Trigger;
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Stands in for a slow query: installed as a BEFORE SELECT trigger it delays the selects issued by one thread, like
+ * a query stuck on a lock or a bad plan would. The delay ends early when the statement times out, which H2 only
+ * checks between rows, so the session's timeout is polled here. H2 keeps the flag of a statement cancelled through
+ * JDBC to the running command, so a cancelled statement here still runs until its query timeout (whole seconds)
+ */
+public class SlowQueryTrigger implements Trigger {
+
+    private static volatile Thread slowThread;
+    private static volatile Duration delay = Duration.ZERO;
+
+    /**
+     * Delays every select on the table issued by the calling thread until {@link #reset()}
+     */
+    static void slowDownCurrentThread(Duration delay) {
+        SlowQueryTrigger.delay = delay;
+        slowThread = Thread.currentThread();
+    }
+
+    static void reset() {
+        slowThread = null;
+        delay = Duration.ZERO;
+    }
+
+    @Override
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (Thread.currentThread() != slowThread) {
+            return;
+        }
+        SessionLocal session = (SessionLocal) connection.unwrap(JdbcConnection.class).getSession();
+        long end = System.nanoTime() + delay.toNanos();
+        while (System.nanoTime() < end) {
+            session.checkCanceled();
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
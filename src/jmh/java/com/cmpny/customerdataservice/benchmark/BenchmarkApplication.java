@@ -0,0 +1,63 @@
+package com.cmpny.customerdataservice.benchmark;
+
+import com.cmpny.customerdataservice.CustomerDataServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Boots the service on a random port for benchmarks that need the full request path
+ */
+final class BenchmarkApplication implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+    private final URI baseUri;
+
+    private BenchmarkApplication(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.baseUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    /**
+     * Starts the application with the given profiles and extra properties on top of application.properties
+     * @param profiles spring profiles to activate, may be empty
+     * @param properties property overrides in key=value form
+     * @return running application
+     */
+    static BenchmarkApplication start(String profiles, Map<String, Object> properties) {
+        Map<String, Object> defaults = new HashMap<>();
+        defaults.put("server.port", 0);
+        defaults.put("logging.level.root", "WARN");
+        // benchmarks drive far more traffic than a single client is allowed in production
+        defaults.put("customerdataservice.ratelimit.enabled", false);
+        // the JMH warm-up iterations warm the service up, a background warm-up would overlap the measurement
+        defaults.put("customerdataservice.warmup.enabled", false);
+        defaults.putAll(properties);
+
+        // passed as command line arguments, default properties would lose against application.properties
+        String[] args = defaults.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(CustomerDataServiceApplication.class);
+        if (profiles != null && !profiles.isEmpty()) {
+            builder.profiles(profiles.split(","));
+        }
+        return new BenchmarkApplication(builder.run(args));
+    }
+
+    URI uri(String pathAndQuery) {
+        return baseUri.resolve(pathAndQuery);
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,101 @@
+package com.cmpny.customerdataservice.benchmark;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerView;
+import com.cmpny.customerdataservice.service.CustomerDataService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency the customer history adds to writes, and the cost of reading it, below the HTTP layer. updateCustomer
+ * runs the service update, which appends a version in the same transaction when {@link #history} is on, so the
+ * difference between the two settings is what the history costs a write. asOfLookup and historyLookup read a
+ * customer as of a random point of its {@link #versions} versions, and its whole history, through the version index.
+ * Scores are microseconds per call
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=CustomerHistoryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class CustomerHistoryBenchmark {
+
+    private static final int CUSTOMERS = 1000;
+
+    @Param({"true", "false"})
+    public boolean history;
+
+    @Param({"20"})
+    public int versions;
+
+    private final AtomicLong updates = new AtomicLong();
+    private BenchmarkApplication application;
+    private CustomerDataService customerDataService;
+    private List<Customer> customers;
+    private Instant created;
+    private Instant updated;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        application = BenchmarkApplication.start("", Map.of("customerdataservice.history.enabled", history));
+        customerDataService = application.getBean(CustomerDataService.class);
+
+        customers = new ArrayList<>(CUSTOMERS);
+        created = Instant.now();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = Customer.builder()
+                    .firstName("First")
+                    .lastName("Last")
+                    .emailAddress("history" + i + "@example.com")
+                    .phoneNumber("4255252233")
+                    .build();
+            customerDataService.saveCustomer(customer);
+            customers.add(customer);
+        }
+        for (int version = 1; version < versions; version++) {
+            customers.forEach(this::update);
+        }
+        updated = Instant.now();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public Customer updateCustomer() {
+        return update(customers.get(ThreadLocalRandom.current().nextInt(CUSTOMERS)));
+    }
+
+    @Benchmark
+    public Optional<CustomerView> asOfLookup() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Instant asOf = created.plusNanos(random.nextLong(updated.toEpochMilli() - created.toEpochMilli() + 1) * 1_000_000);
+        return customerDataService.findCustomerAsOf(customers.get(random.nextInt(CUSTOMERS)).getId(), asOf);
+    }
+
+    @Benchmark
+    public int historyLookup() {
+        UUID id = customers.get(ThreadLocalRandom.current().nextInt(CUSTOMERS)).getId();
+        return customerDataService.findCustomerHistory(id).size();
+    }
+
+    // a new first name every time, so the update is never a no-op
+    private Customer update(Customer customer) {
+        customer.setFirstName("First" + Long.toString(updates.incrementAndGet(), Character.MAX_RADIX));
+        return customerDataService.updateCustomer(customer);
+    }
+}
@@ -0,0 +1,118 @@
+package com.cmpny.customerdataservice.benchmark;
+
+import com.cmpny.customerdataservice.model.CustomerQuery;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import com.cmpny.customerdataservice.model.CustomerView;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the indexed GET /customers searches over {@link #rows} customers, below the HTTP layer: by last name
+ * sorted by first name, by phone number sorted by name, and the first page of all customers sorted by name. About
+ * 100 customers share a last name and 2 a phone number. unindexedFirstNameScan runs a search the API rejects,
+ * filtering by first name only, to show the table scan it would cost. Scores are microseconds per search
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=CustomerSearchBenchmark (10M rows need a few minutes to load and
+ * about 8 GB of heap, pass -Pjmh.args="-p rows=100000" for a quick run)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx10g")
+public class CustomerSearchBenchmark {
+
+    private static final int LIMIT = 100;
+    private static final int BATCH = 10_000;
+
+    @Param({"10000000"})
+    public int rows;
+
+    private BenchmarkApplication application;
+    private CustomerRepository customerRepository;
+    private int lastNames;
+    private int phoneNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        application = BenchmarkApplication.start("", Map.of());
+        customerRepository = application.getBean(CustomerRepository.class);
+        JdbcTemplate jdbcTemplate = application.getBean(JdbcTemplate.class);
+
+        lastNames = Math.max(1, rows / 100);
+        phoneNumbers = Math.max(1, rows / 2);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int from = 0; from < rows; from += BATCH) {
+            List<Object[]> values = new ArrayList<>(BATCH);
+            for (int i = from; i < Math.min(from + BATCH, rows); i++) {
+                String email = "search" + i + "@example.com";
+                values.add(new Object[]{UUID.randomUUID(), firstName(random.nextInt(1000)),
+                        lastName(random.nextInt(lastNames)), email, email, phoneNumber(random.nextInt(phoneNumbers))});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO customer (id, first_name, last_name, email_address, "
+                    + "normalized_email_address, phone_number) VALUES (?, ?, ?, ?, ?, ?)", values);
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public List<CustomerView> byLastNameSortedByFirstName() {
+        return search(Map.of("lastName", lastName(ThreadLocalRandom.current().nextInt(lastNames))), List.of("firstName"));
+    }
+
+    @Benchmark
+    public List<CustomerView> byPhoneNumberSortedByName() {
+        return search(Map.of("phoneNumber", phoneNumber(ThreadLocalRandom.current().nextInt(phoneNumbers))),
+                List.of("lastName", "firstName"));
+    }
+
+    @Benchmark
+    public List<CustomerView> firstPageSortedByName() {
+        return search(Map.of(), List.of("lastName", "firstName"));
+    }
+
+    @Benchmark
+    public List<CustomerView> unindexedFirstNameScan() {
+        return search(Map.of("firstName", firstName(ThreadLocalRandom.current().nextInt(1000))), List.of());
+    }
+
+    private List<CustomerView> search(Map<String, String> filters, List<String> sort) {
+        return customerRepository.findViews(new CustomerQuery(filters, sort, LIMIT), Set.of());
+    }
+
+    // names cannot contain digits, so numbers are spelled with letters
+    private static String lastName(int n) {
+        return "Last" + letters(n);
+    }
+
+    private static String firstName(int n) {
+        return "First" + letters(n);
+    }
+
+    private static String letters(int n) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return letters.toString();
+    }
+
+    private static String phoneNumber(int n) {
+        return String.format("425%07d", n);
+    }
+}
@@ -0,0 +1,114 @@
+package com.cmpny.customerdataservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares looking a customer up by the indexed normalized email column against the
+ * case-insensitive LOWER(email_address) scan it replaces, on a table shaped like the customer table
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=EmailLookupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class EmailLookupBenchmark {
+
+    @Param({"100000", "10000000"})
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement normalizedLookup;
+    private PreparedStatement lowerCaseScan;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:emailbenchmark;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS customer");
+            statement.execute("CREATE TABLE customer (id UUID PRIMARY KEY, first_name VARCHAR(255) NOT NULL, " +
+                    "middle_name VARCHAR(255), last_name VARCHAR(255) NOT NULL, email_address VARCHAR(255) NOT NULL, " +
+                    "normalized_email_address VARCHAR(255) NOT NULL UNIQUE, phone_number VARCHAR(255) NOT NULL)");
+        }
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO customer VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                String email = "Customer" + i + "@Example.com";
+                insert.setObject(1, UUID.randomUUID());
+                insert.setString(2, "First");
+                insert.setString(3, null);
+                insert.setString(4, "Last");
+                insert.setString(5, email);
+                insert.setString(6, email.toLowerCase());
+                insert.setString(7, "4255252233");
+                insert.addBatch();
+                if (i % 10_000 == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+
+        assertPlanUsesIndex();
+
+        normalizedLookup = connection.prepareStatement("SELECT id FROM customer WHERE normalized_email_address = ?");
+        lowerCaseScan = connection.prepareStatement("SELECT id FROM customer WHERE LOWER(email_address) = ?");
+    }
+
+    private void assertPlanUsesIndex() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet plan = statement.executeQuery(
+                     "EXPLAIN SELECT id FROM customer WHERE normalized_email_address = 'customer1@example.com'")) {
+            plan.next();
+            String planText = plan.getString(1);
+            if (planText.contains("tableScan")) {
+                throw new IllegalStateException("Normalized email lookup is not served by an index: " + planText);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    private String randomEmail() {
+        return "customer" + ThreadLocalRandom.current().nextInt(rows) + "@example.com";
+    }
+
+    @Benchmark
+    public Object normalizedEmailIndexLookup() throws SQLException {
+        return lookup(normalizedLookup, randomEmail());
+    }
+
+    @Benchmark
+    public Object lowerCaseEmailScan() throws SQLException {
+        return lookup(lowerCaseScan, randomEmail());
+    }
+
+    private static Object lookup(PreparedStatement statement, String email) throws SQLException {
+        statement.setString(1, email);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getObject(1) : null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.cmpny.customerdataservice.benchmark;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares repeated email lookups through the natural-id loader against the derived JPQL query, with and
+ * without the second-level (natural-id) cache of the prod profile
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=EmailNaturalIdBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailNaturalIdBenchmark {
+
+    private static final int CUSTOMERS = 10_000;
+
+    @Param({"", "prod"})
+    public String profile;
+
+    private BenchmarkApplication application;
+    private CustomerRepository repository;
+    private List<String> emails;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        application = BenchmarkApplication.start(profile, Map.of());
+        repository = application.getBean(CustomerRepository.class);
+
+        List<Customer> customers = new ArrayList<>(CUSTOMERS);
+        emails = new ArrayList<>(CUSTOMERS);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            String email = "customer" + i + "@example.com";
+            emails.add(email);
+            customers.add(Customer.builder()
+                    .firstName("First")
+                    .lastName("Last")
+                    .emailAddress(email)
+                    .phoneNumber("4255252233")
+                    .build());
+        }
+        repository.saveAll(customers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    private String randomEmail() {
+        // a small hot set, as repeated lookups of the same customers are what the cache is for
+        return emails.get(ThreadLocalRandom.current().nextInt(1_000));
+    }
+
+    @Benchmark
+    public Object derivedQuery() {
+        return repository.findByNormalizedEmailAddress(randomEmail());
+    }
+
+    @Benchmark
+    public Object naturalIdLoader() {
+        return repository.findByNaturalId(randomEmail());
+    }
+}
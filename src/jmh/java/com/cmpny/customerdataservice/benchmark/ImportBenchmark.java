@@ -0,0 +1,104 @@
+package com.cmpny.customerdataservice.benchmark;
+
+import com.cmpny.customerdataservice.importer.CustomerImportService;
+import com.cmpny.customerdataservice.importer.ImportJob;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rows per second loading new customers with an import job against the naive loop of one PUT /customer per
+ * customer. Each invocation loads {@value #ROWS} customers with fresh emails, so every row is an insert.
+ * Scores are customers per second
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=ImportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ImportBenchmark.ROWS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ImportBenchmark {
+
+    static final int ROWS = 10_000;
+
+    @Param({"", "prod"})
+    public String profile;
+
+    private final AtomicLong batch = new AtomicLong();
+    private Path importDirectory;
+    private BenchmarkApplication application;
+    private CustomerImportService importService;
+    private HttpClient client;
+    private String file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        importDirectory = Files.createTempDirectory("import-benchmark");
+        application = BenchmarkApplication.start(profile,
+                Map.of("customerdataservice.import.directory", importDirectory.toString()));
+        importService = application.getBean(CustomerImportService.class);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @Setup(Level.Invocation)
+    public void writeFile() throws IOException {
+        long current = batch.incrementAndGet();
+        file = "customers-" + current + ".ndjson";
+        try (BufferedWriter writer = Files.newBufferedWriter(importDirectory.resolve(file))) {
+            for (int i = 0; i < ROWS; i++) {
+                writer.write(customerJson(current, i));
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public long importJob() throws InterruptedException {
+        ImportJob job = importService.startImport(file);
+        while (job.getStatus() == ImportJob.Status.QUEUED || job.getStatus() == ImportJob.Status.RUNNING) {
+            Thread.sleep(1);
+        }
+        if (job.getStatus() != ImportJob.Status.COMPLETED) {
+            throw new IllegalStateException("Import failed: " + job.getError());
+        }
+        return job.getInserted();
+    }
+
+    @Benchmark
+    public long putLoop() throws IOException, InterruptedException {
+        long current = batch.incrementAndGet();
+        long created = 0;
+        for (int i = 0; i < ROWS; i++) {
+            HttpRequest request = HttpRequest.newBuilder(application.uri("/customer"))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(customerJson(current, i)))
+                    .build();
+            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    private static String customerJson(long batch, int row) {
+        return "{\"firstName\":\"First\",\"lastName\":\"Last\",\"phoneNumber\":\"4255252233\",\"emailAddress\":\"import"
+                + batch + "." + row + "@example.com\"}";
+    }
+}
@@ -0,0 +1,144 @@
+package com.cmpny.customerdataservice.benchmark;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures GET /customer and PUT /customer throughput over real HTTP with each persistence setting of the
+ * prod profile applied on its own, so the effect of every setting can be compared against the defaults.
+ * Prints the connection hold time and the average number of connections in use (Little's law, hold time x
+ * connections handed out per second) of each trial, to size the pool with poolSize overrides
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=JpaTuningBenchmark
+ * Pool sizing: ./gradlew jmh -Pjmh.includes=JpaTuningBenchmark -Pjmh.args="-p setting=prodProfile -p poolSize=2,5,10,20"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class JpaTuningBenchmark {
+
+    private static final Map<String, Map<String, Object>> SETTINGS = Map.of(
+            "defaults", Map.of(),
+            "openInViewDisabled", Map.of("spring.jpa.open-in-view", false),
+            "secondLevelCache", Map.of(
+                    "spring.jpa.properties.hibernate.cache.use_second_level_cache", true,
+                    "spring.jpa.properties.hibernate.cache.region.factory_class", "jcache",
+                    "spring.jpa.properties.hibernate.javax.cache.provider",
+                    "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+                    "spring.jpa.properties.hibernate.javax.cache.uri", "classpath:caffeine-jcache.conf",
+                    "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy", "create"),
+            "jdbcBatching", Map.of(
+                    "spring.jpa.properties.hibernate.jdbc.batch_size", 50,
+                    "spring.jpa.properties.hibernate.order_inserts", true,
+                    "spring.jpa.properties.hibernate.order_updates", true),
+            "hikariFixedPool", Map.of(
+                    "spring.datasource.hikari.maximum-pool-size", 10,
+                    "spring.datasource.hikari.minimum-idle", 10),
+            "prodProfile", Map.of()
+    );
+
+    private static final int CUSTOMERS = 10_000;
+
+    @Param({"defaults", "openInViewDisabled", "secondLevelCache", "jdbcBatching", "hikariFixedPool", "prodProfile"})
+    public String setting;
+
+    // fixed pool size on top of the setting, 0 keeps the pool of the setting
+    @Param({"0"})
+    public int poolSize;
+
+    private final AtomicLong emailSequence = new AtomicLong();
+    private BenchmarkApplication application;
+    private HttpClient client;
+    private List<UUID> ids;
+    private Timer usage;
+    private Timer acquire;
+    private long usageCountBefore;
+    private double usageTimeBefore;
+    private long acquireCountBefore;
+    private double acquireTimeBefore;
+    private long startNanos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> properties = new HashMap<>(SETTINGS.get(setting));
+        if (poolSize > 0) {
+            properties.put("spring.datasource.hikari.maximum-pool-size", poolSize);
+            properties.put("spring.datasource.hikari.minimum-idle", poolSize);
+        }
+        application = BenchmarkApplication.start("prodProfile".equals(setting) ? "prod" : "", properties);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        CustomerRepository repository = application.getBean(CustomerRepository.class);
+        List<Customer> customers = new ArrayList<>(CUSTOMERS);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers.add(Customer.builder()
+                    .firstName("First")
+                    .lastName("Last")
+                    .emailAddress("seed" + i + "@example.com")
+                    .phoneNumber("4255252233")
+                    .build());
+        }
+        ids = new ArrayList<>();
+        repository.saveAll(customers).forEach(customer -> ids.add(customer.getId()));
+
+        MeterRegistry meterRegistry = application.getBean(MeterRegistry.class);
+        usage = meterRegistry.get("hikaricp.connections.usage").timer();
+        acquire = meterRegistry.get("hikaricp.connections.acquire").timer();
+        usageCountBefore = usage.count();
+        usageTimeBefore = usage.totalTime(TimeUnit.MILLISECONDS);
+        acquireCountBefore = acquire.count();
+        acquireTimeBefore = acquire.totalTime(TimeUnit.MILLISECONDS);
+        startNanos = System.nanoTime();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        double elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000.0;
+        long connections = usage.count() - usageCountBefore;
+        double heldMillis = usage.totalTime(TimeUnit.MILLISECONDS) - usageTimeBefore;
+        double acquireMillis = acquire.totalTime(TimeUnit.MILLISECONDS) - acquireTimeBefore;
+        System.out.printf("%n%s, pool %s: %.0f connections/s, held %.3f ms, %.2f in use on average, "
+                        + "acquired in %.3f ms%n", setting, poolSize > 0 ? poolSize : "default",
+                connections / elapsedMillis * 1000, heldMillis / connections, heldMillis / elapsedMillis,
+                acquireMillis / (acquire.count() - acquireCountBefore));
+        application.close();
+    }
+
+    @Benchmark
+    public int getCustomer() throws IOException, InterruptedException {
+        UUID id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        HttpRequest request = HttpRequest.newBuilder(application.uri("/customer?id=" + id)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    public int putCustomer() throws IOException, InterruptedException {
+        String body = "{\"firstName\":\"First\",\"lastName\":\"Last\",\"phoneNumber\":\"4255252233\",\"emailAddress\":\"bench"
+                + emailSequence.incrementAndGet() + "@example.com\"}";
+        HttpRequest request = HttpRequest.newBuilder(application.uri("/customer"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
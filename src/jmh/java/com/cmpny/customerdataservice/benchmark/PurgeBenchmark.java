@@ -0,0 +1,115 @@
+package com.cmpny.customerdataservice.benchmark;
+
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time for an account purge job to delete {@link #rows} customers: one DELETE /customers for all of them against
+ * one DELETE /customer per customer, and, below the HTTP layer, the single statement delete against
+ * CrudRepository.deleteById, which loads every customer before deleting it. The customers are inserted with JDBC
+ * before each iteration. Scores are milliseconds per purge
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=PurgeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class PurgeBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private final AtomicLong batch = new AtomicLong();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private BenchmarkApplication application;
+    private CustomerRepository customerRepository;
+    private JdbcTemplate jdbcTemplate;
+    private HttpClient client;
+    private List<UUID> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        application = BenchmarkApplication.start("", Map.of("customerdataservice.delete.max-ids", rows));
+        customerRepository = application.getBean(CustomerRepository.class);
+        jdbcTemplate = application.getBean(JdbcTemplate.class);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @Setup(Level.Iteration)
+    public void insertCustomers() {
+        long current = batch.incrementAndGet();
+        ids = new ArrayList<>(rows);
+        List<Object[]> values = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            UUID id = UUID.randomUUID();
+            String email = "purge" + current + "." + i + "@example.com";
+            ids.add(id);
+            values.add(new Object[]{id, "First", "Last", email, email, "4255252233"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customer (id, first_name, last_name, email_address, "
+                + "normalized_email_address, phone_number) VALUES (?, ?, ?, ?, ?, ?)", values);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    @Benchmark
+    public int bulkDelete() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(application.uri("/customers"))
+                .header("Content-Type", "application/json")
+                .method("DELETE", HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(ids)))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Bulk delete failed with " + response.statusCode());
+        }
+        return Integer.parseInt(response.body());
+    }
+
+    @Benchmark
+    public int deleteLoop() throws IOException, InterruptedException {
+        int deleted = 0;
+        for (UUID id : ids) {
+            HttpRequest request = HttpRequest.newBuilder(application.uri("/customer?id=" + id)).DELETE().build();
+            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Benchmark
+    public int singleStatementLoop() {
+        int deleted = 0;
+        for (UUID id : ids) {
+            deleted += customerRepository.deleteCustomerById(id);
+        }
+        return deleted;
+    }
+
+    @Benchmark
+    public int loadAndDeleteLoop() {
+        for (UUID id : ids) {
+            customerRepository.deleteById(id);
+        }
+        return ids.size();
+    }
+}
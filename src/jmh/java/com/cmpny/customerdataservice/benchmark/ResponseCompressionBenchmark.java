@@ -0,0 +1,87 @@
+package com.cmpny.customerdataservice.benchmark;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures latency of single customer and bulk /customers responses with and without gzip, over HTTP/1.1 and
+ * cleartext HTTP/2. Bytes on the wire for each combination are printed once per trial
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=ResponseCompressionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ResponseCompressionBenchmark {
+
+    private static final int CUSTOMERS = 5_000;
+
+    @Param({"identity", "gzip"})
+    public String acceptEncoding;
+
+    @Param({"HTTP_1_1", "HTTP_2"})
+    public HttpClient.Version version;
+
+    private BenchmarkApplication application;
+    private HttpClient client;
+    private List<UUID> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        application = BenchmarkApplication.start("", Map.of());
+        client = HttpClient.newBuilder().version(version).build();
+
+        List<Customer> customers = new ArrayList<>(CUSTOMERS);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers.add(Customer.builder()
+                    .firstName("Yuvan Shankar")
+                    .lastName("Raja")
+                    .emailAddress("customer" + i + "@outlook.com")
+                    .phoneNumber("4256412243")
+                    .build());
+        }
+        ids = new ArrayList<>();
+        application.getBean(CustomerRepository.class).saveAll(customers).forEach(customer -> ids.add(customer.getId()));
+
+        System.out.printf("%n%s %s: single customer %d bytes, /customers %d bytes%n", version, acceptEncoding,
+                send("/customer?id=" + ids.getFirst()).body().length, send("/customers").body().length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        application.close();
+    }
+
+    private HttpResponse<byte[]> send(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(application.uri(path))
+                .header("Accept-Encoding", acceptEncoding)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Benchmark
+    public byte[] singleCustomer() throws IOException, InterruptedException {
+        return send("/customer?id=" + ids.get(ThreadLocalRandom.current().nextInt(ids.size()))).body();
+    }
+
+    @Benchmark
+    public byte[] allCustomers() throws IOException, InterruptedException {
+        return send("/customers").body();
+    }
+}
@@ -0,0 +1,72 @@
+package com.cmpny.customerdataservice.benchmark;
+
+import com.cmpny.customerdataservice.model.CustomerView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares bytes on the wire and serialization/deserialization time of the negotiable response formats, for a
+ * single customer and for a bulk /customers sized list. Divide the scores by the customers parameter for the
+ * time per customer, the encoded size is printed once per trial
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=WireFormatBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"1", "1000"})
+    public int customers;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<CustomerView> views;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper mapper = switch (format) {
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            default -> new ObjectMapper();
+        };
+        writer = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, CustomerView.class));
+        reader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, CustomerView.class));
+
+        views = new ArrayList<>(customers);
+        for (int i = 0; i < customers; i++) {
+            views.add(new CustomerView(UUID.randomUUID(), "Yuvan Shankar", null, "Raja",
+                    "customer" + i + "@outlook.com", "4256412243"));
+        }
+        encoded = writer.writeValueAsBytes(views);
+        System.out.printf("%n%s, %d customers: %d bytes (%.1f bytes per customer)%n",
+                format, customers, encoded.length, (double) encoded.length / customers);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(views);
+    }
+
+    @Benchmark
+    public List<CustomerView> deserialize() throws IOException {
+        return reader.readValue(encoded);
+    }
+}
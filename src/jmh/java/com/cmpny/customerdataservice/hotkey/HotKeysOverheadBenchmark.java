@@ -0,0 +1,67 @@
+package com.cmpny.customerdataservice.hotkey;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per lookup cost of recording a key in the hot key tracker, with the sketch size of application.properties. Keys
+ * are either spread evenly over many customers or skewed, a few customers taking most lookups, which is the case
+ * that hammers the same counters. Run single threaded and with one thread per core recording at once
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=HotKeysOverheadBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotKeysOverheadBenchmark {
+
+    private static final int KEYS = 1 << 16;
+
+    @State(Scope.Benchmark)
+    public static class Tracker {
+
+        @Param({"uniform", "skewed"})
+        String distribution;
+
+        HeavyHitters<Object> heavyHitters;
+        UUID[] keys;
+
+        @Setup
+        public void setUp() {
+            heavyHitters = new HeavyHitters<>(20, 2048, 4);
+            UUID[] customers = new UUID[100_000];
+            for (int i = 0; i < customers.length; i++) {
+                customers[i] = UUID.randomUUID();
+            }
+            Random random = new Random(42);
+            keys = new UUID[KEYS];
+            for (int i = 0; i < KEYS; i++) {
+                // skewed: half the lookups go to 10 customers
+                keys[i] = distribution.equals("skewed") && random.nextBoolean()
+                        ? customers[random.nextInt(10)]
+                        : customers[random.nextInt(customers.length)];
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = new Random().nextInt(KEYS);
+    }
+
+    @Benchmark
+    public void record(Tracker tracker, Cursor cursor) {
+        tracker.heavyHitters.record(tracker.keys[cursor.next++ & (KEYS - 1)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void recordContended(Tracker tracker, Cursor cursor) {
+        tracker.heavyHitters.record(tracker.keys[cursor.next++ & (KEYS - 1)]);
+    }
+}
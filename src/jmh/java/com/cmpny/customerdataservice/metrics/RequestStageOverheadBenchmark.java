@@ -0,0 +1,72 @@
+package com.cmpny.customerdataservice.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per request cost of the stage breakdown: starting the request, timing validation and db, marking serialization
+ * and publishing the three stage timers with the same histogram and percentile settings as application.properties.
+ * Compared against the same work without any instrumentation
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=RequestStageOverheadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestStageOverheadBenchmark {
+
+    private Timer[] timers;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        timers = new Timer[RequestStage.values().length];
+        for (RequestStage stage : RequestStage.values()) {
+            timers[stage.ordinal()] = Timer.builder(RequestStageMetrics.METER_NAME)
+                    .tag("endpoint", "getCustomer")
+                    .tag("stage", stage.tagValue())
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.95, 0.99, 0.999)
+                    .minimumExpectedValue(Duration.ofNanos(1_000))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+        }
+    }
+
+    @Benchmark
+    public void uninstrumented(Blackhole blackhole) {
+        blackhole.consume(validate());
+        blackhole.consume(load());
+    }
+
+    @Benchmark
+    public void stageBreakdown(Blackhole blackhole) {
+        RequestStages.begin();
+        RequestStages.run(RequestStage.VALIDATION, () -> blackhole.consume(validate()));
+        blackhole.consume(RequestStages.time(RequestStage.DB, this::load));
+        RequestStages.markSerializationStart();
+
+        long[] stageNanos = RequestStages.end();
+        for (RequestStage stage : RequestStage.values()) {
+            timers[stage.ordinal()].record(stageNanos[stage.ordinal()], TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int validate() {
+        Blackhole.consumeCPU(10);
+        return 1;
+    }
+
+    private Object load() {
+        Blackhole.consumeCPU(50);
+        return this;
+    }
+}
@@ -0,0 +1,76 @@
+package com.cmpny.customerdataservice.metrics;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per call cost of timing a service method: an AspectJ proxy with {@link TimedAspect} (how the service was
+ * instrumented before), the pre-registered timer of {@link CustomerDataMetrics}, and no instrumentation at all.
+ * Error counters are compared the same way, looked up by name on each increment against a held counter
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=ServiceTimingOverheadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceTimingOverheadBenchmark {
+
+    public static class Work {
+        @Timed("customerdataservice.service")
+        public Object find() {
+            Blackhole.consumeCPU(50);
+            return this;
+        }
+    }
+
+    private Work work;
+    private Work proxiedWork;
+    private SimpleMeterRegistry registry;
+    private CustomerDataMetrics metrics;
+
+    @Setup
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        work = new Work();
+        metrics = new CustomerDataMetrics(registry);
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new Work());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new TimedAspect(registry));
+        proxiedWork = proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public Object uninstrumented() {
+        return work.find();
+    }
+
+    @Benchmark
+    public Object timedAspectProxy() {
+        return proxiedWork.find();
+    }
+
+    @Benchmark
+    public Object preRegisteredTimer() {
+        return metrics.time(ServiceOperation.FIND_CUSTOMER_BY_ID, work::find);
+    }
+
+    @Benchmark
+    public void counterLookupByName() {
+        registry.counter("customerdataservice.updatecustomer.customernotfoundexception").increment();
+    }
+
+    @Benchmark
+    public void preRegisteredCounter() {
+        metrics.updateCustomerNotFound();
+    }
+}
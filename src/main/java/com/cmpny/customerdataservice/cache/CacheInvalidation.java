@@ -0,0 +1,15 @@
+package com.cmpny.customerdataservice.cache;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Message telling the other instances to drop customers from their near-caches after a write
+ * @param origin id of the instance that made the write, which has already evicted them
+ * @param customerIds ids of the customers written
+ * @param normalizedEmails normalized email addresses whose id lookups may have changed
+ * @param publishedAtMillis wall clock time of the write, to measure how long near-caches could serve stale data
+ */
+public record CacheInvalidation(String origin, List<UUID> customerIds, List<String> normalizedEmails,
+                                long publishedAtMillis) {
+}
@@ -0,0 +1,252 @@
+package com.cmpny.customerdataservice.cache;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Two tier cache for customer lookups: a small near-cache per instance in front of a {@link SharedCache} all
+ * instances use. Customers are cached by id; lookups by email go through a cached email to id pointer that is
+ * checked against the customer it points to, so a stale pointer (email changed, customer deleted) only costs a
+ * database lookup.
+ * Writers call {@link #invalidate(UUID, String...)} once the write has committed, which evicts the keys from the
+ * shared tier and this instance and publishes a {@link CacheInvalidation} for the other instances. Loads only
+ * populate the shared tier if no eviction happened while they ran, the near-cache expiry bounds how long a lost
+ * or late invalidation can leave an instance stale.
+ * Publishes customerdataservice.cache.requests (tagged cache, tier and result) for hit ratios,
+ * customerdataservice.cache.invalidations and the customerdataservice.cache.invalidation.lag timer, the time from a
+ * write on one instance until another instance evicted it, i.e. its staleness window
+ */
+@Component
+public class CustomerCache {
+
+    static final String REQUESTS = "customerdataservice.cache.requests";
+    static final String INVALIDATION_LAG = "customerdataservice.cache.invalidation.lag";
+
+    private enum Region {
+        CUSTOMERS, EMAILS
+    }
+
+    private enum Tier {
+        NEAR, SHARED
+    }
+
+    private final boolean enabled;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Cache<UUID, CustomerView> nearCustomers;
+    private final Cache<String, UUID> nearIdsByEmail;
+    private final SharedCache<CustomerView> sharedCustomers;
+    private final SharedCache<UUID> sharedIdsByEmail;
+    private final InvalidationBus invalidationBus;
+    private final InvalidationBus.Subscription subscription;
+    // advanced on every near-cache eviction, a read only fills the near-cache if no eviction happened meanwhile
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Counter[][][] requests = new Counter[Region.values().length][Tier.values().length][2];
+    private final Counter invalidationsPublished;
+    private final Counter invalidationsReceived;
+    private final Timer invalidationLag;
+
+    @Autowired
+    public CustomerCache(@Value("${customerdataservice.cache.enabled:true}") boolean enabled,
+                         @Value("${customerdataservice.cache.near.maximum-size:10000}") long nearMaximumSize,
+                         @Value("${customerdataservice.cache.near.expire-after-write:PT10S}") Duration nearExpireAfterWrite,
+                         SharedCache<CustomerView> sharedCustomers,
+                         SharedCache<UUID> sharedIdsByEmail,
+                         InvalidationBus invalidationBus,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.nearCustomers = Caffeine.newBuilder()
+                .maximumSize(nearMaximumSize)
+                .expireAfterWrite(nearExpireAfterWrite)
+                .build();
+        this.nearIdsByEmail = Caffeine.newBuilder()
+                .maximumSize(nearMaximumSize)
+                .expireAfterWrite(nearExpireAfterWrite)
+                .build();
+        this.sharedCustomers = sharedCustomers;
+        this.sharedIdsByEmail = sharedIdsByEmail;
+        this.invalidationBus = invalidationBus;
+        this.subscription = enabled ? invalidationBus.subscribe(this::onInvalidation) : null;
+
+        for (Region region : Region.values()) {
+            for (Tier tier : Tier.values()) {
+                for (boolean hit : new boolean[]{true, false}) {
+                    requests[region.ordinal()][tier.ordinal()][hit ? 1 : 0] = Counter.builder(REQUESTS)
+                            .description("Customer cache lookups")
+                            .tag("cache", region.name().toLowerCase(Locale.ROOT))
+                            .tag("tier", tier.name().toLowerCase(Locale.ROOT))
+                            .tag("result", hit ? "hit" : "miss")
+                            .register(meterRegistry);
+                }
+            }
+        }
+        invalidationsPublished = Counter.builder("customerdataservice.cache.invalidations")
+                .tag("direction", "published")
+                .register(meterRegistry);
+        invalidationsReceived = Counter.builder("customerdataservice.cache.invalidations")
+                .tag("direction", "received")
+                .register(meterRegistry);
+        invalidationLag = Timer.builder(INVALIDATION_LAG)
+                .description("Time from a write until another instance evicted it from its near-cache")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * Looks a customer up by id
+     * @param id customer id
+     * @param loader loads the customer from the database on a miss
+     * @return customer if found
+     */
+    public Optional<CustomerView> findById(UUID id, Function<UUID, Optional<CustomerView>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        long evictionsBefore = evictions.get();
+        CustomerView customer = nearCustomers.getIfPresent(id);
+        record(Region.CUSTOMERS, Tier.NEAR, customer != null);
+        if (customer != null) {
+            return Optional.of(customer);
+        }
+
+        String key = id.toString();
+        SharedCache.Entry<CustomerView> entry = sharedCustomers.get(key);
+        record(Region.CUSTOMERS, Tier.SHARED, entry.value() != null);
+        if (entry.value() != null) {
+            putNear(nearCustomers, id, entry.value(), evictionsBefore);
+            return Optional.of(entry.value());
+        }
+
+        Optional<CustomerView> loaded = loader.apply(id);
+        loaded.ifPresent(view -> {
+            if (sharedCustomers.putIfCurrent(key, view, entry.generation())) {
+                putNear(nearCustomers, id, view, evictionsBefore);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Looks a customer up by email. The email is resolved to an id through the cache, and the customer by id; on a
+     * miss only the email to id pointer is cached, the customer itself is cached by the next lookup through
+     * {@link #findById(UUID, Function)}, which knows the generation of its key
+     * @param normalizedEmail email normalized with {@link Customer#normalizeEmail(String)}
+     * @param byId loads a customer by id from the database
+     * @param byEmail loads a customer by normalized email from the database
+     * @return customer if found
+     */
+    public Optional<CustomerView> findByEmail(String normalizedEmail, Function<UUID, Optional<CustomerView>> byId,
+                                              Function<String, Optional<CustomerView>> byEmail) {
+        if (!enabled) {
+            return byEmail.apply(normalizedEmail);
+        }
+        long evictionsBefore = evictions.get();
+        UUID id = nearIdsByEmail.getIfPresent(normalizedEmail);
+        record(Region.EMAILS, Tier.NEAR, id != null);
+        if (id == null) {
+            id = sharedIdsByEmail.get(normalizedEmail).value();
+            record(Region.EMAILS, Tier.SHARED, id != null);
+            if (id != null) {
+                putNear(nearIdsByEmail, normalizedEmail, id, evictionsBefore);
+            }
+        }
+        if (id != null) {
+            Optional<CustomerView> customer = findById(id, byId);
+            if (customer.isPresent() && normalizedEmail.equals(Customer.normalizeEmail(customer.get().emailAddress()))) {
+                return customer;
+            }
+            nearIdsByEmail.invalidate(normalizedEmail);
+        }
+
+        long generation = sharedIdsByEmail.get(normalizedEmail).generation();
+        Optional<CustomerView> loaded = byEmail.apply(normalizedEmail);
+        loaded.ifPresent(view -> {
+            if (sharedIdsByEmail.putIfCurrent(normalizedEmail, view.id(), generation)) {
+                putNear(nearIdsByEmail, normalizedEmail, view.id(), evictionsBefore);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Evicts a written customer from both tiers and tells the other instances to evict it, call once the write
+     * has committed
+     * @param id id of the customer written
+     * @param normalizedEmails email addresses it had before and after the write
+     */
+    public void invalidate(UUID id, String... normalizedEmails) {
+        if (enabled) {
+            invalidate(List.of(id), Arrays.asList(normalizedEmails));
+        }
+    }
+
+    /**
+     * Evicts written customers from both tiers and tells the other instances to evict them, call once the write
+     * has committed
+     * @param ids ids of the customers written
+     * @param normalizedEmails email addresses they had before and after the write
+     */
+    public void invalidate(Collection<UUID> ids, Collection<String> normalizedEmails) {
+        if (!enabled || (ids.isEmpty() && normalizedEmails.isEmpty())) {
+            return;
+        }
+        ids.forEach(id -> sharedCustomers.evict(id.toString()));
+        normalizedEmails.forEach(sharedIdsByEmail::evict);
+        evictNear(ids, normalizedEmails);
+        invalidationBus.publish(new CacheInvalidation(instanceId, List.copyOf(ids), List.copyOf(normalizedEmails),
+                System.currentTimeMillis()));
+        invalidationsPublished.increment();
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (instanceId.equals(invalidation.origin())) {
+            return;
+        }
+        evictNear(invalidation.customerIds(), invalidation.normalizedEmails());
+        invalidationsReceived.increment();
+        invalidationLag.record(Math.max(0, System.currentTimeMillis() - invalidation.publishedAtMillis()),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void evictNear(Collection<UUID> ids, Collection<String> normalizedEmails) {
+        evictions.incrementAndGet();
+        nearCustomers.invalidateAll(ids);
+        nearIdsByEmail.invalidateAll(normalizedEmails);
+    }
+
+    private <K, V> void putNear(Cache<K, V> cache, K key, V value, long evictionsBefore) {
+        if (evictions.get() == evictionsBefore) {
+            cache.put(key, value);
+        }
+    }
+
+    private void record(Region region, Tier tier, boolean hit) {
+        requests[region.ordinal()][tier.ordinal()][hit ? 1 : 0].increment();
+    }
+}
@@ -0,0 +1,89 @@
+package com.cmpny.customerdataservice.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * In process {@link InvalidationBus}, registered by name like {@link EmbeddedSharedCache} so application contexts
+ * in one JVM can talk to each other. Messages are delivered in order on a single daemon thread, like a pub/sub
+ * channel would. A named bus is shut down, and its name released, once every context that got it has closed it
+ */
+@Slf4j
+public class EmbeddedInvalidationBus implements InvalidationBus, AutoCloseable {
+
+    // guarded by itself, along with the references of the buses in it
+    private static final Map<String, EmbeddedInvalidationBus> NAMED = new HashMap<>();
+
+    private final Set<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArraySet<>();
+    private final String name;
+    private final ExecutorService delivery;
+    private int references;
+
+    public EmbeddedInvalidationBus(String name) {
+        this.name = name;
+        delivery = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invalidation-bus-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the JVM wide bus of the given name, creating it on first use. Each call must be matched by a
+     * {@link #close()}
+     * @param name bus name
+     * @return the named bus
+     */
+    public static EmbeddedInvalidationBus named(String name) {
+        synchronized (NAMED) {
+            EmbeddedInvalidationBus bus = NAMED.computeIfAbsent(name, EmbeddedInvalidationBus::new);
+            bus.references++;
+            return bus;
+        }
+    }
+
+    /**
+     * Releases this bus, shutting its delivery thread down once it is no longer used. Messages already published
+     * are still delivered
+     */
+    @Override
+    public void close() {
+        synchronized (NAMED) {
+            if (NAMED.get(name) == this && --references > 0) {
+                return;
+            }
+            NAMED.remove(name, this);
+        }
+        delivery.shutdown();
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        if (delivery.isShutdown()) {
+            log.debug("Invalidation published after the bus was closed, dropped");
+            return;
+        }
+        delivery.execute(() -> {
+            for (Consumer<CacheInvalidation> listener : listeners) {
+                try {
+                    listener.accept(invalidation);
+                } catch (RuntimeException ex) {
+                    log.warn("Invalidation listener failed", ex);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Subscription subscribe(Consumer<CacheInvalidation> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+}
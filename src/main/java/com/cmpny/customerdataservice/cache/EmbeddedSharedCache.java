@@ -0,0 +1,88 @@
+package com.cmpny.customerdataservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In process {@link SharedCache} backed by Caffeine, for tests and single instance deployments. Instances are
+ * registered by name so several application contexts in one JVM can share one, standing in for a cache node.
+ * An evicted key keeps its advanced generation until it expires; once it has expired its generation starts over
+ * at zero, which only ever rejects a put that raced it. A named cache is dropped, and its name released, once every
+ * context that got it has closed it
+ * @param <V> type of the cached values
+ */
+public class EmbeddedSharedCache<V> implements SharedCache<V>, AutoCloseable {
+
+    // guarded by itself, along with the references of the caches in it
+    private static final Map<String, EmbeddedSharedCache<?>> NAMED = new HashMap<>();
+
+    private record Slot<V>(V value, long generation) {
+    }
+
+    private final Cache<String, Slot<V>> slots;
+    private String name;
+    private int references;
+
+    public EmbeddedSharedCache(long maximumSize, Duration expireAfterWrite) {
+        slots = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    /**
+     * Returns the JVM wide cache of the given name, creating it with the given settings on first use. Each call must
+     * be matched by a {@link #close()}
+     * @param name cache name
+     * @param maximumSize maximum number of keys
+     * @param expireAfterWrite time after which a key expires
+     * @return the named cache
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> EmbeddedSharedCache<V> named(String name, long maximumSize, Duration expireAfterWrite) {
+        synchronized (NAMED) {
+            EmbeddedSharedCache<V> cache = (EmbeddedSharedCache<V>) NAMED.computeIfAbsent(name,
+                    cacheName -> new EmbeddedSharedCache<>(maximumSize, expireAfterWrite));
+            cache.name = name;
+            cache.references++;
+            return cache;
+        }
+    }
+
+    /**
+     * Releases this cache, dropping its entries once it is no longer used
+     */
+    @Override
+    public void close() {
+        synchronized (NAMED) {
+            if (name != null && NAMED.get(name) == this && --references > 0) {
+                return;
+            }
+            NAMED.remove(name, this);
+        }
+        slots.invalidateAll();
+    }
+
+    @Override
+    public Entry<V> get(String key) {
+        Slot<V> slot = slots.getIfPresent(key);
+        return slot == null ? new Entry<>(null, 0) : new Entry<>(slot.value(), slot.generation());
+    }
+
+    @Override
+    public boolean putIfCurrent(String key, V value, long generation) {
+        Slot<V> stored = new Slot<>(value, generation);
+        Slot<V> result = slots.asMap().compute(key,
+                (slotKey, slot) -> (slot == null ? 0 : slot.generation()) == generation ? stored : slot);
+        return result == stored;
+    }
+
+    @Override
+    public void evict(String key) {
+        slots.asMap().compute(key, (slotKey, slot) -> new Slot<>(null, slot == null ? 1 : slot.generation() + 1));
+    }
+}
@@ -0,0 +1,30 @@
+package com.cmpny.customerdataservice.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Fans {@link CacheInvalidation} messages out to every instance of the service. Delivery is asynchronous and at
+ * most once, the near-cache expiry bounds how long a lost message can leave an instance stale
+ */
+public interface InvalidationBus {
+
+    /**
+     * Handle to stop receiving messages
+     */
+    interface Subscription {
+        void cancel();
+    }
+
+    /**
+     * Publishes a message to all subscribers, including the publisher's own
+     * @param invalidation message to publish
+     */
+    void publish(CacheInvalidation invalidation);
+
+    /**
+     * Registers a listener for all messages published from now on
+     * @param listener listener, called on a bus thread
+     * @return subscription to cancel when the listener goes away
+     */
+    Subscription subscribe(Consumer<CacheInvalidation> listener);
+}
@@ -0,0 +1,41 @@
+package com.cmpny.customerdataservice.cache;
+
+/**
+ * Cache tier shared by all instances of the service, in front of the database and behind each instance's near-cache.
+ * Every key carries a generation that {@link #evict(String)} advances, so a value loaded from the database is only
+ * stored if no write evicted the key while it was being loaded. Implementations map this onto what the cache node
+ * offers (e.g. a check-and-set or a versioned entry); {@link EmbeddedSharedCache} keeps everything in process
+ * @param <V> type of the cached values
+ */
+public interface SharedCache<V> {
+
+    /**
+     * Value and generation of a key
+     * @param value cached value, null on a miss
+     * @param generation generation to pass to {@link #putIfCurrent(String, Object, long)}
+     */
+    record Entry<V>(V value, long generation) {
+    }
+
+    /**
+     * Looks a key up
+     * @param key cache key
+     * @return the entry, with a null value on a miss
+     */
+    Entry<V> get(String key);
+
+    /**
+     * Stores a value unless the key has been evicted since its generation was read
+     * @param key cache key
+     * @param value value to store
+     * @param generation generation from the {@link #get(String)} made before the value was loaded
+     * @return true if the value was stored
+     */
+    boolean putIfCurrent(String key, V value, long generation);
+
+    /**
+     * Removes a key and advances its generation
+     * @param key cache key
+     */
+    void evict(String key);
+}
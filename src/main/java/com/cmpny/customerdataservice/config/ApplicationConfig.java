@@ -1,26 +1,59 @@
 package com.cmpny.customerdataservice.config;
 
-import io.micrometer.core.aop.CountedAspect;
-import io.micrometer.core.aop.TimedAspect;
-import io.micrometer.core.instrument.MeterRegistry;
+import com.cmpny.customerdataservice.CustomerDataServiceApplication;
+import com.cmpny.customerdataservice.controller.SparseFieldsetAdvice;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 
 /**
  * Configuration class to create any application relate Beans
  */
 @Configuration
-@EnableAspectJAutoProxy(proxyTargetClass = true)
+@ImportRuntimeHints(NativeHints.class)
 public class ApplicationConfig {
 
+    /**
+     * Limits lazy initialization (faststart profile) to the framework beans nothing of the service needs. The
+     * service's own beans, and everything they depend on, are still created at startup, so the request path is ready
+     * before the first request and the background work (export cleanup, history compaction, warm-up) starts with
+     * the application rather than on first use
+     */
     @Bean
-    CountedAspect countedAspect(MeterRegistry meterRegistry) {
-        return new CountedAspect(meterRegistry);
+    static LazyInitializationExcludeFilter eagerApplicationBeans() {
+        String applicationPackage = CustomerDataServiceApplication.class.getPackageName() + ".";
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && beanType.getName().startsWith(applicationPackage);
     }
 
+    /**
+     * Sparse fieldsets of the customer views, for every mapper built from the application's Jackson settings
+     */
     @Bean
-    TimedAspect timedAspect(MeterRegistry meterRegistry) {
-        return new TimedAspect(meterRegistry);
+    Jackson2ObjectMapperBuilderCustomizer sparseFieldsetCustomizer() {
+        return SparseFieldsetAdvice::configure;
+    }
+
+    /**
+     * application/cbor request and response bodies, built from the same Jackson settings as JSON
+     */
+    @Bean
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * application/x-jackson-smile request and response bodies, built from the same Jackson settings as JSON
+     */
+    @Bean
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
     }
 }
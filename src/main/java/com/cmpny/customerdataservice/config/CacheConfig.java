@@ -0,0 +1,50 @@
+package com.cmpny.customerdataservice.config;
+
+import com.cmpny.customerdataservice.cache.EmbeddedInvalidationBus;
+import com.cmpny.customerdataservice.cache.EmbeddedSharedCache;
+import com.cmpny.customerdataservice.cache.InvalidationBus;
+import com.cmpny.customerdataservice.cache.SharedCache;
+import com.cmpny.customerdataservice.model.CustomerView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Shared cache tier and invalidation bus of the customer cache. customerdataservice.cache.shared.type selects the
+ * implementation, embedded keeps both in process: private to the application context, or shared by all contexts in
+ * the JVM that set the same customerdataservice.cache.shared.name. Each context releases them when it closes, so the
+ * random default names do not pile up in a JVM that starts many contexts. A cache node client plugs in as another
+ * type providing the same beans
+ */
+@Configuration
+@ConditionalOnProperty(name = "customerdataservice.cache.shared.type", havingValue = "embedded", matchIfMissing = true)
+public class CacheConfig {
+
+    @Value("${customerdataservice.cache.shared.name:#{T(java.util.UUID).randomUUID().toString()}}")
+    private String name;
+
+    @Value("${customerdataservice.cache.shared.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${customerdataservice.cache.shared.expire-after-write:PT10M}")
+    private Duration expireAfterWrite;
+
+    @Bean(destroyMethod = "close")
+    SharedCache<CustomerView> sharedCustomerCache() {
+        return EmbeddedSharedCache.named(name + ".customers", maximumSize, expireAfterWrite);
+    }
+
+    @Bean(destroyMethod = "close")
+    SharedCache<UUID> sharedCustomerIdByEmailCache() {
+        return EmbeddedSharedCache.named(name + ".customer-ids-by-email", maximumSize, expireAfterWrite);
+    }
+
+    @Bean(destroyMethod = "close")
+    InvalidationBus invalidationBus() {
+        return EmbeddedInvalidationBus.named(name);
+    }
+}
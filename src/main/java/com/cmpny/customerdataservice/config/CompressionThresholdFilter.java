@@ -0,0 +1,141 @@
+package com.cmpny.customerdataservice.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Message converters flush the response once the body is written, which commits it before tomcat knows the
+ * content length, so every response would be gzipped regardless of server.compression.min-response-size.
+ * Ignoring those explicit flushes lets small bodies complete inside tomcat's response buffer (sent uncompressed
+ * with a content length), while bodies larger than the buffer are still streamed and compressed as they are written.
+ * Only flushes that would defeat the threshold are ignored: those of a compressible response, for a client that
+ * accepts gzip, before min-response-size has been written. Anything else flushes as usual
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+
+    @Value("${server.compression.enabled:false}")
+    private boolean compressionEnabled;
+
+    @Value("${server.compression.mime-types:text/html,text/xml,text/plain,text/css,text/javascript,application/javascript,application/json,application/xml}")
+    private String[] mimeTypes;
+
+    @Value("${server.compression.min-response-size:2KB}")
+    private DataSize minResponseSize;
+
+    private List<MimeType> compressibleTypes;
+
+    @Override
+    protected void initFilterBean() {
+        compressibleTypes = Arrays.stream(mimeTypes).map(MimeType::valueOf).toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return !compressionEnabled || acceptEncoding == null || !acceptEncoding.contains("gzip");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        filterChain.doFilter(request, new NonFlushingResponse(response));
+    }
+
+    private boolean compressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MimeType type = MimeType.valueOf(contentType);
+            return compressibleTypes.stream().anyMatch(compressibleType -> compressibleType.equalsTypeAndSubtype(type));
+        } catch (InvalidMimeTypeException ex) {
+            return false;
+        }
+    }
+
+    private final class NonFlushingResponse extends HttpServletResponseWrapper {
+
+        private ServletOutputStream outputStream;
+
+        private NonFlushingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new NonFlushingOutputStream(this, super.getOutputStream());
+            }
+            return outputStream;
+        }
+    }
+
+    private final class NonFlushingOutputStream extends ServletOutputStream {
+
+        private final HttpServletResponse response;
+        private final ServletOutputStream delegate;
+        private long written;
+
+        private NonFlushingOutputStream(HttpServletResponse response, ServletOutputStream delegate) {
+            this.response = response;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            written++;
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            written += len;
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // below the threshold the container flushes when the response completes, knowing its length
+            if (written < minResponseSize.toBytes() && compressible(response.getContentType())) {
+                return;
+            }
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
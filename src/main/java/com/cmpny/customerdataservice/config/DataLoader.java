@@ -6,7 +6,9 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.io.InputStream;
@@ -14,23 +16,39 @@ import java.util.List;
 
 /**
  * Utility component to populate some initial data to the database
- * from the resource file data.json
+ * from the resource file data.json. With customerdataservice.data-loader.async the data is
+ * loaded on a background thread, so startup does not wait for it. Disabled with
+ * customerdataservice.data-loader.enabled=false, e.g. for instances sharing an already seeded database
  */
 @Component
+@ConditionalOnProperty(name = "customerdataservice.data-loader.enabled", matchIfMissing = true)
 @Slf4j
 public class DataLoader implements CommandLineRunner {
 
     @Autowired
     private CustomerRepository repository;
 
+    @Value("${customerdataservice.data-loader.async:false}")
+    private boolean async;
+
     @Override
     public void run(String... args) throws Exception {
+        if (async) {
+            Thread loader = new Thread(this::load, "data-loader");
+            loader.setDaemon(true);
+            loader.start();
+        } else {
+            load();
+        }
+    }
+
+    private void load() {
         ObjectMapper objectMapper = new ObjectMapper();
         TypeReference<List<Customer>> typeReference = new TypeReference<>() {};
         InputStream inputStream = TypeReference.class.getResourceAsStream("/data.json");
         try {
             List<Customer> customers = objectMapper.readValue(inputStream,typeReference);
-            customers.forEach(customer -> repository.save(customer));
+            repository.saveAll(customers);
             log.info("Customer data initialized!");
         } catch (Exception ex) {
             log.error("Unable to persist customers", ex);
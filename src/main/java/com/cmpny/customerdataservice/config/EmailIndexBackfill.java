@@ -0,0 +1,138 @@
+package com.cmpny.customerdataservice.config;
+
+import com.cmpny.customerdataservice.model.Customer;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Migration V3, between adding the normalized email column (V2) and constraining it (V4): backfills it for rows
+ * written before it existed with {@link Customer#normalizeEmail(String)}, the same normalization writes use. Walks
+ * the table in primary key order in small batches, each committed on its own, so every statement only holds row
+ * locks briefly and no batch rescans the rows before it. Rows that already have a normalized email are left alone.
+ * Emails used to be unique only as provided, so two customers may differ in case or whitespace alone. Once the
+ * backfill is done such rows are looked for, and the migration fails listing their ids rather than leaving V4 to
+ * fail on its unique constraint. They are not merged here, which of them to keep is for an operator to decide.
+ * Picked up by Flyway as a bean
+ */
+@Component
+@Slf4j
+public class EmailIndexBackfill implements JavaMigration {
+
+    // customers listed by the duplicate check's error, which gets unwieldy beyond that
+    private static final int MAX_REPORTED_DUPLICATES = 100;
+
+    @Value("${customerdataservice.email-backfill.batch-size:1000}")
+    private int batchSize;
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("3");
+    }
+
+    @Override
+    public String getDescription() {
+        return "backfill normalized email address";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement first = connection.prepareStatement(
+                     "SELECT id, email_address FROM customer ORDER BY id LIMIT ?");
+             PreparedStatement next = connection.prepareStatement(
+                     "SELECT id, email_address FROM customer WHERE id > ? ORDER BY id LIMIT ?");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE customer SET normalized_email_address = ? WHERE id = ? AND normalized_email_address IS NULL")) {
+            UUID after = null;
+            long total = 0;
+            int rows;
+            do {
+                rows = 0;
+                PreparedStatement select = after == null ? first : next;
+                if (after != null) {
+                    select.setObject(1, after);
+                }
+                select.setInt(after == null ? 1 : 2, batchSize);
+                try (ResultSet batch = select.executeQuery()) {
+                    while (batch.next()) {
+                        after = batch.getObject(1, UUID.class);
+                        update.setString(1, Customer.normalizeEmail(batch.getString(2)));
+                        update.setObject(2, after);
+                        update.addBatch();
+                        rows++;
+                    }
+                }
+                for (int updated : update.executeBatch()) {
+                    total += Math.max(updated, 0);
+                }
+                connection.commit();
+            } while (rows == batchSize);
+
+            if (total > 0) {
+                log.info("Backfilled normalized email address for {} customers", total);
+            }
+            checkNoDuplicates(connection);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void checkNoDuplicates(Connection connection) throws SQLException {
+        StringJoiner duplicates = new StringJoiner("; ");
+        int reported = 0;
+        try (PreparedStatement select = connection.prepareStatement(
+                     "SELECT normalized_email_address, id FROM customer WHERE normalized_email_address IN ("
+                             + "SELECT normalized_email_address FROM customer GROUP BY normalized_email_address "
+                             + "HAVING COUNT(*) > 1) ORDER BY normalized_email_address, id LIMIT ?")) {
+            select.setInt(1, MAX_REPORTED_DUPLICATES + 1);
+            try (ResultSet rows = select.executeQuery()) {
+                String email = null;
+                StringJoiner ids = new StringJoiner(", ");
+                while (rows.next()) {
+                    if (reported == MAX_REPORTED_DUPLICATES) {
+                        ids.add("...");
+                        break;
+                    }
+                    if (email != null && !email.equals(rows.getString(1))) {
+                        duplicates.add(ids.toString());
+                        ids = new StringJoiner(", ");
+                    }
+                    email = rows.getString(1);
+                    ids.add(rows.getObject(2, UUID.class).toString());
+                    reported++;
+                }
+                if (reported > 0) {
+                    duplicates.add(ids.toString());
+                }
+            }
+        }
+        if (reported > 0) {
+            throw new IllegalStateException("Customers share an email address once normalized, keep one customer of "
+                    + "each group (listed by id, separated by ;) and change or delete the others, then repair and "
+                    + "rerun the migration: " + duplicates);
+        }
+    }
+}
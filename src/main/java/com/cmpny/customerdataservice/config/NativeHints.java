@@ -0,0 +1,52 @@
+package com.cmpny.customerdataservice.config;
+
+import com.cmpny.customerdataservice.controller.SparseFieldsetAdvice;
+import com.cmpny.customerdataservice.export.ExportJob;
+import com.cmpny.customerdataservice.importer.ImportCheckpoint;
+import com.cmpny.customerdataservice.importer.ImportJob;
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerView;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Reflection and resource hints for the native image that the AOT processing cannot infer: the seed data and cache
+ * configuration files, types only ever (de)serialized through an ObjectMapper outside of a controller, the
+ * Jackson mix-in of the sparse fieldset filter, the JCache provider Hibernate looks up by class name and the JDBC
+ * proxies of the DeadlineDataSource
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources()
+                .registerPattern("data.json")
+                .registerPattern("caffeine-jcache.conf")
+                .registerPattern("reference.conf");
+
+        for (Class<?> type : new Class<?>[]{Customer.class, CustomerView.class, ExportJob.class, ImportJob.class,
+                ImportCheckpoint.class}) {
+            hints.reflection().registerType(type, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.DECLARED_FIELDS);
+        }
+
+        hints.reflection().registerType(SparseFieldsetAdvice.FilteredFields.class);
+
+        hints.reflection().registerType(
+                TypeReference.of("com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider"),
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+        hints.proxies()
+                .registerJdkProxy(Connection.class)
+                .registerJdkProxy(Statement.class)
+                .registerJdkProxy(PreparedStatement.class)
+                .registerJdkProxy(CallableStatement.class);
+    }
+}
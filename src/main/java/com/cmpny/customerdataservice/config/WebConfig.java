@@ -0,0 +1,27 @@
+package com.cmpny.customerdataservice.config;
+
+import com.cmpny.customerdataservice.lifecycle.InFlightRequests;
+import com.cmpny.customerdataservice.metrics.RequestStageMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC configuration, registers the application's handler interceptors
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private RequestStageMetrics requestStageMetrics;
+
+    @Autowired
+    private InFlightRequests inFlightRequests;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(inFlightRequests);
+        registry.addInterceptor(requestStageMetrics);
+    }
+}
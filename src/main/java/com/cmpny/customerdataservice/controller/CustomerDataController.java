@@ -3,18 +3,28 @@ package com.cmpny.customerdataservice.controller;
 import com.cmpny.customerdataservice.exception.CustomerDataNotFoundException;
 import com.cmpny.customerdataservice.exception.CustomerDataServiceException;
 import com.cmpny.customerdataservice.exception.CustomerEmailExistsException;
+import com.cmpny.customerdataservice.hotkey.HotKeyCategory;
+import com.cmpny.customerdataservice.hotkey.HotKeys;
+import com.cmpny.customerdataservice.metrics.RequestStage;
+import com.cmpny.customerdataservice.metrics.RequestStages;
 import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerQuery;
+import com.cmpny.customerdataservice.model.CustomerVersionView;
+import com.cmpny.customerdataservice.model.CustomerView;
 import com.cmpny.customerdataservice.service.CustomerDataService;
 import com.cmpny.customerdataservice.validator.CustomerRequestValidator;
-import io.micrometer.core.annotation.Counted;
-import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -28,30 +38,77 @@ public class CustomerDataController {
     @Autowired
     private CustomerDataService customerDataService;
 
+    // recorded here rather than in the service, so only client requests count and not e.g. the warm-up lookups
+    @Autowired
+    private HotKeys hotKeys;
+
+    @Value("${customerdataservice.delete.max-ids:100000}")
+    private int maxDeleteIds;
+
+    @Value("${customerdataservice.search.default-limit:100}")
+    private int defaultSearchLimit;
+
+    @Value("${customerdataservice.search.max-limit:1000}")
+    private int maxSearchLimit;
+
     /**
      * GET customer information based on customer ID
      * @param customerId customer id to look up customer information
+     * @param fields optional sparse fieldset (e.g. id,emailAddress), applied by {@link SparseFieldsetAdvice}
+     * @param asOf optional ISO-8601 instant, returns the customer as it was then from the customer history
      * @return customer data if found
      */
-    @Timed("GET.customer.byId")
-    @Counted("GET.customer.byId")
     @GetMapping("/customer")
-    public Customer getCustomer(@RequestParam(value = "id") UUID customerId) {
-            return customerDataService.findCustomerById(customerId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer Not Found"));
+    public CustomerView getCustomer(@RequestParam(value = "id") UUID customerId,
+                                    @RequestParam(value = "fields", required = false) Set<String> fields,
+                                    @RequestParam(value = "asOf", required = false) Instant asOf) {
+        try {
+            RequestStages.run(RequestStage.VALIDATION, () -> CustomerRequestValidator.validateFields(fields));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid fields provided");
+        }
+        if (asOf == null) {
+            hotKeys.record(HotKeyCategory.CUSTOMER_ID, customerId);
+        }
+        return RequestStages.time(RequestStage.DB, () -> asOf == null
+                        ? customerDataService.findCustomerById(customerId)
+                        : customerDataService.findCustomerAsOf(customerId, asOf))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer Not Found"));
+    }
+
+    /**
+     * GET the history of a customer, one version per create, update and delete
+     * @param customerId customer id to look up the history of
+     * @return versions of the customer, oldest first
+     */
+    @GetMapping("/customer/history")
+    public List<CustomerVersionView> getCustomerHistory(@RequestParam(value = "id") UUID customerId) {
+        List<CustomerVersionView> history = RequestStages.time(RequestStage.DB,
+                () -> customerDataService.findCustomerHistory(customerId));
+        if (history.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer History Not Found");
+        }
+        return history;
     }
 
     /**
      * GET customer information based on customer's email address
      * @param email customer email to look up customer information
+     * @param fields optional sparse fieldset (e.g. id,emailAddress), applied by {@link SparseFieldsetAdvice}
      * @return customer data if found
      */
-    @Timed("GET.customer.byEmail")
-    @Counted("GET.customer.byEmail")
     @GetMapping("/customerByEmail")
-    public Customer getCustomerByEmail(@RequestParam(value = "email") String email) {
+    public CustomerView getCustomerByEmail(@RequestParam(value = "email") String email,
+                                           @RequestParam(value = "fields", required = false) Set<String> fields) {
         try {
-            CustomerRequestValidator.validateCustomerEmail(email);
-            return customerDataService.findCustomerByEmail(email).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer Not Found"));
+            RequestStages.run(RequestStage.VALIDATION, () -> CustomerRequestValidator.validateFields(fields));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid fields provided");
+        }
+        try {
+            RequestStages.run(RequestStage.VALIDATION, () -> CustomerRequestValidator.validateCustomerEmail(email));
+            hotKeys.record(HotKeyCategory.EMAIL, Customer.normalizeEmail(email));
+            return RequestStages.time(RequestStage.DB, () -> customerDataService.findCustomerByEmail(email)).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer Not Found"));
         } catch (IllegalArgumentException ex) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid email provided");
         }
@@ -59,14 +116,54 @@ public class CustomerDataController {
 
     /**
      * GET all available customer information [most probably use would be to get data dump or perform high level data
-     * debugging]
-     * @return list of current customers
+     * debugging], or search customers when any of the filter, sort or limit parameters is given. Searches are served
+     * by an index: equality filters on lastName (and firstName) or phoneNumber (and lastName, firstName), sorted by
+     * the index columns that follow, e.g. ?lastName=Smith&sort=firstName or ?sort=lastName,firstName&limit=50.
+     * Other combinations are rejected with 400
+     * @param fields optional sparse fieldset (e.g. id,emailAddress), only these columns are selected from the database
+     * @param lastName optional last name to filter by
+     * @param firstName optional first name to filter by
+     * @param phoneNumber optional phone number to filter by
+     * @param sort optional fields to sort by, ascending
+     * @param limit optional maximum number of customers returned by a search
+     * @return list of current customers, or those matching the search
      */
-    @Timed("GET.customers")
-    @Counted("GET.customers")
     @GetMapping("/customers")
-    public List<Customer> getCustomers() {
-        return customerDataService.fetchCustomerList();
+    public List<CustomerView> getCustomers(@RequestParam(value = "fields", required = false) Set<String> fields,
+                                           @RequestParam(value = "lastName", required = false) String lastName,
+                                           @RequestParam(value = "firstName", required = false) String firstName,
+                                           @RequestParam(value = "phoneNumber", required = false) String phoneNumber,
+                                           @RequestParam(value = "sort", required = false) List<String> sort,
+                                           @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            RequestStages.run(RequestStage.VALIDATION, () -> CustomerRequestValidator.validateFields(fields));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid fields provided");
+        }
+        Set<String> selected = fields == null ? Set.of() : fields;
+        if (lastName == null && firstName == null && phoneNumber == null && sort == null && limit == null) {
+            return RequestStages.time(RequestStage.DB, () -> customerDataService.fetchCustomerList(selected));
+        }
+
+        Map<String, String> filters = new LinkedHashMap<>();
+        if (lastName != null) {
+            filters.put("lastName", lastName);
+        }
+        if (firstName != null) {
+            filters.put("firstName", firstName);
+        }
+        if (phoneNumber != null) {
+            filters.put("phoneNumber", phoneNumber);
+        }
+        CustomerQuery query = new CustomerQuery(filters, sort == null ? List.of() : sort,
+                limit == null ? defaultSearchLimit : limit);
+        try {
+            RequestStages.run(RequestStage.VALIDATION, () -> CustomerRequestValidator.validateCustomerQuery(
+                    query.filters(), query.sort(), query.limit(), maxSearchLimit));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        return RequestStages.time(RequestStage.DB, () -> customerDataService.findCustomers(query, selected));
     }
 
     /**
@@ -79,14 +176,13 @@ public class CustomerDataController {
      * @param customer customer object to be updated
      * @return updated customer object
      */
-    @Timed("POST.customer")
-    @Counted("POST.customer")
     @PostMapping("/customer")
     @ResponseStatus(HttpStatus.OK)
     public Customer updateCustomer(@RequestBody Customer customer) {
         try {
-            CustomerRequestValidator.validateCustomer(customer, false);
-           return customerDataService.updateCustomer(customer);
+            RequestStages.run(RequestStage.VALIDATION, () -> CustomerRequestValidator.validateCustomer(customer, false));
+            hotKeys.record(HotKeyCategory.UPDATE, customer.getId());
+           return RequestStages.time(RequestStage.DB, () -> customerDataService.updateCustomer(customer));
         } catch (IllegalArgumentException ex) {
             log.error("Invalid arguments provided to update operation", ex);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid arguments provided");
@@ -110,14 +206,12 @@ public class CustomerDataController {
      * account]
      * @param customer new customer information to be created in database
      */
-    @Timed("PUT.customer")
-    @Counted("PUT.customer")
     @PutMapping("/customer")
     @ResponseStatus(HttpStatus.OK)
     public void createCustomer(@RequestBody Customer customer) {
         try {
-            CustomerRequestValidator.validateCustomer(customer, true);
-            customerDataService.saveCustomer(customer);
+            RequestStages.run(RequestStage.VALIDATION, () -> CustomerRequestValidator.validateCustomer(customer, true));
+            RequestStages.run(RequestStage.DB, () -> customerDataService.saveCustomer(customer));
         } catch (IllegalArgumentException ex) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid arguments provided");
         } catch (CustomerEmailExistsException ex) {
@@ -134,12 +228,28 @@ public class CustomerDataController {
      * [typically used in some kind of account deletion workflow]
      * @param customerId
      */
-    @Timed("DELETE.customer")
-    @Counted("DELETE.customer")
     @DeleteMapping("/customer")
     @ResponseStatus(HttpStatus.OK)
     public void deleteCustomer(@RequestParam(value = "id") UUID customerId) {
-            customerDataService.deleteCustomerById(customerId);
+            RequestStages.run(RequestStage.DB, () -> customerDataService.deleteCustomerById(customerId));
+    }
+
+    /**
+     * DELETE - used to delete customers in bulk by customer ID, all or none of them are deleted
+     * [typically used by account purge jobs]
+     * @param customerIds JSON array of customer ids, ids that do not exist are ignored
+     * @return number of customers deleted
+     */
+    @DeleteMapping("/customers")
+    @ResponseStatus(HttpStatus.OK)
+    public int deleteCustomers(@RequestBody List<UUID> customerIds) {
+        try {
+            RequestStages.run(RequestStage.VALIDATION,
+                    () -> CustomerRequestValidator.validateCustomerIds(customerIds, maxDeleteIds));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid customer ids provided");
+        }
+        return RequestStages.time(RequestStage.DB, () -> customerDataService.deleteCustomersById(customerIds));
     }
 
 }
@@ -0,0 +1,106 @@
+package com.cmpny.customerdataservice.controller;
+
+import com.cmpny.customerdataservice.exception.ExportCapacityExceededException;
+import com.cmpny.customerdataservice.export.CustomerExportService;
+import com.cmpny.customerdataservice.export.ExportFormat;
+import com.cmpny.customerdataservice.export.ExportJob;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.Globals;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * REST controller for asynchronous customer exports, the alternative to GET /customers for full table dumps
+ */
+@Slf4j
+@RestController
+@RequestMapping("/customers/exports")
+public class CustomerExportController {
+
+    @Autowired
+    private CustomerExportService exportService;
+
+    /**
+     * POST - starts a background export of all customers
+     * @param format ndjson (default) or csv, both gzip compressed
+     * @return 202 with the export status, the Location header points at the status endpoint
+     */
+    @PostMapping
+    public ResponseEntity<ExportJob> startExport(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.from(format);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid export format");
+        }
+
+        try {
+            ExportJob job = exportService.startExport(exportFormat);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/customers/exports/" + job.getId()))
+                    .body(job);
+        } catch (ExportCapacityExceededException ex) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many exports in progress");
+        }
+    }
+
+    /**
+     * GET status and progress of an export
+     * @param id export id
+     * @return export status
+     */
+    @GetMapping("/{id}")
+    public ExportJob getExport(@PathVariable("id") UUID id) {
+        return exportService.findExport(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Export Not Found"));
+    }
+
+    /**
+     * GET the file of a completed export. Tomcat sends it with sendfile when the connector supports it, otherwise
+     * it is copied with {@link FileChannel#transferTo}, in both cases the file is never read onto the heap
+     * @param id export id
+     */
+    @GetMapping("/{id}/file")
+    public void downloadExport(@PathVariable("id") UUID id, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        ExportJob job = getExport(id);
+        if (job.getStatus() != ExportJob.Status.COMPLETED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Export not completed");
+        }
+
+        try (FileChannel file = FileChannel.open(job.getFile(), StandardOpenOption.READ)) {
+            long size = file.size();
+            response.setContentType("application/gzip");
+            response.setContentLengthLong(size);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"customers-" + id + "." + job.getFormat().fileExtension() + "\"");
+
+            if (Boolean.TRUE.equals(request.getAttribute(Globals.SENDFILE_SUPPORTED_ATTR))) {
+                request.setAttribute(Globals.SENDFILE_FILENAME_ATTR, job.getFile().toAbsolutePath().toString());
+                request.setAttribute(Globals.SENDFILE_FILE_START_ATTR, 0L);
+                request.setAttribute(Globals.SENDFILE_FILE_END_ATTR, size);
+                return;
+            }
+
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += file.transferTo(position, size - position, out);
+            }
+        }
+    }
+}
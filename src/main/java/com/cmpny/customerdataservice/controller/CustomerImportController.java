@@ -0,0 +1,58 @@
+package com.cmpny.customerdataservice.controller;
+
+import com.cmpny.customerdataservice.exception.ImportCapacityExceededException;
+import com.cmpny.customerdataservice.importer.CustomerImportService;
+import com.cmpny.customerdataservice.importer.ImportJob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * REST controller for bulk customer imports from files placed in the import directory
+ */
+@Slf4j
+@RestController
+@RequestMapping("/customers/imports")
+public class CustomerImportController {
+
+    @Autowired
+    private CustomerImportService importService;
+
+    /**
+     * POST - starts (or resumes) a background import of a file in the import directory
+     * @param file name of the file relative to the import directory
+     * @return 202 with the import status, the Location header points at the status endpoint
+     */
+    @PostMapping
+    public ResponseEntity<ImportJob> startImport(@RequestParam(value = "file") String file) {
+        try {
+            ImportJob job = importService.startImport(file);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/customers/imports/" + job.getId()))
+                    .body(job);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid import file provided");
+        } catch (IllegalStateException ex) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Import already running for file");
+        } catch (ImportCapacityExceededException ex) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many imports in progress");
+        }
+    }
+
+    /**
+     * GET status and progress of an import
+     * @param id import id
+     * @return import status, including the rows processed per second
+     */
+    @GetMapping("/{id}")
+    public ImportJob getImport(@PathVariable("id") UUID id) {
+        return importService.findImport(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Import Not Found"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.cmpny.customerdataservice.controller;
+
+import com.cmpny.customerdataservice.model.CustomerView;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Applies the optional "fields" request parameter (e.g. ?fields=id,emailAddress, or the parameter repeated) to
+ * customer views returned by {@link CustomerDataController}, so only the requested fields are serialized. The views
+ * are written as they are, through a Jackson property filter, instead of being copied into a tree per row
+ */
+@ControllerAdvice(assignableTypes = CustomerDataController.class)
+public class SparseFieldsetAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    private static final String FIELDS_PARAMETER = "fields";
+    private static final String FILTER_ID = "customerFields";
+
+    /**
+     * Puts customer views behind the sparse fieldset filter, which writes every field unless a request picks some
+     */
+    @JsonFilter(FILTER_ID)
+    public interface FilteredFields {
+    }
+
+    /**
+     * Registers the sparse fieldset filter with the mappers the message converters are built from
+     * @param builder builder of the application's object mappers
+     */
+    public static void configure(Jackson2ObjectMapperBuilder builder) {
+        builder.mixIn(CustomerView.class, FilteredFields.class)
+                .filters(new SimpleFilterProvider().addFilter(FILTER_ID, SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        if (!super.supports(returnType, converterType)) {
+            return false;
+        }
+        Class<?> type = returnType.getParameterType();
+        return CustomerView.class.isAssignableFrom(type) || (List.class.isAssignableFrom(type)
+                && ResolvableType.forMethodParameter(returnType).asCollection().resolveGeneric(0) == CustomerView.class);
+    }
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return;
+        }
+        String[] fieldsParameters = servletRequest.getServletRequest().getParameterValues(FIELDS_PARAMETER);
+        if (fieldsParameters == null) {
+            return;
+        }
+
+        Set<String> fields = Arrays.stream(fieldsParameters)
+                .flatMap(fieldsParameter -> Arrays.stream(fieldsParameter.split(",")))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+        if (!fields.isEmpty()) {
+            bodyContainer.setFilters(new SimpleFilterProvider()
+                    .addFilter(FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.cmpny.customerdataservice.deadline;
+
+/**
+ * Work that was skipped or cut short because the request's deadline had passed, published by {@link DeadlineFilter}
+ * as customerdataservice.deadline.work.avoided
+ */
+public enum AvoidedWork {
+    /** the deadline had passed when the request arrived, it was answered without calling the controller */
+    REQUEST("request"),
+    /** a service call was not started */
+    SERVICE("service"),
+    /** no connection was taken from the pool */
+    CONNECTION("connection"),
+    /** a statement was not executed */
+    STATEMENT("statement"),
+    /** a running statement was cancelled */
+    CANCELLED_STATEMENT("cancelledStatement");
+
+    private final String tagValue;
+
+    AvoidedWork(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+}
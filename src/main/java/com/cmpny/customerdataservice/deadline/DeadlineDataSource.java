@@ -0,0 +1,131 @@
+package com.cmpny.customerdataservice.deadline;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the current {@link RequestDeadline} to JDBC: no connection is taken from the pool and no statement is
+ * executed once the deadline has passed, every statement executed gets the time left as its query timeout, and the
+ * statements of a request are registered with its deadline while open so they can be cancelled when it passes.
+ * Connections taken without a current deadline are passed through unchanged
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    public DeadlineDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        RequestDeadline deadline = checkConnection();
+        return wrap(super.getConnection(), deadline);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        RequestDeadline deadline = checkConnection();
+        return wrap(super.getConnection(username, password), deadline);
+    }
+
+    private static RequestDeadline checkConnection() throws SQLException {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            deadline.avoided(AvoidedWork.CONNECTION);
+            deadline.timedOut();
+            throw new SQLTimeoutException("Request deadline exceeded before a connection was taken");
+        }
+        return deadline;
+    }
+
+    private static Connection wrap(Connection connection, RequestDeadline deadline) {
+        if (deadline == null) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection, deadline));
+    }
+
+    private record ConnectionHandler(Connection connection, RequestDeadline deadline) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return invokeIdentity(proxy, method, args);
+            }
+            Object result = invokeTarget(connection, method, args);
+            if (!(result instanceof Statement statement)) {
+                return result;
+            }
+            Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                    : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            deadline.register(statement);
+            return Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(statement, deadline));
+        }
+    }
+
+    private record StatementHandler(Statement statement, RequestDeadline deadline) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return invokeIdentity(proxy, method, args);
+            }
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                long remainingNanos = deadline.remainingNanos();
+                if (deadline.isExpired()) {
+                    deadline.avoided(AvoidedWork.STATEMENT);
+                    deadline.timedOut();
+                    throw new SQLTimeoutException("Request deadline exceeded before the statement was executed");
+                }
+                // whole seconds only, the cancellation at the deadline is what cuts a statement short
+                int remainingSeconds = (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remainingNanos
+                        + TimeUnit.SECONDS.toNanos(1) - 1));
+                int queryTimeout = statement.getQueryTimeout();
+                if (queryTimeout == 0 || remainingSeconds < queryTimeout) {
+                    statement.setQueryTimeout(remainingSeconds);
+                }
+                try {
+                    return invokeTarget(statement, method, args);
+                } catch (SQLTimeoutException ex) {
+                    deadline.timedOut();
+                    throw ex;
+                }
+            } else if (name.equals("close")) {
+                deadline.unregister(statement);
+            }
+            return invokeTarget(statement, method, args);
+        }
+    }
+
+    // proxies are kept in hash maps by hibernate, they are only equal to themselves
+    private static boolean isIdentityMethod(Method method) {
+        return (method.getName().equals("equals") && method.getParameterCount() == 1)
+                || (method.getName().equals("hashCode") && method.getParameterCount() == 0);
+    }
+
+    private static Object invokeIdentity(Object proxy, Method method, Object[] args) {
+        return method.getName().equals("equals") ? proxy == args[0] : System.identityHashCode(proxy);
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+}
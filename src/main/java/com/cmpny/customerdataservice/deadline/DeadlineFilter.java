@@ -0,0 +1,145 @@
+package com.cmpny.customerdataservice.deadline;
+
+import com.cmpny.customerdataservice.ratelimit.RequestPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every request a deadline: the X-Request-Timeout header (milliseconds) if the client sends one, capped at
+ * the default of the request's {@link RequestPriority}, which is also used when there is no header. The deadline is
+ * carried on a {@link RequestDeadline} through the service down to JDBC, and a watchdog cancels the request's
+ * running statements the moment it passes, rather than letting the database finish work for a response nobody
+ * waits for. The servlet API does not tell a request thread blocked in JDBC that its client went away, so clients
+ * are expected to send their own timeout, which makes the deadline pass when they give up.
+ * Publishes customerdataservice.deadline.requests (tagged outcome met or exceeded) and
+ * customerdataservice.deadline.work.avoided (tagged with the {@link AvoidedWork})
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 3)
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    @Value("${customerdataservice.deadline.enabled:true}")
+    private boolean enabled;
+
+    @Value("${customerdataservice.deadline.critical:PT2S}")
+    private Duration criticalTimeout;
+
+    @Value("${customerdataservice.deadline.normal:PT5S}")
+    private Duration normalTimeout;
+
+    @Value("${customerdataservice.deadline.bulk:PT30S}")
+    private Duration bulkTimeout;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ScheduledThreadPoolExecutor watchdog;
+    private Counter met;
+    private Counter exceeded;
+    private final Counter[] avoided = new Counter[AvoidedWork.values().length];
+
+    @Override
+    protected void initFilterBean() {
+        watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "deadline-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // most requests complete well before their deadline, their cancellations should not pile up in the queue
+        watchdog.setRemoveOnCancelPolicy(true);
+
+        met = requests("met");
+        exceeded = requests("exceeded");
+        for (AvoidedWork work : AvoidedWork.values()) {
+            avoided[work.ordinal()] = Counter.builder("customerdataservice.deadline.work.avoided")
+                    .description("Work skipped or cut short because the request deadline had passed")
+                    .tag("work", work.tagValue())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+    }
+
+    private Counter requests(String outcome) {
+        return Counter.builder("customerdataservice.deadline.requests")
+                .description("Requests by whether they completed within their deadline")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || request.getRequestURI().startsWith(request.getContextPath() + "/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long timeoutNanos = timeoutNanos(request);
+        if (timeoutNanos <= 0) {
+            avoided[AvoidedWork.REQUEST.ordinal()].increment();
+            exceeded.increment();
+            response.setStatus(HttpStatus.GATEWAY_TIMEOUT.value());
+            return;
+        }
+
+        RequestDeadline deadline = new RequestDeadline(System.nanoTime() + timeoutNanos);
+        ScheduledFuture<?> cancellation = watchdog.schedule(deadline::cancel, timeoutNanos, TimeUnit.NANOSECONDS);
+        RequestDeadline.begin(deadline);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.end();
+            cancellation.cancel(false);
+            (deadline.isExpired() ? exceeded : met).increment();
+            for (AvoidedWork work : AvoidedWork.values()) {
+                int count = deadline.avoidedCount(work);
+                if (count > 0) {
+                    avoided[work.ordinal()].increment(count);
+                }
+            }
+        }
+    }
+
+    private long timeoutNanos(HttpServletRequest request) {
+        Duration timeout = switch (RequestPriority.of(request)) {
+            case CRITICAL -> criticalTimeout;
+            case NORMAL -> normalTimeout;
+            case BULK -> bulkTimeout;
+        };
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header != null) {
+            try {
+                return Math.min(TimeUnit.MILLISECONDS.toNanos(Long.parseLong(header.trim())), timeout.toNanos());
+            } catch (NumberFormatException ex) {
+                log.debug("Ignoring invalid {} header {}", TIMEOUT_HEADER, header);
+            }
+        }
+        return timeout.toNanos();
+    }
+}
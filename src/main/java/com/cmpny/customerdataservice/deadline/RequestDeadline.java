@@ -0,0 +1,171 @@
+package com.cmpny.customerdataservice.deadline;
+
+import com.cmpny.customerdataservice.exception.DeadlineExceededException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+
+/**
+ * Deadline of the current request, kept on a thread local from the time {@link DeadlineFilter} accepts the request
+ * until it completes. The service checks it before starting work, {@link DeadlineDataSource} turns the time left
+ * into JDBC query timeouts and registers the statements it creates, so they can be cancelled as soon as the deadline
+ * passes. Outside of a request there is no deadline and the work just runs
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    private final AtomicIntegerArray avoided = new AtomicIntegerArray(AvoidedWork.values().length);
+    private volatile boolean cancelled;
+    private volatile boolean timedOut;
+
+    RequestDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @return deadline of the current request, null outside of a request
+     */
+    public static RequestDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs a service call under the current deadline: it is not started once the deadline has passed, and when it
+     * fails after the deadline passed because its statements timed out or were cancelled, the failure is reported as
+     * a {@link DeadlineExceededException}. Any other failure, such as a customer that was not found, is kept
+     * @param work service call
+     * @return result of the work
+     * @throws DeadlineExceededException if the deadline passed before or while the work ran
+     */
+    public static <T> T call(Supplier<T> work) {
+        RequestDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return work.get();
+        }
+        deadline.check(AvoidedWork.SERVICE);
+        try {
+            return work.get();
+        } catch (DeadlineExceededException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (deadline.isExpired() && (deadline.timedOut || isTimeout(ex))) {
+                throw new DeadlineExceededException(ex);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * {@link #call(Supplier)} for service calls that do not produce a value
+     */
+    public static void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return whether the failure was caused by a statement that timed out or was cancelled, as reported by the
+     * driver or translated by hibernate or spring. The pool discards a connection whose statement timed out, so the
+     * rollback that follows can fail and replace the timeout, {@link #timedOut()} covers that case
+     */
+    private static boolean isTimeout(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTimeoutException
+                    || cause instanceof jakarta.persistence.QueryTimeoutException
+                    || cause instanceof QueryTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void begin(RequestDeadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return nanoseconds left until the deadline, zero or less once it has passed
+     */
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return cancelled || remainingNanos() <= 0;
+    }
+
+    /**
+     * Throws if the deadline has passed, counting the work that is skipped because of it
+     * @param work work about to be started
+     * @throws DeadlineExceededException if the deadline has passed
+     */
+    void check(AvoidedWork work) {
+        if (isExpired()) {
+            avoided.incrementAndGet(work.ordinal());
+            throw new DeadlineExceededException();
+        }
+    }
+
+    /**
+     * Records that a statement or connection of the request failed because of the deadline
+     */
+    void timedOut() {
+        timedOut = true;
+    }
+
+    void avoided(AvoidedWork work) {
+        avoided.incrementAndGet(work.ordinal());
+    }
+
+    int avoidedCount(AvoidedWork work) {
+        return avoided.get(work.ordinal());
+    }
+
+    void register(Statement statement) {
+        statements.add(statement);
+        // cancelled between creating the statement and registering it
+        if (cancelled && statements.remove(statement)) {
+            cancel(statement);
+        }
+    }
+
+    void unregister(Statement statement) {
+        statements.remove(statement);
+    }
+
+    /**
+     * Called once the deadline has passed, cancels the statements still running for the request
+     */
+    void cancel() {
+        cancelled = true;
+        for (Statement statement : statements) {
+            if (statements.remove(statement)) {
+                cancel(statement);
+            }
+        }
+    }
+
+    private void cancel(Statement statement) {
+        try {
+            statement.cancel();
+            avoided.incrementAndGet(AvoidedWork.CANCELLED_STATEMENT.ordinal());
+        } catch (SQLException ex) {
+            // completed and closed meanwhile
+        }
+    }
+}
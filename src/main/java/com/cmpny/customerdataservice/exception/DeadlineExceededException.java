@@ -0,0 +1,19 @@
+package com.cmpny.customerdataservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Used to indicate that the request's deadline passed before its work completed, the client has given up on the
+ * response by then
+ */
+@ResponseStatus(value = HttpStatus.GATEWAY_TIMEOUT, reason = "Request deadline exceeded")
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException() {
+    }
+
+    public DeadlineExceededException(Throwable cause) {
+        super(cause);
+    }
+}
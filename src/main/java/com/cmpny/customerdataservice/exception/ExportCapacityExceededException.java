@@ -0,0 +1,7 @@
+package com.cmpny.customerdataservice.exception;
+
+/**
+ * Used to indicate that no more export jobs can be accepted until running ones complete
+ */
+public class ExportCapacityExceededException extends RuntimeException {
+}
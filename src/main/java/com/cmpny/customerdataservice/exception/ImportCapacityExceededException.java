@@ -0,0 +1,7 @@
+package com.cmpny.customerdataservice.exception;
+
+/**
+ * Used to indicate that no more import jobs can be accepted until running ones complete
+ */
+public class ImportCapacityExceededException extends RuntimeException {
+}
@@ -0,0 +1,263 @@
+package com.cmpny.customerdataservice.export;
+
+import com.cmpny.customerdataservice.exception.ExportCapacityExceededException;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import com.cmpny.customerdataservice.model.CustomerView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes snapshots of the customer table to gzip compressed files in the background, so a full dump no longer
+ * holds an HTTP connection and a single long read open. The table is walked with a keyset cursor one page at a
+ * time and each page is written straight to the file, memory use does not grow with the table.
+ *
+ * At most max-concurrent exports run at once with max-queued waiting, further requests are refused. Finished
+ * files are kept for the retention period, and removed every cleanup-interval along with any export file in the
+ * directory that belongs to no job, such as those left by an earlier run. Those are only removed once older than the
+ * retention, so files of another instance sharing the directory are left alone
+ */
+@Slf4j
+@Service
+public class CustomerExportService {
+
+    private static final String CSV_HEADER = String.join(",", CustomerView.FIELDS) + "\n";
+    // <job id>.<format extension>, with .part while it is written
+    private static final Pattern EXPORT_FILE = Pattern.compile(
+            "([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})\\.(?:ndjson|csv)\\.gz(?:\\.part)?");
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${customerdataservice.export.directory:${java.io.tmpdir}/customer-exports}")
+    private Path directory;
+
+    @Value("${customerdataservice.export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${customerdataservice.export.max-queued:4}")
+    private int maxQueued;
+
+    @Value("${customerdataservice.export.page-size:1000}")
+    private int pageSize;
+
+    @Value("${customerdataservice.export.retention:PT1H}")
+    private Duration retention;
+
+    @Value("${customerdataservice.export.cleanup-interval:PT5M}")
+    private Duration cleanupInterval;
+
+    private final Map<UUID, ExportJob> jobs = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+    private ScheduledExecutorService cleanup;
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(directory);
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxQueued),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "customer-export-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        cleanup = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-export-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the first run sweeps what an earlier run left behind
+        cleanup.scheduleWithFixedDelay(this::cleanUp, 0, cleanupInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        cleanup.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a new export of all customers
+     * @param format file format to write
+     * @return the queued job
+     * @throws ExportCapacityExceededException if too many exports are already running or queued
+     */
+    public ExportJob startExport(ExportFormat format) {
+        UUID id = UUID.randomUUID();
+        ExportJob job = new ExportJob(id, format, directory.resolve(id + "." + format.fileExtension()));
+        jobs.put(id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(id);
+            throw new ExportCapacityExceededException();
+        }
+        return job;
+    }
+
+    public Optional<ExportJob> findExport(UUID id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void run(ExportJob job) {
+        job.running();
+        long start = System.nanoTime();
+        Path partFile = job.getFile().resolveSibling(job.getFile().getFileName() + ".part");
+        try {
+            long rows;
+            try (OutputStream out = new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(partFile), 64 * 1024), 64 * 1024)) {
+                rows = write(job, out);
+            }
+            Files.move(partFile, job.getFile(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            job.completed(Files.size(job.getFile()));
+
+            double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+            log.info("Export {} wrote {} customers ({} bytes) in {}s, {} rows/s", job.getId(), rows,
+                    job.getBytesWritten(), String.format("%.1f", seconds), (long) (rows / seconds));
+        } catch (Exception ex) {
+            log.error("Export {} failed", job.getId(), ex);
+            job.failed("Export failed");
+            deleteQuietly(partFile);
+        }
+    }
+
+    private long write(ExportJob job, OutputStream out) throws IOException {
+        if (job.getFormat() == ExportFormat.CSV) {
+            out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+
+        long rows = 0;
+        UUID after = null;
+        List<CustomerView> page;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IOException("Export interrupted");
+            }
+            page = customerRepository.findViewPageAfter(after, pageSize);
+            for (CustomerView view : page) {
+                if (job.getFormat() == ExportFormat.CSV) {
+                    writeCsv(view, out);
+                } else {
+                    out.write(objectMapper.writeValueAsBytes(view));
+                    out.write('\n');
+                }
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).id();
+                rows += page.size();
+                job.progress(rows);
+            }
+        } while (page.size() == pageSize);
+        return rows;
+    }
+
+    private static void writeCsv(CustomerView view, OutputStream out) throws IOException {
+        StringBuilder line = new StringBuilder(128);
+        line.append(view.id()).append(',');
+        appendCsv(line, view.firstName()).append(',');
+        appendCsv(line, view.middleName()).append(',');
+        appendCsv(line, view.lastName()).append(',');
+        appendCsv(line, view.emailAddress()).append(',');
+        appendCsv(line, view.phoneNumber()).append('\n');
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * Removes the files of exports past their retention, and export files older than the retention that belong to
+     * no export. Runs every cleanup-interval, starting when the service starts
+     */
+    public void cleanUp() {
+        try {
+            Instant cutoff = Instant.now().minus(retention);
+            jobs.values().removeIf(job -> {
+                boolean expired = job.getCompletedAt() != null && job.getCompletedAt().isBefore(cutoff);
+                if (expired) {
+                    deleteQuietly(job.getFile());
+                }
+                return expired;
+            });
+            removeOrphans(cutoff);
+        } catch (RuntimeException ex) {
+            log.warn("Export cleanup failed", ex);
+        }
+    }
+
+    private void removeOrphans(Instant cutoff) {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> {
+                        Matcher name = EXPORT_FILE.matcher(file.getFileName().toString());
+                        return name.matches() && !jobs.containsKey(UUID.fromString(name.group(1)))
+                                && modifiedBefore(file, cutoff);
+                    })
+                    .forEach(file -> {
+                        log.info("Removing export file {} of no known export", file);
+                        deleteQuietly(file);
+                    });
+        } catch (IOException ex) {
+            log.warn("Could not list export directory {}", directory, ex);
+        }
+    }
+
+    private static boolean modifiedBefore(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException ex) {
+            // already gone
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Could not delete export file {}", file, ex);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.cmpny.customerdataservice.export;
+
+import java.util.Locale;
+
+/**
+ * File formats a customer export can be written in, both gzip compressed
+ */
+public enum ExportFormat {
+    NDJSON("ndjson.gz"),
+    CSV("csv.gz");
+
+    private final String fileExtension;
+
+    ExportFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String fileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * @param value format name, case insensitive
+     * @return matching format
+     * @throws IllegalArgumentException if the format is not supported
+     */
+    public static ExportFormat from(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,92 @@
+package com.cmpny.customerdataservice.export;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * State of a single export, updated by the thread running it and read by status requests
+ */
+public class ExportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final UUID id;
+    private final ExportFormat format;
+    private final Instant createdAt;
+    private final Path file;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long rowsWritten;
+    private volatile long bytesWritten;
+    private volatile Instant completedAt;
+    private volatile String error;
+
+    ExportJob(UUID id, ExportFormat format, Path file) {
+        this.id = id;
+        this.format = format;
+        this.file = file;
+        this.createdAt = Instant.now();
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @JsonIgnore
+    public Path getFile() {
+        return file;
+    }
+
+    void running() {
+        status = Status.RUNNING;
+    }
+
+    void progress(long rows) {
+        rowsWritten = rows;
+    }
+
+    void completed(long bytes) {
+        bytesWritten = bytes;
+        completedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    void failed(String message) {
+        error = message;
+        completedAt = Instant.now();
+        status = Status.FAILED;
+    }
+}
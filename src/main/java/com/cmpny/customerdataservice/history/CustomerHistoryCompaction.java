@@ -0,0 +1,107 @@
+package com.cmpny.customerdataservice.history;
+
+import com.cmpny.customerdataservice.model.CustomerChange;
+import com.cmpny.customerdataservice.model.CustomerHistoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compacts the customer history in the background: every interval it removes the versions that were superseded
+ * more than the retention ago, keeping for each customer the version in effect at that point, and drops customers
+ * deleted before it altogether. Runs in small batches, each in its own transaction, so it never holds many row
+ * locks while the service keeps writing versions. Publishes customerdataservice.history.compacted
+ */
+@Slf4j
+@Component
+public class CustomerHistoryCompaction {
+
+    private final CustomerHistoryRepository historyRepository;
+    private final Duration retention;
+    private final int batchSize;
+    private final Counter compacted;
+    private final ScheduledExecutorService compaction;
+
+    @Autowired
+    public CustomerHistoryCompaction(CustomerHistoryRepository historyRepository,
+                                     @Value("${customerdataservice.history.enabled:true}") boolean enabled,
+                                     @Value("${customerdataservice.history.retention:P2555D}") Duration retention,
+                                     @Value("${customerdataservice.history.compaction.interval:PT1H}") Duration interval,
+                                     @Value("${customerdataservice.history.compaction.batch-size:1000}") int batchSize,
+                                     MeterRegistry meterRegistry) {
+        this.historyRepository = historyRepository;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        compacted = Counter.builder("customerdataservice.history.compacted")
+                .description("Superseded customer versions removed by compaction")
+                .register(meterRegistry);
+
+        if (enabled) {
+            compaction = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "history-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalNanos = interval.toNanos();
+            compaction.scheduleWithFixedDelay(this::compactSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            compaction = null;
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (compaction != null) {
+            compaction.shutdownNow();
+        }
+    }
+
+    /**
+     * Removes every version superseded before the retention horizon
+     * @return number of versions removed
+     */
+    public long compact() {
+        Instant horizon = Instant.now().minus(retention);
+        long total = 0;
+        // customers are walked by id, so each batch only reads the versions of its own customers
+        UUID after = new UUID(0, 0);
+        List<UUID> customerIds;
+        do {
+            customerIds = historyRepository.findCustomerIdsWithVersionsBefore(after, horizon, Limit.of(batchSize));
+            if (customerIds.isEmpty()) {
+                break;
+            }
+            int removed = historyRepository.deleteSupersededBefore(customerIds, horizon, CustomerChange.DELETE.ordinal());
+            compacted.increment(removed);
+            total += removed;
+            after = customerIds.get(customerIds.size() - 1);
+        } while (customerIds.size() == batchSize && !Thread.currentThread().isInterrupted());
+
+        if (total > 0) {
+            log.info("Compacted {} customer versions superseded before {}", total, horizon);
+        }
+        return total;
+    }
+
+    // an exception would cancel the schedule, the next run picks up where this one failed
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (RuntimeException ex) {
+            log.warn("Customer history compaction failed", ex);
+        }
+    }
+}
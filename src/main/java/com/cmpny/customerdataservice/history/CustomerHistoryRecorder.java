@@ -0,0 +1,134 @@
+package com.cmpny.customerdataservice.history;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerChange;
+import com.cmpny.customerdataservice.model.CustomerSnapshot;
+import com.cmpny.customerdataservice.model.CustomerVersion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Appends a {@link CustomerVersion} for every customer Hibernate inserts, updates or deletes, whichever code path
+ * wrote it (the service, imports, the seed data). Versions are collected while the session flushes and written
+ * with one batched INSERT on the transaction's own connection right before it commits, so they commit or roll back
+ * with the change and a transaction costs one extra round trip however many customers it wrote. All versions of a
+ * transaction are valid from the moment that INSERT is prepared. This is right before the commit, not the commit
+ * itself, so of two transactions committing at nearly the same time the later one can carry the earlier time. Bulk
+ * deletes bypass these events and append their versions themselves, valid from when the delete runs. Publishes
+ * customerdataservice.history.write, the time spent writing versions per transaction, and
+ * customerdataservice.history.versions (tagged change)
+ */
+@Component
+public class CustomerHistoryRecorder implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener {
+
+    private record PendingVersion(UUID customerId, CustomerChange change, byte[] snapshot) {
+    }
+
+    private final boolean enabled;
+    private final Timer writeTimer;
+    private final Counter[] versions = new Counter[CustomerChange.values().length];
+    // versions of the running transaction of each session, sessions are confined to one thread
+    private final Map<EventSource, List<PendingVersion>> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CustomerHistoryRecorder(@Value("${customerdataservice.history.enabled:true}") boolean enabled,
+                                   MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        writeTimer = Timer.builder("customerdataservice.history.write")
+                .description("Time spent appending customer versions, per transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        for (CustomerChange change : CustomerChange.values()) {
+            versions[change.ordinal()] = Counter.builder("customerdataservice.history.versions")
+                    .description("Customer versions appended to the history")
+                    .tag("change", change.tagValue())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        record(event.getSession(), event.getEntity(), CustomerChange.CREATE);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        record(event.getSession(), event.getEntity(), CustomerChange.UPDATE);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        record(event.getSession(), event.getEntity(), CustomerChange.DELETE);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void record(EventSource session, Object entity, CustomerChange change) {
+        if (!enabled || !(entity instanceof Customer customer)) {
+            return;
+        }
+        byte[] snapshot = change == CustomerChange.DELETE ? null : CustomerSnapshot.encode(customer);
+        pending.computeIfAbsent(session, this::register).add(new PendingVersion(customer.getId(), change, snapshot));
+    }
+
+    // first version of a transaction, hook the write into its commit and forget the versions if it rolls back
+    private List<PendingVersion> register(EventSource session) {
+        session.getActionQueue().registerProcess(
+                (BeforeTransactionCompletionProcess) completing -> write(completing, pending.remove(session)));
+        session.getActionQueue().registerProcess(
+                (AfterTransactionCompletionProcess) (success, completed) -> pending.remove(session));
+        return new ArrayList<>();
+    }
+
+    private void write(SessionImplementor session, List<PendingVersion> transactionVersions) {
+        if (transactionVersions == null) {
+            return;
+        }
+        // as close to the commit as the transaction gets, at the precision of the valid from column so the instants
+        // reported by the history find the same versions
+        OffsetDateTime validFrom = OffsetDateTime.ofInstant(Instant.now().truncatedTo(ChronoUnit.MICROS), ZoneOffset.UTC);
+        writeTimer.record(() -> session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(CustomerVersion.INSERT)) {
+                for (PendingVersion version : transactionVersions) {
+                    statement.setObject(1, version.customerId());
+                    statement.setObject(2, validFrom);
+                    statement.setInt(3, version.change().ordinal());
+                    statement.setBytes(4, version.snapshot());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }));
+        transactionVersions.forEach(version -> versions[version.change().ordinal()].increment());
+    }
+}
@@ -0,0 +1,142 @@
+package com.cmpny.customerdataservice.hotkey;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free streaming top-K in fixed memory: a Count-Min sketch estimates how often each key was recorded, and a
+ * candidate set holds the keys whose estimate reached the admission bar, the estimate of the K-th hottest key at
+ * the last prune. Recording increments one counter per sketch row and only touches the candidate set when a key
+ * is hot enough to be admitted, so concurrent callers never block each other and cold keys cost no allocation.
+ * Estimates can only overcount, by at most total / width with high probability. {@link #decay()} halves every
+ * counter, called once per window it makes counts exponentially weighted with that window as half-life
+ */
+public final class HeavyHitters<K> {
+
+    /**
+     * A key and its estimated (decayed) number of occurrences
+     */
+    public record Entry<K>(K key, long count) {
+    }
+
+    private final int k;
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final AtomicLongArray counters;
+    private final Set<K> candidates = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pruning = new AtomicBoolean();
+    private volatile long admission;
+
+    /**
+     * @param k number of hottest keys reported
+     * @param width counters per sketch row, rounded up to a power of two
+     * @param depth sketch rows, each hashed independently
+     */
+    public HeavyHitters(int k, int width, int depth) {
+        if (k < 1 || width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Top-k, width and depth must be positive");
+        }
+        this.k = k;
+        this.depth = depth;
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.mask = this.width - 1;
+        this.counters = new AtomicLongArray(depth * this.width);
+    }
+
+    public void record(K key) {
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(row * width + ((h1 + row * h2) & mask)));
+        }
+        if (estimate >= admission && !candidates.contains(key)) {
+            candidates.add(key);
+            if (candidates.size() > 2 * k) {
+                prune();
+            }
+        }
+    }
+
+    /**
+     * @return estimated occurrences of the key, never less than the actual (decayed) count
+     */
+    public long estimate(K key) {
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(row * width + ((h1 + row * h2) & mask)));
+        }
+        return estimate;
+    }
+
+    /**
+     * @return the (decayed) number of recorded keys, every record adds one to each row so any row sums to it
+     */
+    public long total() {
+        long total = 0;
+        for (int i = 0; i < width; i++) {
+            total += counters.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @return up to K hottest keys, hottest first
+     */
+    public List<Entry<K>> top() {
+        List<Entry<K>> entries = new ArrayList<>(candidates.size());
+        for (K key : candidates) {
+            long count = estimate(key);
+            if (count > 0) {
+                entries.add(new Entry<>(key, count));
+            }
+        }
+        entries.sort(Comparator.comparingLong(Entry<K>::count).reversed());
+        return entries.size() > k ? List.copyOf(entries.subList(0, k)) : entries;
+    }
+
+    /**
+     * Halves every count. Records running concurrently may be lost from the halved counters, which only makes
+     * their keys look slightly colder
+     */
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, count -> count >>> 1);
+        }
+        admission >>>= 1;
+        prune();
+    }
+
+    // keeps the K hottest candidates and raises the admission bar to the coldest of them, only one caller prunes
+    // at a time and the others carry on recording
+    private void prune() {
+        if (!pruning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<Entry<K>> top = top();
+            candidates.retainAll(top.stream().map(Entry::key).toList());
+            admission = top.size() < k ? 0 : top.get(top.size() - 1).count();
+        } finally {
+            pruning.set(false);
+        }
+    }
+
+    // murmur3 finalizer, spreads hash codes that differ only in a few bits over all counters
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
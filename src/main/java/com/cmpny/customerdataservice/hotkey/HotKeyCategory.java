@@ -0,0 +1,20 @@
+package com.cmpny.customerdataservice.hotkey;
+
+/**
+ * Kinds of keys {@link HotKeys} tracks separately, each with its own sketch
+ */
+public enum HotKeyCategory {
+    CUSTOMER_ID("customerId"),
+    EMAIL("email"),
+    UPDATE("update");
+
+    private final String tagValue;
+
+    HotKeyCategory(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+}
@@ -0,0 +1,117 @@
+package com.cmpny.customerdataservice.hotkey;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the hottest customer ids, emails and updated customers with a {@link HeavyHitters} per
+ * {@link HotKeyCategory}, so skewed traffic (one customer looked up by a retry loop, a batch job hammering the same
+ * rows) shows up before it turns into a hot partition or lock contention. Counts are halved every half-life, the
+ * hottest keys are listed by /actuator/hotkeys. Publishes customerdataservice.hotkeys.top.share, the share of the
+ * recent traffic going to the K hottest keys (tagged category), i.e. how much of it a cache of K entries could
+ * absorb, and customerdataservice.hotkeys.hottest.share for the single hottest key
+ */
+@Component
+public class HotKeys {
+
+    static final String TOP_SHARE = "customerdataservice.hotkeys.top.share";
+    static final String HOTTEST_SHARE = "customerdataservice.hotkeys.hottest.share";
+
+    private final boolean enabled;
+    private final Duration halfLife;
+    private final Map<HotKeyCategory, HeavyHitters<Object>> trackers = new EnumMap<>(HotKeyCategory.class);
+    private final ScheduledExecutorService decay;
+
+    @Autowired
+    public HotKeys(@Value("${customerdataservice.hotkeys.enabled:true}") boolean enabled,
+                   @Value("${customerdataservice.hotkeys.top-k:20}") int topK,
+                   @Value("${customerdataservice.hotkeys.width:2048}") int width,
+                   @Value("${customerdataservice.hotkeys.depth:4}") int depth,
+                   @Value("${customerdataservice.hotkeys.half-life:PT1M}") Duration halfLife,
+                   MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.halfLife = halfLife;
+        for (HotKeyCategory category : HotKeyCategory.values()) {
+            trackers.put(category, new HeavyHitters<>(topK, width, depth));
+            Gauge.builder(TOP_SHARE, this, hotKeys -> hotKeys.topShare(category))
+                    .description("Share of recent requests going to the hottest keys")
+                    .tag("category", category.tagValue())
+                    .register(meterRegistry);
+            Gauge.builder(HOTTEST_SHARE, this, hotKeys -> hotKeys.hottestShare(category))
+                    .description("Share of recent requests going to the hottest key")
+                    .tag("category", category.tagValue())
+                    .register(meterRegistry);
+        }
+
+        if (enabled) {
+            decay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hotkeys-decay");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long periodNanos = halfLife.toNanos();
+            decay.scheduleAtFixedRate(this::decay, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+        } else {
+            decay = null;
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (decay != null) {
+            decay.shutdownNow();
+        }
+    }
+
+    public void record(HotKeyCategory category, Object key) {
+        if (enabled && key != null) {
+            trackers.get(category).record(key);
+        }
+    }
+
+    public Duration halfLife() {
+        return halfLife;
+    }
+
+    public long total(HotKeyCategory category) {
+        return trackers.get(category).total();
+    }
+
+    /**
+     * @return the hottest keys of the category, hottest first
+     */
+    public List<HeavyHitters.Entry<Object>> top(HotKeyCategory category) {
+        return trackers.get(category).top();
+    }
+
+    void decay() {
+        trackers.values().forEach(HeavyHitters::decay);
+    }
+
+    private double topShare(HotKeyCategory category) {
+        return share(category, top(category).stream().mapToLong(HeavyHitters.Entry::count).sum());
+    }
+
+    private double hottestShare(HotKeyCategory category) {
+        List<HeavyHitters.Entry<Object>> top = top(category);
+        return top.isEmpty() ? 0 : share(category, top.get(0).count());
+    }
+
+    private double share(HotKeyCategory category, long count) {
+        long total = total(category);
+        // estimates overcount, keep the share within bounds when a few keys make up all the traffic
+        return total == 0 ? 0 : Math.min(1, (double) count / total);
+    }
+}
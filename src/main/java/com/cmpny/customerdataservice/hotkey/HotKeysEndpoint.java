@@ -0,0 +1,58 @@
+package com.cmpny.customerdataservice.hotkey;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint (/actuator/hotkeys) listing the hottest keys of each {@link HotKeyCategory} with their estimated,
+ * decayed request counts and share of the recent traffic. Emails are masked, the customer ids they belong to show
+ * up under customerId
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+
+    private final HotKeys hotKeys;
+
+    public HotKeysEndpoint(HotKeys hotKeys) {
+        this.hotKeys = hotKeys;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        Map<String, Object> categories = new LinkedHashMap<>();
+        for (HotKeyCategory category : HotKeyCategory.values()) {
+            long total = hotKeys.total(category);
+            List<Map<String, Object>> top = hotKeys.top(category).stream()
+                    .map(entry -> {
+                        Map<String, Object> key = new LinkedHashMap<>();
+                        key.put("key", category == HotKeyCategory.EMAIL ? mask(entry.key().toString()) : entry.key());
+                        key.put("count", entry.count());
+                        key.put("share", total == 0 ? 0 : Math.min(1, (double) entry.count() / total));
+                        return key;
+                    })
+                    .toList();
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("total", total);
+            summary.put("top", top);
+            categories.put(category.tagValue(), summary);
+        }
+
+        Map<String, Object> hotKeysReport = new LinkedHashMap<>();
+        hotKeysReport.put("halfLife", hotKeys.halfLife());
+        hotKeysReport.put("categories", categories);
+        return hotKeysReport;
+    }
+
+    static String mask(String email) {
+        int at = email.indexOf('@');
+        String local = at < 0 ? email : email.substring(0, at);
+        return local.substring(0, Math.min(2, local.length())) + "***" + (at < 0 ? "" : email.substring(at));
+    }
+}
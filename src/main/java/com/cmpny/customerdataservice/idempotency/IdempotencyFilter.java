@@ -0,0 +1,328 @@
+package com.cmpny.customerdataservice.idempotency;
+
+import com.cmpny.customerdataservice.deadline.RequestDeadline;
+import com.cmpny.customerdataservice.ratelimit.ClientIdResolver;
+import com.cmpny.customerdataservice.ratelimit.LoadSheddingFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes retries of PUT and POST /customer cheap and safe: a request carrying an Idempotency-Key header runs once,
+ * and its response (anything but a 5xx) is kept for the key. A retry with the same key and body gets the stored
+ * response back, marked with Idempotent-Replayed, without being validated or written again, so a retried create no
+ * longer fails with "email already exists". A retry arriving while the first attempt is still running waits for
+ * it rather than racing it, and gets 409 if it is still running after customerdataservice.idempotency.wait. The
+ * same key with a different body gets 422. Keys are scoped to the client (see {@link ClientIdResolver}) and the
+ * endpoint, and kept in a bounded store for customerdataservice.idempotency.expire-after-write.
+ * Failed attempts (5xx, including a passed deadline) are forgotten so the client can retry them. Bodies larger than
+ * customerdataservice.idempotency.max-body-size get 413 rather than being buffered. Retries that wait or are replayed
+ * are kept out of the concurrency limiter's latency samples.
+ * Publishes customerdataservice.idempotency.requests (tagged outcome) and customerdataservice.idempotency.keys
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 4)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    static final String KEY_HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private enum Outcome {
+        EXECUTED, REPLAYED, CONFLICT, MISMATCH, INVALID, TOO_LARGE
+    }
+
+    /**
+     * Response of the first attempt, replayed to its retries. Errors are replayed through sendError so the error
+     * body is rendered the same way
+     */
+    private record StoredResponse(int status, String errorMessage, boolean error, String contentType, byte[] body) {
+    }
+
+    private record Attempt(byte[] fingerprint, CompletableFuture<StoredResponse> response) {
+    }
+
+    @Value("${customerdataservice.idempotency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${customerdataservice.idempotency.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${customerdataservice.idempotency.expire-after-write:PT1H}")
+    private Duration expireAfterWrite;
+
+    @Value("${customerdataservice.idempotency.wait:PT5S}")
+    private Duration maxWait;
+
+    @Value("${customerdataservice.idempotency.max-body-size:64KB}")
+    private DataSize maxBodySize;
+
+    @Autowired
+    private ClientIdResolver clientIdResolver;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, Attempt> attempts;
+    private final Counter[] outcomes = new Counter[Outcome.values().length];
+
+    @Override
+    protected void initFilterBean() {
+        attempts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+        for (Outcome outcome : Outcome.values()) {
+            outcomes[outcome.ordinal()] = Counter.builder("customerdataservice.idempotency.requests")
+                    .description("Requests carrying an idempotency key, by whether they ran or got a stored response")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+        Gauge.builder("customerdataservice.idempotency.keys", attempts, Cache::estimatedSize)
+                .description("Idempotency keys currently stored")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String method = request.getMethod();
+        return !enabled
+                || request.getHeader(KEY_HEADER) == null
+                || !("PUT".equals(method) || "POST".equals(method))
+                || !request.getRequestURI().equals(request.getContextPath() + "/customer");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(KEY_HEADER).trim();
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            outcomes[Outcome.INVALID.ordinal()].increment();
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        String key = clientIdResolver.clientId(request) + " " + request.getMethod() + " " + request.getRequestURI()
+                + " " + idempotencyKey;
+        byte[] body = readBody(request);
+        if (body == null) {
+            outcomes[Outcome.TOO_LARGE.ordinal()].increment();
+            response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            return;
+        }
+        Attempt attempt = new Attempt(fingerprint(body), new CompletableFuture<>());
+
+        while (true) {
+            Attempt first = attempts.asMap().putIfAbsent(key, attempt);
+            if (first == null) {
+                execute(key, attempt, new CachedBodyRequest(request, body), response, filterChain);
+                return;
+            }
+            if (!Arrays.equals(first.fingerprint(), attempt.fingerprint())) {
+                outcomes[Outcome.MISMATCH.ordinal()].increment();
+                log.debug("Idempotency key {} reused with a different body", idempotencyKey);
+                response.setStatus(HttpStatus.UNPROCESSABLE_ENTITY.value());
+                return;
+            }
+
+            // the time spent waiting on the first attempt says nothing about how loaded the service is
+            LoadSheddingFilter.excludeFromSampling(request);
+            StoredResponse stored;
+            try {
+                stored = first.response().get(waitNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | InterruptedException ex) {
+                if (ex instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                outcomes[Outcome.CONFLICT.ordinal()].increment();
+                response.setStatus(HttpStatus.CONFLICT.value());
+                response.setHeader("Retry-After", "1");
+                return;
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException(ex.getCause());
+            }
+            // null when the first attempt failed and was forgotten, this request takes its place
+            if (stored != null) {
+                replay(stored, response);
+                return;
+            }
+        }
+    }
+
+    private void execute(String key, Attempt attempt, HttpServletRequest request, HttpServletResponse response,
+                         FilterChain filterChain) throws ServletException, IOException {
+        outcomes[Outcome.EXECUTED.ordinal()].increment();
+        CapturingResponse capture = new CapturingResponse(response);
+        StoredResponse stored = null;
+        try {
+            filterChain.doFilter(request, capture);
+            if (capture.getStatus() < 500) {
+                stored = new StoredResponse(capture.getStatus(), capture.errorMessage, capture.error,
+                        capture.getContentType(), capture.getContentAsByteArray());
+            }
+        } finally {
+            if (stored == null) {
+                attempts.asMap().remove(key, attempt);
+            }
+            attempt.response().complete(stored);
+            capture.copyBodyToResponse();
+        }
+    }
+
+    private void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        outcomes[Outcome.REPLAYED.ordinal()].increment();
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.error()) {
+            response.sendError(stored.status(), stored.errorMessage());
+            return;
+        }
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    // null when the body is over the limit, checked against Content-Length first so it is not read at all
+    private byte[] readBody(HttpServletRequest request) throws IOException {
+        long limit = maxBodySize.toBytes();
+        if (request.getContentLengthLong() > limit) {
+            return null;
+        }
+        byte[] body = request.getInputStream().readNBytes((int) limit + 1);
+        return body.length > limit ? null : body;
+    }
+
+    // waiting for the first attempt counts against this request's own deadline
+    private long waitNanos() {
+        RequestDeadline deadline = RequestDeadline.current();
+        long waitNanos = maxWait.toNanos();
+        return deadline == null ? waitNanos : Math.max(0, Math.min(waitNanos, deadline.remainingNanos()));
+    }
+
+    private static byte[] fingerprint(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class CapturingResponse extends ContentCachingResponseWrapper {
+
+        private boolean error;
+        private String errorMessage;
+
+        private CapturingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            error = true;
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            error = true;
+            errorMessage = msg;
+            super.sendError(sc, msg);
+        }
+    }
+
+    // the body is read up front to fingerprint it, the controller reads it again from here
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // the whole body is already in memory, so it is available at once
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException ex) {
+                        readListener.onError(ex);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(@NonNull byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+    }
+}
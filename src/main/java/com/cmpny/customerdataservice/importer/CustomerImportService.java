@@ -0,0 +1,356 @@
+package com.cmpny.customerdataservice.importer;
+
+import com.cmpny.customerdataservice.cache.CustomerCache;
+import com.cmpny.customerdataservice.exception.ImportCapacityExceededException;
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import com.cmpny.customerdataservice.validator.CustomerRequestValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads customers from CSV or NDJSON files in the import directory. The file is streamed in chunks, each chunk
+ * is parsed and validated in parallel on a fork join pool and then upserted by email in a single transaction,
+ * so memory use depends on the chunk size only.
+ *
+ * Lines that fail to parse or validate go to a .rejects file next to the import file. When the database rejects
+ * a chunk (a value too long for its column, an email taken by a concurrent write) the chunk is split in halves
+ * and retried until the failing lines are isolated, those go to the rejects file too and the rest is imported.
+ * After each committed chunk its rejects are written and a .checkpoint file records how far the import got and how
+ * long the rejects file was, starting an import for the same file again after a crash or restart continues from
+ * there. The checkpoint is removed once the import completes
+ */
+@Slf4j
+@Service
+public class CustomerImportService {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CustomerCache customerCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${customerdataservice.import.directory:${java.io.tmpdir}/customer-imports}")
+    private Path directory;
+
+    @Value("${customerdataservice.import.max-concurrent:1}")
+    private int maxConcurrent;
+
+    @Value("${customerdataservice.import.max-queued:2}")
+    private int maxQueued;
+
+    @Value("${customerdataservice.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${customerdataservice.import.parallelism:0}")
+    private int parallelism;
+
+    private final Map<UUID, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final Set<Path> activeFiles = ConcurrentHashMap.newKeySet();
+    private ExecutorService executor;
+    private ForkJoinPool validationPool;
+    private TransactionTemplate transactionTemplate;
+
+    private record ParsedLine(Customer customer, String error) {
+    }
+
+    private record ImportRow(int index, Customer customer) {
+    }
+
+    private record UpsertResult(long inserted, long updated, List<UUID> updatedIds, List<String> updatedEmails) {
+
+        static final UpsertResult EMPTY = new UpsertResult(0, 0, List.of(), List.of());
+
+        UpsertResult plus(UpsertResult other) {
+            return new UpsertResult(inserted + other.inserted, updated + other.updated,
+                    concat(updatedIds, other.updatedIds), concat(updatedEmails, other.updatedEmails));
+        }
+
+        private static <T> List<T> concat(List<T> first, List<T> second) {
+            return Stream.concat(first.stream(), second.stream()).toList();
+        }
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        directory = Files.createDirectories(directory).toAbsolutePath().normalize();
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxQueued),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "customer-import-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        validationPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+        validationPool.shutdownNow();
+    }
+
+    /**
+     * Queues an import of a file, or resumes it if an earlier import of the same file did not complete
+     * @param fileName name of a .csv, .ndjson or .jsonl file (optionally .gz) in the import directory
+     * @return the queued job
+     * @throws IllegalArgumentException if the file does not exist or has an unsupported format
+     * @throws IllegalStateException if the file is already being imported
+     * @throws ImportCapacityExceededException if too many imports are already running or queued
+     */
+    public ImportJob startImport(String fileName) {
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Import file not found");
+        }
+        ImportFormat format = ImportFormat.fromFileName(file.getFileName().toString());
+        if (!activeFiles.add(file)) {
+            throw new IllegalStateException("Import already running for " + fileName);
+        }
+
+        ImportJob job = new ImportJob(UUID.randomUUID(), directory.relativize(file).toString());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, file, format));
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.getId());
+            activeFiles.remove(file);
+            throw new ImportCapacityExceededException();
+        }
+        return job;
+    }
+
+    public Optional<ImportJob> findImport(UUID id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void run(ImportJob job, Path file, ImportFormat format) {
+        Path checkpointFile = file.resolveSibling(file.getFileName() + ".checkpoint");
+        Path rejectsFile = file.resolveSibling(file.getFileName() + ".rejects");
+        try {
+            ImportCheckpoint checkpoint = Files.exists(checkpointFile)
+                    ? objectMapper.readValue(checkpointFile.toFile(), ImportCheckpoint.class)
+                    : ImportCheckpoint.START;
+            job.running(checkpoint);
+            if (checkpoint.lines() > 0) {
+                log.info("Resuming import {} of {} after line {}", job.getId(), job.getFile(), checkpoint.lines());
+            }
+
+            try (BufferedReader reader = open(file);
+                 FileChannel rejects = FileChannel.open(rejectsFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // drops rejects of a chunk that was not checkpointed before the previous run stopped
+                rejects.truncate(checkpoint.rejectsBytes());
+                rejects.position(rejects.size());
+                int headerLines = format == ImportFormat.CSV ? 1 : 0;
+                CustomerRecordParser parser = format == ImportFormat.CSV
+                        ? CustomerRecordParser.csv(Optional.ofNullable(reader.readLine()).orElse(""))
+                        : CustomerRecordParser.ndjson(objectMapper);
+                for (long skipped = 0; skipped < checkpoint.lines() && reader.readLine() != null; skipped++) {
+                    // already committed before the restart
+                }
+
+                List<String> chunk = new ArrayList<>(chunkSize);
+                while (readChunk(reader, chunk)) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new IOException("Import interrupted");
+                    }
+                    checkpoint = importChunk(parser, chunk, checkpoint, headerLines, rejects);
+                    writeCheckpoint(checkpointFile, checkpoint);
+                    job.progress(checkpoint);
+                }
+            }
+
+            Files.deleteIfExists(checkpointFile);
+            job.completed();
+            log.info("Import {} of {} completed, {} inserted, {} updated, {} rejected, {} rows/s", job.getId(),
+                    job.getFile(), job.getInserted(), job.getUpdated(), job.getRejected(), job.getRowsPerSecond());
+        } catch (Exception ex) {
+            log.error("Import {} of {} failed after line {}", job.getId(), job.getFile(), job.getLinesProcessed(), ex);
+            job.failed("Import failed after line " + job.getLinesProcessed() + ", start it again to resume");
+        } finally {
+            activeFiles.remove(file);
+        }
+    }
+
+    private ImportCheckpoint importChunk(CustomerRecordParser parser, List<String> chunk, ImportCheckpoint checkpoint,
+                                         int headerLines, FileChannel rejects) throws IOException {
+        List<ParsedLine> parsed = validationPool.submit(() -> IntStream.range(0, chunk.size())
+                .parallel()
+                .mapToObj(i -> parse(parser, chunk.get(i)))
+                .toList()).join();
+
+        List<ImportRow> rows = new ArrayList<>(chunk.size());
+        // by index, so parse and database rejects are written in line order
+        Map<Integer, String> errors = new TreeMap<>();
+        for (int i = 0; i < parsed.size(); i++) {
+            ParsedLine line = parsed.get(i);
+            if (line.customer() != null) {
+                rows.add(new ImportRow(i, line.customer()));
+            } else if (line.error() != null) {
+                errors.put(i, line.error());
+            }
+        }
+
+        UpsertResult result = rows.isEmpty() ? UpsertResult.EMPTY : upsertOrSplit(rows, errors);
+        customerCache.invalidate(result.updatedIds(), result.updatedEmails());
+
+        // only once the chunk is committed, the checkpoint written next records how far the rejects file got
+        StringBuilder rejectLines = new StringBuilder();
+        errors.forEach((i, error) -> rejectLines.append("line ").append(checkpoint.lines() + headerLines + i + 1)
+                .append(": ").append(error).append('\t').append(chunk.get(i)).append(System.lineSeparator()));
+        ByteBuffer bytes = ByteBuffer.wrap(rejectLines.toString().getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            rejects.write(bytes);
+        }
+        return checkpoint.advance(chunk.size(), result.inserted(), result.updated(), errors.size(), rejects.position());
+    }
+
+    /**
+     * Upserts the rows in one transaction. If the database rejects it the rows are upserted in halves, each in its
+     * own transaction, down to single rows, so one bad row costs about log2(chunk size) extra transactions and only
+     * the rows the database keeps rejecting are left out. Other failures (the database being unavailable) fail the
+     * import, it resumes from the last checkpoint
+     */
+    private UpsertResult upsertOrSplit(List<ImportRow> rows, Map<Integer, String> errors) {
+        try {
+            return upsert(rows.stream().map(ImportRow::customer).toList());
+        } catch (DataIntegrityViolationException ex) {
+            if (rows.size() == 1) {
+                errors.put(rows.get(0).index(), "Rejected by the database: " + firstLine(ex.getMostSpecificCause()));
+                return UpsertResult.EMPTY;
+            }
+            int half = rows.size() / 2;
+            return upsertOrSplit(rows.subList(0, half), errors).plus(upsertOrSplit(rows.subList(half, rows.size()), errors));
+        }
+    }
+
+    private static String firstLine(Throwable cause) {
+        String message = String.valueOf(cause.getMessage()).lines().findFirst().orElse("");
+        return message.length() > 200 ? message.substring(0, 200) : message;
+    }
+
+    private static ParsedLine parse(CustomerRecordParser parser, String line) {
+        if (line.isBlank()) {
+            return new ParsedLine(null, null);
+        }
+        try {
+            Customer customer = parser.parse(line);
+            CustomerRequestValidator.validateCustomer(customer, true);
+            return new ParsedLine(customer, null);
+        } catch (IllegalArgumentException ex) {
+            return new ParsedLine(null, ex.getMessage());
+        }
+    }
+
+    /**
+     * Creates customers whose email is new and updates the ones that exist, in one transaction. When an email
+     * appears more than once in the batch the last line wins
+     */
+    private UpsertResult upsert(List<Customer> customers) {
+        return transactionTemplate.execute(status -> {
+            Map<String, Customer> byEmail = new LinkedHashMap<>();
+            customers.forEach(customer -> byEmail.put(customer.getNormalizedEmailAddress(), customer));
+            Map<String, Customer> existing = customerRepository.findByNormalizedEmailAddressIn(byEmail.keySet())
+                    .stream()
+                    .collect(Collectors.toMap(Customer::getNormalizedEmailAddress, Function.identity()));
+
+            List<Customer> toSave = new ArrayList<>(byEmail.size());
+            List<UUID> updatedIds = new ArrayList<>();
+            long inserted = 0;
+            for (Customer customer : byEmail.values()) {
+                Customer current = existing.get(customer.getNormalizedEmailAddress());
+                if (current == null) {
+                    // persist assigned an id in a transaction that rolled back when this is a retry of a split chunk
+                    customer.setId(null);
+                    toSave.add(customer);
+                    inserted++;
+                } else {
+                    current.setFirstName(customer.getFirstName());
+                    current.setMiddleName(customer.getMiddleName());
+                    current.setLastName(customer.getLastName());
+                    current.setEmailAddress(customer.getEmailAddress());
+                    current.setPhoneNumber(customer.getPhoneNumber());
+                    toSave.add(current);
+                    updatedIds.add(current.getId());
+                }
+            }
+            customerRepository.saveAll(toSave);
+            // duplicate emails within the batch are one customer, neither inserted nor updated twice. The emails
+            // are the ones matched on, the same before and after the update
+            return new UpsertResult(inserted, updatedIds.size(), updatedIds,
+                    existing.keySet().stream().toList());
+        });
+    }
+
+    private boolean readChunk(BufferedReader reader, List<String> chunk) throws IOException {
+        chunk.clear();
+        String line;
+        while (chunk.size() < chunkSize && (line = reader.readLine()) != null) {
+            chunk.add(line);
+        }
+        return !chunk.isEmpty();
+    }
+
+    private static BufferedReader open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (ImportFormat.isGzip(file.getFileName().toString())) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private void writeCheckpoint(Path checkpointFile, ImportCheckpoint checkpoint) throws IOException {
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        objectMapper.writeValue(temp.toFile(), checkpoint);
+        Files.move(temp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
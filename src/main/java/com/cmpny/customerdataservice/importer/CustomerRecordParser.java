@@ -0,0 +1,124 @@
+package com.cmpny.customerdataservice.importer;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses one line of an import file into a customer. Stateless once created, so chunks of lines can be parsed
+ * in parallel with the same parser
+ */
+final class CustomerRecordParser {
+
+    private static final List<String> REQUIRED_CSV_COLUMNS = List.of("firstName", "lastName", "emailAddress", "phoneNumber");
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Integer> csvColumns;
+
+    private CustomerRecordParser(ObjectMapper objectMapper, Map<String, Integer> csvColumns) {
+        this.objectMapper = objectMapper;
+        this.csvColumns = csvColumns;
+    }
+
+    static CustomerRecordParser ndjson(ObjectMapper objectMapper) {
+        return new CustomerRecordParser(objectMapper, null);
+    }
+
+    /**
+     * @param header header line of the csv file, columns are matched by name and may come in any order
+     * @throws IllegalArgumentException if a required column is missing
+     */
+    static CustomerRecordParser csv(String header) {
+        List<String> names = splitCsv(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        if (!columns.keySet().containsAll(REQUIRED_CSV_COLUMNS)) {
+            throw new IllegalArgumentException("CSV header must contain " + REQUIRED_CSV_COLUMNS);
+        }
+        return new CustomerRecordParser(null, columns);
+    }
+
+    /**
+     * @param line line of the file
+     * @return customer without an id, emails are matched against existing customers when upserting
+     * @throws IllegalArgumentException if the line cannot be parsed
+     */
+    Customer parse(String line) {
+        Customer customer = csvColumns == null ? parseJson(line) : parseCsv(line);
+        customer.setId(null);
+        return customer;
+    }
+
+    private Customer parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, Customer.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Invalid JSON");
+        }
+    }
+
+    private Customer parseCsv(String line) {
+        List<String> values = splitCsv(line);
+        if (values.size() < csvColumns.size()) {
+            throw new IllegalArgumentException("Expected " + csvColumns.size() + " columns but found " + values.size());
+        }
+        Customer customer = new Customer();
+        customer.setFirstName(column(values, "firstName"));
+        customer.setMiddleName(column(values, "middleName"));
+        customer.setLastName(column(values, "lastName"));
+        customer.setEmailAddress(column(values, "emailAddress"));
+        customer.setPhoneNumber(column(values, "phoneNumber"));
+        return customer;
+    }
+
+    private String column(List<String> values, String name) {
+        Integer index = csvColumns.get(name);
+        if (index == null) {
+            return null;
+        }
+        String value = values.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Splits a csv line on commas, values may be quoted with embedded quotes doubled. Values spanning lines
+     * are not supported
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value");
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
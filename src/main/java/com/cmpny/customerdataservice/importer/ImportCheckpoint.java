@@ -0,0 +1,21 @@
+package com.cmpny.customerdataservice.importer;
+
+/**
+ * Progress of an import that has been committed to the database, persisted next to the file after every batch
+ * so an import that was interrupted continues after the last committed line instead of starting over
+ * @param lines data lines (not counting a csv header) that are fully processed
+ * @param inserted customers created so far
+ * @param updated existing customers updated so far
+ * @param rejected lines written to the rejects file so far
+ * @param rejectsBytes length of the rejects file at this point, a resumed import truncates it back to this length so
+ *                     rejects written after the last checkpoint are not written twice
+ */
+public record ImportCheckpoint(long lines, long inserted, long updated, long rejected, long rejectsBytes) {
+
+    static final ImportCheckpoint START = new ImportCheckpoint(0, 0, 0, 0, 0);
+
+    ImportCheckpoint advance(long lines, long inserted, long updated, long rejected, long rejectsBytes) {
+        return new ImportCheckpoint(this.lines + lines, this.inserted + inserted, this.updated + updated,
+                this.rejected + rejected, rejectsBytes);
+    }
+}
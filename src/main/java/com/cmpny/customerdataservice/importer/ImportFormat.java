@@ -0,0 +1,35 @@
+package com.cmpny.customerdataservice.importer;
+
+import java.util.Locale;
+
+/**
+ * File formats customers can be imported from, detected from the file name. Files ending in .gz are read
+ * through gzip, so files produced by the export can be imported as they are
+ */
+public enum ImportFormat {
+    NDJSON,
+    CSV;
+
+    /**
+     * @param fileName name of the file to import
+     * @return format of the file
+     * @throws IllegalArgumentException if the extension is not supported
+     */
+    public static ImportFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        throw new IllegalArgumentException("Unsupported import file " + fileName);
+    }
+
+    public static boolean isGzip(String fileName) {
+        return fileName.toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+}
@@ -0,0 +1,117 @@
+package com.cmpny.customerdataservice.importer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * State of a single import, updated by the thread running it and read by status requests
+ */
+public class ImportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final UUID id;
+    private final String file;
+    private final Instant createdAt;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long resumedFromLine;
+    private volatile long linesProcessed;
+    private volatile long inserted;
+    private volatile long updated;
+    private volatile long rejected;
+    private volatile Instant startedAt;
+    private volatile Instant completedAt;
+    private volatile String error;
+
+    ImportJob(UUID id, String file) {
+        this.id = id;
+        this.file = file;
+        this.createdAt = Instant.now();
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getResumedFromLine() {
+        return resumedFromLine;
+    }
+
+    public long getLinesProcessed() {
+        return linesProcessed;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return lines processed per second by this run, lines skipped when resuming are not counted
+     */
+    public long getRowsPerSecond() {
+        Instant started = startedAt;
+        if (started == null) {
+            return 0;
+        }
+        Instant end = completedAt != null ? completedAt : Instant.now();
+        long millis = Math.max(1, Duration.between(started, end).toMillis());
+        return (linesProcessed - resumedFromLine) * 1000 / millis;
+    }
+
+    void running(ImportCheckpoint checkpoint) {
+        resumedFromLine = checkpoint.lines();
+        progress(checkpoint);
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void progress(ImportCheckpoint checkpoint) {
+        linesProcessed = checkpoint.lines();
+        inserted = checkpoint.inserted();
+        updated = checkpoint.updated();
+        rejected = checkpoint.rejected();
+    }
+
+    void completed() {
+        completedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    void failed(String message) {
+        error = message;
+        completedAt = Instant.now();
+        status = Status.FAILED;
+    }
+}
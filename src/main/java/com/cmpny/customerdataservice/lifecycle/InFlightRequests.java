@@ -0,0 +1,128 @@
+package com.cmpny.customerdataservice.lifecycle;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the requests in flight per endpoint (handler method, as in customerdataservice.request.stage), published
+ * as the customerdataservice.http.inflight gauge. Once shutdown starts the web server drains gracefully, and until
+ * every request has completed (or the shutdown phase times out) the endpoints still in flight are logged every
+ * report interval, so a slow drain shows which endpoint held it up
+ */
+@Slf4j
+@Component
+public class InFlightRequests implements HandlerInterceptor, ApplicationListener<ContextClosedEvent> {
+
+    static final String METER_NAME = "customerdataservice.http.inflight";
+    private static final String COUNTER_ATTRIBUTE = InFlightRequests.class.getName() + ".counter";
+
+    private final Map<String, AtomicInteger> inFlightByEndpoint = new ConcurrentHashMap<>();
+
+    @Value("${customerdataservice.drain.report-interval:PT1S}")
+    private Duration reportInterval;
+
+    @Value("${spring.lifecycle.timeout-per-shutdown-phase:30s}")
+    private Duration shutdownTimeout;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) {
+        // async requests are dispatched twice but complete only once
+        if (handler instanceof HandlerMethod handlerMethod && request.getAttribute(COUNTER_ATTRIBUTE) == null) {
+            AtomicInteger inFlight = inFlightByEndpoint.computeIfAbsent(handlerMethod.getMethod().getName(),
+                    this::register);
+            inFlight.incrementAndGet();
+            request.setAttribute(COUNTER_ATTRIBUTE, inFlight);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        if (request.getAttribute(COUNTER_ATTRIBUTE) instanceof AtomicInteger inFlight) {
+            request.removeAttribute(COUNTER_ATTRIBUTE);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(@NonNull ContextClosedEvent event) {
+        Map<String, Integer> inFlight = snapshot();
+        if (inFlight.isEmpty()) {
+            log.info("Shutting down with no requests in flight");
+            return;
+        }
+        log.info("Shutting down, draining {} requests in flight: {}", total(inFlight), inFlight);
+        Thread reporter = new Thread(this::reportDrain, "drain-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    /**
+     * Requests in flight per endpoint, endpoints without any are left out
+     * @return endpoint to number of requests in flight, sorted by endpoint
+     */
+    public Map<String, Integer> snapshot() {
+        Map<String, Integer> snapshot = new TreeMap<>();
+        inFlightByEndpoint.forEach((endpoint, inFlight) -> {
+            int count = inFlight.get();
+            if (count > 0) {
+                snapshot.put(endpoint, count);
+            }
+        });
+        return snapshot;
+    }
+
+    private void reportDrain() {
+        long start = System.nanoTime();
+        long deadline = start + shutdownTimeout.toNanos();
+        try {
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(reportInterval.toMillis());
+                Map<String, Integer> inFlight = snapshot();
+                if (inFlight.isEmpty()) {
+                    log.info("Drained all requests in {} ms", (System.nanoTime() - start) / 1_000_000);
+                    return;
+                }
+                log.info("Draining, {} requests in flight: {}", total(inFlight), inFlight);
+            }
+            log.warn("Shutdown timed out with requests in flight: {}", snapshot());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private AtomicInteger register(String endpoint) {
+        AtomicInteger inFlight = new AtomicInteger();
+        Gauge.builder(METER_NAME, inFlight, AtomicInteger::get)
+                .description("Requests currently being handled")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+        return inFlight;
+    }
+
+    private static int total(Map<String, Integer> inFlight) {
+        return inFlight.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
@@ -0,0 +1,172 @@
+package com.cmpny.customerdataservice.lifecycle;
+
+import com.cmpny.customerdataservice.metrics.CustomerDataMetrics;
+import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerRepository;
+import com.cmpny.customerdataservice.model.CustomerView;
+import com.cmpny.customerdataservice.service.CustomerDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Warms a new instance up before it takes traffic: fills the Hikari pool and runs representative lookups by id and
+ * email (and the JSON serialization of their results), so the JIT has compiled the hot paths and the second-level
+ * cache, when enabled, holds the sampled customers. Every other lookup goes through {@link CustomerDataService}, the
+ * others straight to the repository, so the paths behind the service's near-cache get compiled as well. The lookups
+ * are not recorded by the service timers, which are meant for client traffic.
+ * The warm-up runs on a background thread once the application is started, and as a health indicator in the
+ * readiness group it keeps the readiness probe OUT_OF_SERVICE until it is done. It never fails the instance, after
+ * an error or the timeout the instance is reported ready, just cold
+ */
+@Slf4j
+@Component("warmUp")
+public class WarmUp implements HealthIndicator {
+
+    @Value("${customerdataservice.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${customerdataservice.warmup.iterations:2000}")
+    private int iterations;
+
+    @Value("${customerdataservice.warmup.sample-size:100}")
+    private int sampleSize;
+
+    @Value("${customerdataservice.warmup.timeout:PT60S}")
+    private Duration timeout;
+
+    @Autowired
+    private CustomerDataService customerDataService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerDataMetrics metrics;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile boolean complete;
+    private volatile boolean stopped;
+    private volatile long lookups;
+    private volatile long durationMillis;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            complete = true;
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public Health health() {
+        if (!complete) {
+            return Health.outOfService().withDetail("lookups", lookups).build();
+        }
+        return Health.up()
+                .withDetail("lookups", lookups)
+                .withDetail("durationMillis", durationMillis)
+                .build();
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    void warmUp() {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        try {
+            int connections = prefillConnectionPool();
+            List<CustomerView> sample = customerRepository.findViewPageAfter(null, sampleSize);
+            metrics.untimed(() -> {
+                for (int i = 0; i < iterations && !stopped && System.nanoTime() < deadline; i++) {
+                    lookup(sample, i);
+                    lookups = i + 1;
+                }
+                return null;
+            });
+            durationMillis = (System.nanoTime() - start) / 1_000_000;
+            log.info("Warm-up done in {} ms: {} pooled connections, {} lookups over {} customers", durationMillis,
+                    connections, lookups, sample.size());
+        } catch (Exception ex) {
+            durationMillis = (System.nanoTime() - start) / 1_000_000;
+            if (stopped) {
+                log.debug("Warm-up interrupted by shutdown after {} lookups", lookups);
+                return;
+            }
+            log.warn("Warm-up failed after {} lookups, accepting traffic cold", lookups, ex);
+        } finally {
+            complete = true;
+        }
+    }
+
+    private void lookup(List<CustomerView> sample, int iteration) throws Exception {
+        // with no data yet (async data loader) the misses still exercise the same code paths
+        CustomerView customer = sample.isEmpty() ? null : sample.get(iteration % sample.size());
+        UUID id = customer != null ? customer.id() : UUID.randomUUID();
+        String email = customer != null ? customer.emailAddress() : "warm-up-" + iteration + "@example.com";
+
+        if (iteration % 2 == 0) {
+            objectMapper.writeValueAsBytes(customerDataService.findCustomerById(id));
+            objectMapper.writeValueAsBytes(customerDataService.findCustomerByEmail(email));
+        } else {
+            objectMapper.writeValueAsBytes(customerRepository.findById(id).map(CustomerView::from));
+            objectMapper.writeValueAsBytes(customerRepository.findByNaturalId(Customer.normalizeEmail(email))
+                    .map(CustomerView::from));
+        }
+    }
+
+    /**
+     * Holds as many connections at once as the pool keeps idle, so all of them are opened now rather than by the
+     * first requests
+     * @return number of connections opened
+     */
+    private int prefillConnectionPool() throws SQLException {
+        if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+            return 0;
+        }
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        int size = Math.min(Math.max(hikari.getMinimumIdle(), 1), hikari.getMaximumPoolSize());
+        List<Connection> connections = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                connections.add(dataSource.getConnection());
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+        return connections.size();
+    }
+}
@@ -0,0 +1,75 @@
+package com.cmpny.customerdataservice.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint (/actuator/profiling) to take an on-demand Java Flight Recorder profile of the running
+ * instance. POST starts a time boxed recording with the JDK "profile" settings, GET reports its state and
+ * where the .jfr file was written once it is done. Only one recording runs at a time
+ */
+@Slf4j
+@Component
+@Endpoint(id = "profiling")
+public class ProfilingEndpoint {
+
+    private static final Duration DEFAULT_DURATION = Duration.ofSeconds(30);
+    private static final Duration MAX_DURATION = Duration.ofMinutes(10);
+
+    private Recording recording;
+    private Path destination;
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("state", recording.getState());
+        status.put("startTime", recording.getStartTime());
+        status.put("duration", recording.getDuration());
+        status.put("file", destination.toString());
+        return status;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable Integer durationSeconds) throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return status();
+        }
+        if (recording != null) {
+            recording.close();
+        }
+
+        Duration duration = durationSeconds == null ? DEFAULT_DURATION : Duration.ofSeconds(durationSeconds);
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(MAX_DURATION) > 0) {
+            throw new IllegalArgumentException("Duration must be between 1 and " + MAX_DURATION.toSeconds() + " seconds");
+        }
+
+        destination = Files.createTempFile("customerdataservice-", ".jfr");
+        recording = new Recording(Configuration.getConfiguration("profile"));
+        recording.setName("customerdataservice-on-demand");
+        recording.setDuration(duration);
+        recording.setDestination(destination);
+        recording.setToDisk(true);
+        recording.start();
+        log.info("Started {} flight recording, writing to {}", duration, destination);
+        return status();
+    }
+}
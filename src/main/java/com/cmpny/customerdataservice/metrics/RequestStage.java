@@ -0,0 +1,20 @@
+package com.cmpny.customerdataservice.metrics;
+
+/**
+ * Stages of a request that are timed separately, to see where the time inside a request goes
+ */
+public enum RequestStage {
+    VALIDATION("validation"),
+    DB("db"),
+    SERIALIZATION("serialization");
+
+    private final String tagValue;
+
+    RequestStage(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+}
@@ -0,0 +1,88 @@
+package com.cmpny.customerdataservice.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the per stage time of each request as the customerdataservice.request.stage timer, tagged with the
+ * handler (endpoint) and stage. Serialization is measured from the moment the body is handed to the message
+ * converter until the request completes
+ */
+@ControllerAdvice
+public class RequestStageMetrics implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    static final String METER_NAME = "customerdataservice.request.stage";
+
+    private final Map<String, Timer[]> timersByEndpoint = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) {
+        if (handler instanceof HandlerMethod) {
+            RequestStages.begin();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestStages.markSerializationStart();
+        return body;
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        long[] stageNanos = RequestStages.end();
+        if (stageNanos == null || !(handler instanceof HandlerMethod handlerMethod)) {
+            return;
+        }
+
+        Timer[] timers = timersByEndpoint.computeIfAbsent(handlerMethod.getMethod().getName(), this::registerTimers);
+        for (RequestStage stage : RequestStage.values()) {
+            long nanos = stageNanos[stage.ordinal()];
+            if (nanos > 0) {
+                timers[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Timer[] registerTimers(String endpoint) {
+        Timer[] timers = new Timer[RequestStage.values().length];
+        for (RequestStage stage : RequestStage.values()) {
+            timers[stage.ordinal()] = Timer.builder(METER_NAME)
+                    .description("Time spent in each stage of a request")
+                    .tag("endpoint", endpoint)
+                    .tag("stage", stage.tagValue())
+                    .register(meterRegistry);
+        }
+        return timers;
+    }
+}
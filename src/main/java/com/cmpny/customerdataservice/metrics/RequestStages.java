@@ -0,0 +1,78 @@
+package com.cmpny.customerdataservice.metrics;
+
+import java.util.function.Supplier;
+
+/**
+ * Accumulates the time spent in each {@link RequestStage} of the current request on a thread local,
+ * the totals are published by {@link RequestStageMetrics} once the request completes. Outside of a
+ * request the work just runs untimed
+ */
+public final class RequestStages {
+
+    private static final int STAGES = RequestStage.values().length;
+    private static final int SERIALIZATION_START = STAGES;
+    private static final ThreadLocal<long[]> STAGE_NANOS = new ThreadLocal<>();
+
+    private RequestStages() {
+    }
+
+    /**
+     * Times a stage that produces a value
+     * @param stage stage to account the time to
+     * @param work work to run
+     * @return result of the work
+     */
+    public static <T> T time(RequestStage stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Times a stage that does not produce a value
+     * @param stage stage to account the time to
+     * @param work work to run
+     */
+    public static void run(RequestStage stage, Runnable work) {
+        long start = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    public static void record(RequestStage stage, long nanos) {
+        long[] stageNanos = STAGE_NANOS.get();
+        if (stageNanos != null) {
+            stageNanos[stage.ordinal()] += nanos;
+        }
+    }
+
+    static void begin() {
+        STAGE_NANOS.set(new long[STAGES + 1]);
+    }
+
+    static void markSerializationStart() {
+        long[] stageNanos = STAGE_NANOS.get();
+        if (stageNanos != null) {
+            stageNanos[SERIALIZATION_START] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Ends the current request and returns the time spent per stage, indexed by {@link RequestStage#ordinal()}
+     * @return stage nanos or null if no request was started on this thread
+     */
+    static long[] end() {
+        long[] stageNanos = STAGE_NANOS.get();
+        STAGE_NANOS.remove();
+        if (stageNanos != null && stageNanos[SERIALIZATION_START] != 0) {
+            stageNanos[RequestStage.SERIALIZATION.ordinal()] += System.nanoTime() - stageNanos[SERIALIZATION_START];
+        }
+        return stageNanos;
+    }
+}
@@ -0,0 +1,27 @@
+package com.cmpny.customerdataservice.metrics;
+
+/**
+ * Service operations that get their own pre-registered timer in {@link CustomerDataMetrics}
+ */
+public enum ServiceOperation {
+    SAVE_CUSTOMER("saveCustomer"),
+    FETCH_CUSTOMER_LIST("fetchCustomerList"),
+    FIND_CUSTOMERS("findCustomers"),
+    FIND_CUSTOMER_BY_EMAIL("findCustomerByEmail"),
+    FIND_CUSTOMER_BY_ID("findCustomerById"),
+    FIND_CUSTOMER_AS_OF("findCustomerAsOf"),
+    FIND_CUSTOMER_HISTORY("findCustomerHistory"),
+    UPDATE_CUSTOMER("updateCustomer"),
+    DELETE_CUSTOMER_BY_ID("deleteCustomerById"),
+    DELETE_CUSTOMERS_BY_ID("deleteCustomersById");
+
+    private final String tagValue;
+
+    ServiceOperation(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+}
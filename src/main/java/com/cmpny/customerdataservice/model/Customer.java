@@ -1,19 +1,31 @@
 package com.cmpny.customerdataservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
+import java.util.Locale;
 import java.util.UUID;
 
 /**
  * Java object wrapper to model Customer information
- * to and from the Database
+ * to and from the Database. The indexes serve the searches of {@link CustomerQuery}, which lists their columns
  */
 @Entity
-@Table
+@Table(indexes = {
+        @Index(name = "idx_customer_last_name_first_name", columnList = "last_name, first_name"),
+        @Index(name = "idx_customer_phone_number_last_name_first_name", columnList = "phone_number, last_name, first_name")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customer")
+@NaturalIdCache(region = "customer-email")
 @Data
 @Builder
 @AllArgsConstructor
@@ -30,9 +42,40 @@ public class Customer {
     private String middleName;
     @Column(nullable = false)
     private String lastName;
+    @Column(nullable = false)
+    private String emailAddress; // as provided by the customer
+    @JsonIgnore
+    @NaturalId(mutable = true)
     @Column(unique = true, nullable = false)
-    private String emailAddress; // unique
+    private String normalizedEmailAddress; // unique, lookup key derived from emailAddress
     @Column(nullable = false)
     private String phoneNumber;
 
+    /**
+     * Also refreshes the normalized email, so natural-id lookups in the same session see the change before flush
+     * @param emailAddress email address as provided by the customer
+     */
+    public void setEmailAddress(String emailAddress) {
+        this.emailAddress = emailAddress;
+        this.normalizedEmailAddress = normalizeEmail(emailAddress);
+    }
+
+    /**
+     * Keeps the normalized email column in sync with the email address on every write,
+     * so lookups and the uniqueness check can use its index instead of LOWER(email) scans
+     */
+    @PrePersist
+    @PreUpdate
+    void normalizeEmailAddress() {
+        this.normalizedEmailAddress = normalizeEmail(emailAddress);
+    }
+
+    /**
+     * Normalizes an email address into the form stored in the normalized email column
+     * @param email email address to normalize
+     * @return trimmed, lower cased email address or null if email is null
+     */
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
 }
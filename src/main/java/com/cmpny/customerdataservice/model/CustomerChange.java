@@ -0,0 +1,23 @@
+package com.cmpny.customerdataservice.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Kind of write that produced a {@link CustomerVersion}. Stored by ordinal, so new kinds go at the end
+ */
+public enum CustomerChange {
+    CREATE("create"),
+    UPDATE("update"),
+    DELETE("delete");
+
+    private final String tagValue;
+
+    CustomerChange(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    @JsonValue
+    public String tagValue() {
+        return tagValue;
+    }
+}
@@ -0,0 +1,70 @@
+package com.cmpny.customerdataservice.model;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Read and compaction access to the customer history. Versions are appended by the history recorder with plain
+ * JDBC, so there are no save methods. Every lookup goes through the index on customer id and valid from
+ */
+public interface CustomerHistoryRepository extends Repository<CustomerVersion, Long> {
+
+    /**
+     * @param customerId id of the customer
+     * @return all retained versions of the customer, oldest first
+     */
+    List<CustomerVersion> findByCustomerIdOrderByValidFromAscIdAsc(UUID customerId);
+
+    /**
+     * @param customerId id of the customer
+     * @param asOf point in time to look at
+     * @return the version in effect at that time, the latest one that is not newer
+     */
+    Optional<CustomerVersion> findFirstByCustomerIdAndValidFromLessThanEqualOrderByValidFromDescIdDesc(UUID customerId,
+                                                                                                       Instant asOf);
+
+    /**
+     * Next batch of customers with versions older than the horizon, walking the index on customer id and valid from
+     * in customer id order so that compaction reads every version once per run
+     * @param after customer id the previous batch ended with, the nil UUID for the first batch
+     * @param horizon point in time versions must be older than
+     * @param batchSize maximum number of customers returned
+     * @return customer ids in ascending order
+     */
+    @Query("SELECT v.customerId FROM CustomerVersion v WHERE v.customerId > :after AND v.validFrom < :horizon " +
+            "GROUP BY v.customerId ORDER BY v.customerId")
+    List<UUID> findCustomerIdsWithVersionsBefore(UUID after, Instant horizon, Limit batchSize);
+
+    /**
+     * Removes the versions of the given customers that were superseded before the horizon, keeping for each customer
+     * the version in effect at the horizon so as-of reads from the horizon on keep their answer. A delete before the
+     * horizon is removed too, together with everything before it, so deleted customers eventually leave the history.
+     * Only the versions of these customers are read, through the index
+     * @param customerIds customers to compact
+     * @param horizon versions superseded before this point are removed
+     * @param deleted ordinal of {@link CustomerChange#DELETE}
+     * @return number of versions removed
+     */
+    @Transactional
+    @Modifying
+    // only the history table changes, without the hint hibernate would evict every second-level cache region
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "customer_history"))
+    @Query(value = "DELETE FROM customer_history WHERE id IN (SELECT id FROM (" +
+            "SELECT id, change_type, LEAD(id) OVER (PARTITION BY customer_id ORDER BY valid_from, id) AS next_id " +
+            "FROM customer_history WHERE customer_id IN :customerIds AND valid_from < :horizon) versions " +
+            "WHERE next_id IS NOT NULL OR change_type = :deleted)",
+            nativeQuery = true)
+    int deleteSupersededBefore(Collection<UUID> customerIds, Instant horizon, int deleted);
+}
@@ -0,0 +1,78 @@
+package com.cmpny.customerdataservice.model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Search over customers: equality filters, ascending sort and a row limit. Only searches an index of the customer
+ * table can answer without scanning or sorting the table are supported, see {@link #isIndexed(Set, List)}
+ * @param filters field name to the value it has to equal
+ * @param sort fields to sort by, ascending, in order
+ * @param limit maximum number of customers returned
+ */
+public record CustomerQuery(Map<String, String> filters, List<String> sort, int limit) {
+
+    /**
+     * Fields that can be filtered or sorted by
+     */
+    public static final List<String> FIELDS = List.of("lastName", "firstName", "phoneNumber", "id");
+
+    /**
+     * Columns of the indexes declared on {@link Customer} (and its primary key), as field names
+     */
+    static final List<List<String>> INDEXES = List.of(
+            List.of("id"),
+            List.of("lastName", "firstName"),
+            List.of("phoneNumber", "lastName", "firstName"));
+
+    public CustomerQuery {
+        filters = Map.copyOf(filters);
+        sort = List.copyOf(sort);
+    }
+
+    /**
+     * A search is indexed when some index starts with the filtered fields, in any order, and continues with the
+     * sort fields in order, so the database reads only the matching rows and reads them already sorted. Sorting by
+     * a filtered field is free, it is the same for every row
+     * @param filtered fields filtered by equality
+     * @param sort fields to sort by
+     * @return whether an index can serve the search
+     */
+    public static boolean isIndexed(Set<String> filtered, List<String> sort) {
+        return indexOrder(filtered, sort).isPresent();
+    }
+
+    /**
+     * The sort spelled out as the leading columns of the index that serves the search, filtered ones included. It
+     * orders the rows the same way as {@link #sort()}, since the filtered fields are the same for every row, but
+     * lets the database see that reading the index returns them in that order
+     * @return fields to order the rows by, empty when the search is not indexed or sorted by filtered fields only
+     */
+    public List<String> indexOrder() {
+        if (filters.keySet().containsAll(sort)) {
+            return List.of();
+        }
+        return indexOrder(filters.keySet(), sort).orElse(List.of());
+    }
+
+    private static Optional<List<String>> indexOrder(Set<String> filtered, List<String> sort) {
+        List<String> sortAfterFilters = new ArrayList<>(sort);
+        sortAfterFilters.removeAll(filtered);
+        if (new HashSet<>(sortAfterFilters).size() != sortAfterFilters.size()) {
+            return Optional.empty();
+        }
+        int columns = filtered.size() + sortAfterFilters.size();
+        for (List<String> index : INDEXES) {
+            if (index.size() >= columns
+                    && new HashSet<>(index.subList(0, filtered.size())).equals(filtered)
+                    && index.subList(filtered.size(), columns).equals(sortAfterFilters)) {
+                return Optional.of(index.subList(0, columns));
+            }
+        }
+        return Optional.empty();
+    }
+}
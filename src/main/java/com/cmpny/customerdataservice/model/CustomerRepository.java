@@ -1,6 +1,8 @@
 package com.cmpny.customerdataservice.model;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -8,13 +10,22 @@ import java.util.UUID;
  * Repository interface to interact with DB using JPA
  * to save and load Customer information
  */
-public interface CustomerRepository extends CrudRepository<Customer, UUID> {
+public interface CustomerRepository extends CrudRepository<Customer, UUID>, CustomerRepositoryCustom {
 
     /**
      * Utility method to retrieve record based on email address as its one
-     * of the other unique fields besides customer id
-     * @param email email to lookup customer info
+     * of the other unique fields besides customer id, served by the unique index
+     * on the normalized email column. Always queries the database, prefer {@link #findByNaturalId(String)}
+     * for single lookups
+     * @param normalizedEmail email already normalized with {@link Customer#normalizeEmail(String)}
      * @return Customer object
      */
-    Optional<Customer> findByEmailAddress(String email);
+    Optional<Customer> findByNormalizedEmailAddress(String normalizedEmail);
+
+    /**
+     * Loads all customers for a set of emails in one query, used to upsert a batch of customers by email
+     * @param normalizedEmails emails already normalized with {@link Customer#normalizeEmail(String)}
+     * @return customers that exist for any of the emails
+     */
+    List<Customer> findByNormalizedEmailAddressIn(Collection<String> normalizedEmails);
 }
@@ -0,0 +1,71 @@
+package com.cmpny.customerdataservice.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository fragment for lookups that need Hibernate specific APIs beyond derived queries
+ */
+public interface CustomerRepositoryCustom {
+
+    /**
+     * Loads a customer by its natural id, the normalized email address. Resolution goes through the persistence
+     * context and the natural-id cache (when the second-level cache is enabled) before hitting the database
+     * @param normalizedEmail email already normalized with {@link Customer#normalizeEmail(String)}
+     * @return Customer object
+     */
+    Optional<Customer> findByNaturalId(String normalizedEmail);
+
+    /**
+     * Projects all customers into read models, selecting only the requested columns. No entities are
+     * loaded into the persistence context
+     * @param fields fields to select (see {@link CustomerView#FIELDS}), all fields when empty
+     * @return list of customer views, fields that were not selected are null
+     */
+    List<CustomerView> findAllViews(Set<String> fields);
+
+    /**
+     * Runs a search, projecting the matching customers into read models like {@link #findAllViews(Set)}. Callers
+     * are expected to only pass searches that are {@link CustomerQuery#isIndexed(Set, List) indexed}, rows are
+     * ordered by {@link CustomerQuery#indexOrder()}
+     * @param query filters, sort and limit
+     * @param fields fields to select (see {@link CustomerView#FIELDS}), all fields when empty
+     * @return matching customer views in the requested order, at most limit of them
+     */
+    List<CustomerView> findViews(CustomerQuery query, Set<String> fields);
+
+    /**
+     * Keyset pagination over all customers in id order, each page picks up right after the last id of the
+     * previous one so a full table scan only ever holds one page in memory and no offset has to be skipped
+     * @param afterId id of the last customer of the previous page, null for the first page
+     * @param pageSize maximum number of customers to return
+     * @return next page of customer views, empty once the end of the table is reached
+     */
+    List<CustomerView> findViewPageAfter(UUID afterId, int pageSize);
+
+    /**
+     * Deletes a customer with one DELETE statement, without loading it. Like the bulk delete the history version is
+     * appended with an INSERT ... SELECT, but the statements only tell Hibernate that the history table changed, so
+     * it keeps both cache regions. Once the transaction completed, only this customer and its email (if the customer
+     * was in the second-level cache, which is where the email is read from) are evicted. A stale email entry left
+     * behind resolves to the deleted id, whose lookup then finds nothing
+     * @param id id of the customer to delete
+     * @return number of rows deleted, 0 if there was no such customer
+     */
+    int deleteCustomerById(UUID id);
+
+    /**
+     * Deletes customers by id in one transaction, with one DELETE ... WHERE id IN (...) statement per chunk of ids so
+     * neither the statement nor its parameter list grows with the number of ids. No entities are loaded, so Hibernate
+     * cannot tell which customers went away and evicts the whole customer and natural-id cache regions once the
+     * statements have run: after a purge every customer is read from the database again. Each chunk appends its
+     * deletes to the customer history with one INSERT ... SELECT, for the ids that existed
+     * @param ids ids of the customers to delete, ids that do not exist are ignored
+     * @param chunkSize maximum number of ids per statement
+     * @return number of rows deleted
+     */
+    int deleteCustomersByIds(Collection<UUID> ids, int chunkSize);
+}
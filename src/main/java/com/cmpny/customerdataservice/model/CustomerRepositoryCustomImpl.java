@@ -0,0 +1,203 @@
+package com.cmpny.customerdataservice.model;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.Session;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.hibernate.engine.internal.CacheHelper;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Hibernate backed implementation of {@link CustomerRepositoryCustom}
+ */
+class CustomerRepositoryCustomImpl implements CustomerRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${customerdataservice.history.enabled:true}")
+    private boolean historyEnabled;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Customer> findByNaturalId(String normalizedEmail) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Customer.class)
+                .loadOptional(normalizedEmail);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CustomerView> findAllViews(Set<String> fields) {
+        List<String> selected = selected(fields);
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Customer> customer = query.from(Customer.class);
+        query.multiselect(columns(customer, selected));
+
+        return entityManager.createQuery(query).getResultStream()
+                .map(tuple -> toView(tuple, selected))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CustomerView> findViews(CustomerQuery customerQuery, Set<String> fields) {
+        List<String> selected = selected(fields);
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Customer> customer = query.from(Customer.class);
+        query.multiselect(columns(customer, selected));
+        query.where(customerQuery.filters().entrySet().stream()
+                .map(filter -> criteriaBuilder.equal(customer.get(filter.getKey()), filter.getValue()))
+                .toArray(Predicate[]::new));
+        query.orderBy(customerQuery.indexOrder().stream()
+                .map(field -> criteriaBuilder.asc(customer.get(field)))
+                .toList());
+
+        return entityManager.createQuery(query).setMaxResults(customerQuery.limit()).getResultStream()
+                .map(tuple -> toView(tuple, selected))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CustomerView> findViewPageAfter(UUID afterId, int pageSize) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Customer> customer = query.from(Customer.class);
+        query.multiselect(columns(customer, CustomerView.FIELDS));
+        if (afterId != null) {
+            query.where(criteriaBuilder.greaterThan(customer.get("id"), afterId));
+        }
+        query.orderBy(criteriaBuilder.asc(customer.get("id")));
+
+        return entityManager.createQuery(query).setMaxResults(pageSize).getResultStream()
+                .map(tuple -> toView(tuple, CustomerView.FIELDS))
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public int deleteCustomerById(UUID id) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Customer.class);
+        String normalizedEmail = cachedNormalizedEmail(session, persister, id);
+
+        if (historyEnabled) {
+            entityManager.createNativeQuery("INSERT INTO customer_history (customer_id, valid_from, change_type) "
+                            + "SELECT id, :validFrom, :change FROM customer WHERE id = :id")
+                    .setParameter("validFrom", Instant.now().truncatedTo(ChronoUnit.MICROS))
+                    .setParameter("change", CustomerChange.DELETE.ordinal())
+                    .setParameter("id", id)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace("customer_history")
+                    .executeUpdate();
+        }
+        int deleted = entityManager.createNativeQuery("DELETE FROM customer WHERE id = :id")
+                .setParameter("id", id)
+                // no cached entity maps customer_history, so hibernate keeps the regions, only this customer is
+                // evicted below
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("customer_history")
+                .executeUpdate();
+
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> {
+            completed.getFactory().getCache().evict(Customer.class, id);
+            NaturalIdDataAccess naturalIdCache = persister.getNaturalIdMapping().getCacheAccess();
+            if (normalizedEmail != null && naturalIdCache != null) {
+                naturalIdCache.evict(naturalIdCache.generateCacheKey(normalizedEmail, persister, completed));
+            }
+        });
+        return deleted;
+    }
+
+    @Override
+    @Transactional
+    public int deleteCustomersByIds(Collection<UUID> ids, int chunkSize) {
+        List<UUID> distinct = List.copyOf(new LinkedHashSet<>(ids));
+        Instant deletedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        int deleted = 0;
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            List<UUID> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+            if (historyEnabled) {
+                entityManager.createNativeQuery("INSERT INTO customer_history (customer_id, valid_from, change_type) "
+                                + "SELECT id, :validFrom, :change FROM customer WHERE id IN :ids")
+                        .setParameter("validFrom", deletedAt)
+                        .setParameter("change", CustomerChange.DELETE.ordinal())
+                        .setParameter("ids", chunk)
+                        // only the history table changes, keep hibernate from evicting every cache region
+                        .unwrap(NativeQuery.class)
+                        .addSynchronizedQuerySpace("customer_history")
+                        .executeUpdate();
+            }
+            deleted += entityManager.createQuery("DELETE FROM Customer c WHERE c.id IN :ids")
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+        }
+        return deleted;
+    }
+
+    /**
+     * @return the normalized email of the customer's second-level cache entry, null if it is not cached
+     */
+    private static String cachedNormalizedEmail(SessionImplementor session, EntityPersister persister, UUID id) {
+        if (!persister.canReadFromCache()) {
+            return null;
+        }
+        EntityDataAccess cache = persister.getCacheAccessStrategy();
+        Object cacheKey = cache.generateCacheKey(id, persister, session.getFactory(), null);
+        if (!(CacheHelper.fromSharedCache(session, cacheKey, persister, cache) instanceof CacheEntry entry)) {
+            return null;
+        }
+        return (String) entry.getDisassembledState()[persister.getPropertyIndex("normalizedEmailAddress")];
+    }
+
+    private static List<String> selected(Set<String> fields) {
+        return fields.isEmpty() ? CustomerView.FIELDS : CustomerView.FIELDS.stream().filter(fields::contains).toList();
+    }
+
+    private static List<Selection<?>> columns(Root<Customer> customer, List<String> selected) {
+        return selected.stream()
+                .<Selection<?>>map(field -> customer.get(field).alias(field))
+                .toList();
+    }
+
+    private static CustomerView toView(Tuple tuple, List<String> selected) {
+        return new CustomerView(
+                value(tuple, selected, "id", UUID.class),
+                value(tuple, selected, "firstName", String.class),
+                value(tuple, selected, "middleName", String.class),
+                value(tuple, selected, "lastName", String.class),
+                value(tuple, selected, "emailAddress", String.class),
+                value(tuple, selected, "phoneNumber", String.class));
+    }
+
+    private static <T> T value(Tuple tuple, List<String> selected, String field, Class<T> type) {
+        return selected.contains(field) ? tuple.get(field, type) : null;
+    }
+}
@@ -0,0 +1,68 @@
+package com.cmpny.customerdataservice.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of the customer fields kept by {@link CustomerVersion}: a format byte, a byte with one
+ * bit per field that is set, then each set field as length prefixed modified UTF-8. The id and the normalized email
+ * are not stored, the id is a column of the version and the normalized email is derived from the email. A typical
+ * customer takes about 60 bytes, less than half of its JSON
+ */
+public final class CustomerSnapshot {
+
+    private static final int FORMAT = 1;
+    private static final int FIELDS = 5;
+
+    private CustomerSnapshot() {
+    }
+
+    public static byte[] encode(Customer customer) {
+        String[] values = {customer.getFirstName(), customer.getMiddleName(), customer.getLastName(),
+                customer.getEmailAddress(), customer.getPhoneNumber()};
+        int present = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            if (values[field] != null) {
+                present |= 1 << field;
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(FORMAT);
+            output.writeByte(present);
+            for (String value : values) {
+                if (value != null) {
+                    output.writeUTF(value);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static CustomerView decode(UUID id, byte[] snapshot) {
+        String[] values = new String[FIELDS];
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            int format = input.readUnsignedByte();
+            if (format != FORMAT) {
+                throw new IllegalArgumentException("Unknown customer snapshot format " + format);
+            }
+            int present = input.readUnsignedByte();
+            for (int field = 0; field < FIELDS; field++) {
+                if ((present & 1 << field) != 0) {
+                    values[field] = input.readUTF();
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return new CustomerView(id, values[0], values[1], values[2], values[3], values[4]);
+    }
+}
@@ -0,0 +1,54 @@
+package com.cmpny.customerdataservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * One version of a customer in the append-only customer history, written in the same transaction as the change
+ * that produced it. The index on customer id and valid from is the per-customer version index that history and
+ * as-of reads go through. Versions are never updated, only removed by compaction
+ */
+@Entity
+@Immutable
+@Table(name = "customer_history", indexes = {
+        @Index(name = "idx_customer_history_customer_id_valid_from", columnList = "customer_id, valid_from")
+})
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerVersion {
+
+    /**
+     * Appends a version, see {@link CustomerSnapshot} for the encoding of the snapshot column
+     */
+    public static final String INSERT = "INSERT INTO customer_history (customer_id, valid_from, change_type, snapshot) "
+            + "VALUES (?, ?, ?, ?)";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // increases with every version, orders versions with the same valid from
+    @Column(nullable = false)
+    private UUID customerId;
+    @Column(nullable = false)
+    private Instant validFrom;
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "change_type", nullable = false)
+    private CustomerChange change;
+    @Column(length = 4096)
+    private byte[] snapshot; // encoded by CustomerSnapshot, null for deletes
+
+    /**
+     * @return the customer as of this version, empty if it was deleted by it
+     */
+    public Optional<CustomerView> toView() {
+        return snapshot == null ? Optional.empty()
+                : Optional.of(CustomerSnapshot.decode(customerId, snapshot));
+    }
+}
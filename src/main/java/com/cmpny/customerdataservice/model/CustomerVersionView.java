@@ -0,0 +1,16 @@
+package com.cmpny.customerdataservice.model;
+
+import java.time.Instant;
+
+/**
+ * Read model of a {@link CustomerVersion} returned by GET /customer/history
+ * @param validFrom when the change that produced the version was written
+ * @param change kind of change
+ * @param customer the customer as of the version, null for a delete
+ */
+public record CustomerVersionView(Instant validFrom, CustomerChange change, CustomerView customer) {
+
+    public static CustomerVersionView from(CustomerVersion version) {
+        return new CustomerVersionView(version.getValidFrom(), version.getChange(), version.toView().orElse(null));
+    }
+}
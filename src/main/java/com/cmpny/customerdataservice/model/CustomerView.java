@@ -0,0 +1,26 @@
+package com.cmpny.customerdataservice.model;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable read model of a customer returned by the read endpoints, detached from the
+ * persistence context so loading it does not cost any dirty checking state
+ */
+public record CustomerView(UUID id,
+                           String firstName,
+                           String middleName,
+                           String lastName,
+                           String emailAddress,
+                           String phoneNumber) {
+
+    /**
+     * Field names that can be requested as a sparse fieldset, in serialization order
+     */
+    public static final List<String> FIELDS = List.of("id", "firstName", "middleName", "lastName", "emailAddress", "phoneNumber");
+
+    public static CustomerView from(Customer customer) {
+        return new CustomerView(customer.getId(), customer.getFirstName(), customer.getMiddleName(),
+                customer.getLastName(), customer.getEmailAddress(), customer.getPhoneNumber());
+    }
+}
@@ -0,0 +1,100 @@
+package com.cmpny.customerdataservice.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to the latency the service is actually seeing, using a gradient algorithm:
+ * the limit shrinks when the short term latency rises above the long term average (requests are queueing
+ * somewhere, usually on the connection pool) and grows by a small queue allowance while latency stays flat.
+ *
+ * Admission is a lock free compare and set on the in flight count, lower priorities are only admitted
+ * while there is headroom left below their share of the limit, so point lookups keep going when bulk
+ * traffic is already being shed
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_RTT_WEIGHT = 1d / 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double longRttNanos;
+
+    /**
+     * @param initialLimit starting concurrency limit
+     * @param minLimit lower bound of the limit
+     * @param maxLimit upper bound of the limit
+     * @param tolerance how much the short term latency may exceed the long term average before the limit shrinks
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit || tolerance < 1) {
+            throw new IllegalArgumentException("Invalid concurrency limits");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Admits a request if its priority still has room under the current limit, callers that are admitted must
+     * call {@link #release(long)} once the request completes
+     * @param priority priority of the request
+     * @return true if admitted
+     */
+    public boolean tryAcquire(RequestPriority priority) {
+        int allowed = Math.max(1, (int) (limit * priority.limitShare()));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted request
+     * @param rttNanos time the request took, or a negative value if it failed and should not be sampled
+     */
+    public void release(long rttNanos) {
+        int current = inFlight.getAndDecrement();
+        if (rttNanos > 0) {
+            update(rttNanos, current);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtCompletion) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) * LONG_RTT_WEIGHT;
+        }
+
+        // only adapt while the limit is actually being used, an idle service tells nothing about its capacity
+        double current = limit;
+        if (inFlightAtCompletion < current / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / rttNanos));
+        double queueAllowance = Math.sqrt(current);
+        double next = current * gradient + queueAllowance;
+        next = current * (1 - SMOOTHING) + next * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+}
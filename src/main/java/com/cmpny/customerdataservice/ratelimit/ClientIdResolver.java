@@ -0,0 +1,37 @@
+package com.cmpny.customerdataservice.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides which client a request is accounted to, for rate limits and idempotency keys. The X-Client-Id header is
+ * set by the client, so any caller could rotate it to get a fresh bucket. It is only used when
+ * customerdataservice.ratelimit.client.trust-client-id-header is set, for deployments behind a proxy that sets or
+ * strips it. Otherwise the remote address is used, which behind a proxy needs server.forward-headers-strategy
+ */
+@Component
+public class ClientIdResolver {
+
+    static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private final boolean trustClientIdHeader;
+
+    public ClientIdResolver(@Value("${customerdataservice.ratelimit.client.trust-client-id-header:false}")
+                            boolean trustClientIdHeader) {
+        this.trustClientIdHeader = trustClientIdHeader;
+    }
+
+    /**
+     * @return the client a request is accounted to, its X-Client-Id header if trusted or else its remote address
+     */
+    public String clientId(HttpServletRequest request) {
+        if (trustClientIdHeader) {
+            String clientId = request.getHeader(CLIENT_ID_HEADER);
+            if (clientId != null && !clientId.isBlank()) {
+                return clientId;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
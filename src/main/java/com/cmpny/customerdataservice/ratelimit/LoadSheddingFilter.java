@@ -0,0 +1,203 @@
+package com.cmpny.customerdataservice.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Turns requests away before they reach the controller once the service is overloaded, instead of letting
+ * them queue in tomcat until every request is slow:
+ * <ul>
+ *     <li>each client (see {@link ClientIdResolver}) has its own token bucket, 429 when it is empty</li>
+ *     <li>each bulk endpoint has a token bucket shared by all clients, 429 when it is empty. Endpoints are told
+ *     apart by route, so /customers/exports/{id} is one endpoint whatever the id, and unknown paths share one</li>
+ *     <li>an {@link AdaptiveConcurrencyLimiter} bounds the requests in flight, 503 once the priority of the
+ *     request has no headroom left</li>
+ * </ul>
+ * Rejections carry a Retry-After header and no body. Actuator endpoints are never shed so probes keep working.
+ * Requests marked with {@link #excludeFromSampling} still hold a permit but do not feed their latency to the limiter.
+ * Runs after the http.server.requests observation filter so shed requests still show up there
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    public static final String UNSAMPLED_ATTRIBUTE = LoadSheddingFilter.class.getName() + ".UNSAMPLED";
+
+    @Value("${customerdataservice.ratelimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${customerdataservice.ratelimit.client.permits-per-second:500}")
+    private double clientPermitsPerSecond;
+
+    @Value("${customerdataservice.ratelimit.client.burst:1000}")
+    private int clientBurst;
+
+    @Value("${customerdataservice.ratelimit.bulk.permits-per-second:20}")
+    private double bulkPermitsPerSecond;
+
+    @Value("${customerdataservice.ratelimit.bulk.burst:40}")
+    private int bulkBurst;
+
+    @Value("${customerdataservice.ratelimit.concurrency.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${customerdataservice.ratelimit.concurrency.min-limit:4}")
+    private int minLimit;
+
+    @Value("${customerdataservice.ratelimit.concurrency.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${customerdataservice.ratelimit.concurrency.tolerance:1.5}")
+    private double tolerance;
+
+    @Autowired
+    private ClientIdResolver clientIdResolver;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final List<PathPattern> ROUTES = Stream.of("/customer", "/customer/history", "/customerByEmail",
+                    "/customers", "/customers/exports", "/customers/exports/{id}", "/customers/exports/{id}/file",
+                    "/customers/imports", "/customers/imports/{id}")
+            .map(PathPatternParser.defaultInstance::parse)
+            .toList();
+
+    private Cache<String, TokenBucket> clientBuckets;
+    private Cache<String, TokenBucket> endpointBuckets;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private Counter[][] rejections;
+
+    private enum Reason {
+        CLIENT, ENDPOINT, CONCURRENCY
+    }
+
+    @Override
+    protected void initFilterBean() {
+        clientBuckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        endpointBuckets = Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .build();
+        concurrencyLimiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance);
+
+        rejections = new Counter[Reason.values().length][RequestPriority.values().length];
+        for (Reason reason : Reason.values()) {
+            for (RequestPriority priority : RequestPriority.values()) {
+                rejections[reason.ordinal()][priority.ordinal()] = Counter.builder("customerdataservice.ratelimit.rejected")
+                        .description("Requests shed before reaching the controller")
+                        .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                        .tag("priority", priority.tagValue())
+                        .register(meterRegistry);
+            }
+        }
+        Gauge.builder("customerdataservice.ratelimit.concurrency.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::getLimit)
+                .register(meterRegistry);
+        Gauge.builder("customerdataservice.ratelimit.concurrency.inflight", concurrencyLimiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || request.getRequestURI().startsWith(request.getContextPath() + "/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        RequestPriority priority = RequestPriority.of(request);
+        long now = System.nanoTime();
+
+        TokenBucket clientBucket = clientBuckets.get(clientIdResolver.clientId(request),
+                client -> new TokenBucket(clientPermitsPerSecond, clientBurst, now));
+        long wait = clientBucket.tryAcquire(now);
+        if (wait > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, Reason.CLIENT, priority, wait);
+            return;
+        }
+
+        if (priority == RequestPriority.BULK) {
+            TokenBucket endpointBucket = endpointBuckets.get(request.getMethod() + " " + route(request),
+                    endpoint -> new TokenBucket(bulkPermitsPerSecond, bulkBurst, now));
+            wait = endpointBucket.tryAcquire(now);
+            if (wait > 0) {
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, Reason.ENDPOINT, priority, wait);
+                return;
+            }
+        }
+
+        if (!concurrencyLimiter.tryAcquire(priority)) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, Reason.CONCURRENCY, priority, TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+
+        boolean sample = false;
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+            sample = response.getStatus() < 500 && request.getAttribute(UNSAMPLED_ATTRIBUTE) == null;
+        } finally {
+            concurrencyLimiter.release(sample ? System.nanoTime() - start : -1);
+        }
+    }
+
+    AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Keeps the latency of a request out of the concurrency limit, for requests whose time is not spent doing work,
+     * such as a retry waiting on the first attempt of the same request
+     */
+    public static void excludeFromSampling(HttpServletRequest request) {
+        request.setAttribute(UNSAMPLED_ATTRIBUTE, Boolean.TRUE);
+    }
+
+    // the filter runs before handler mapping, so the route is matched against the known ones here
+    static String route(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (PathPattern route : ROUTES) {
+            if (route.matches(path)) {
+                return route.getPatternString();
+            }
+        }
+        return "other";
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, Reason reason, RequestPriority priority,
+                        long waitNanos) {
+        rejections[reason.ordinal()][priority.ordinal()].increment();
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        log.debug("Shed {} request, reason {}", priority.tagValue(), reason);
+    }
+}
@@ -0,0 +1,54 @@
+package com.cmpny.customerdataservice.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.List;
+
+/**
+ * Priority classes used when shedding load. Point lookups may use the whole concurrency limit, single writes
+ * and searches most of it, and dumps and bulk operations only half, so they are the first to be turned away
+ */
+public enum RequestPriority {
+    CRITICAL("critical", 1.0),
+    NORMAL("normal", 0.9),
+    BULK("bulk", 0.5);
+
+    private static final List<String> SEARCH_PARAMETERS = List.of("lastName", "firstName", "phoneNumber", "sort", "limit");
+
+    private final String tagValue;
+    private final double limitShare;
+
+    RequestPriority(String tagValue, double limitShare) {
+        this.tagValue = tagValue;
+        this.limitShare = limitShare;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+
+    double limitShare() {
+        return limitShare;
+    }
+
+    /**
+     * @param request incoming request
+     * @return priority class of the request
+     */
+    public static RequestPriority of(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        boolean get = "GET".equals(request.getMethod());
+        if (get && (path.equals("/customer") || path.equals("/customerByEmail"))) {
+            return CRITICAL;
+        }
+        // the history of one customer is read through its version index
+        if (path.equals("/customer") || (get && path.equals("/customer/history"))) {
+            return NORMAL;
+        }
+        // searches are indexed and return at most the search limit, unlike a dump of GET /customers
+        if (get && path.equals("/customers") && SEARCH_PARAMETERS.stream().anyMatch(request.getParameterMap()::containsKey)) {
+            return NORMAL;
+        }
+        return BULK;
+    }
+}
@@ -1,9 +1,15 @@
 package com.cmpny.customerdataservice.service;
 
 import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerQuery;
+import com.cmpny.customerdataservice.model.CustomerVersionView;
+import com.cmpny.customerdataservice.model.CustomerView;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -19,23 +25,47 @@ public interface CustomerDataService {
 
     /**
      * Fetches the current list of customers in the database
+     * @param fields fields to select (see {@link CustomerView#FIELDS}), all fields when empty
      * @return List of customers
      */
-    List<Customer> fetchCustomerList();
+    List<CustomerView> fetchCustomerList(Set<String> fields);
+
+    /**
+     * Searches customers by the filters, sort and limit of an indexed {@link CustomerQuery}
+     * @param query filters, sort and limit
+     * @param fields fields to select (see {@link CustomerView#FIELDS}), all fields when empty
+     * @return matching customers in the requested order
+     */
+    List<CustomerView> findCustomers(CustomerQuery query, Set<String> fields);
 
     /**
      * Finds a customer based on given customer's email address
      * @param email email to lookup.
      * @return customer object if found.
      */
-    Optional<Customer> findCustomerByEmail(String email);
+    Optional<CustomerView> findCustomerByEmail(String email);
 
     /**
      * Finds a customer based on customer Id
      * @param id customer id to lookup
      * @return customer object if found.
      */
-    Optional<Customer> findCustomerById(UUID id);
+    Optional<CustomerView> findCustomerById(UUID id);
+
+    /**
+     * Finds a customer as it was at a point in time, from the customer history
+     * @param id customer id to lookup
+     * @param asOf point in time to look at
+     * @return customer object as of that time, empty if it did not exist then or was deleted
+     */
+    Optional<CustomerView> findCustomerAsOf(UUID id, Instant asOf);
+
+    /**
+     * Lists the retained versions of a customer, one per create, update and delete
+     * @param id customer id to lookup
+     * @return versions of the customer, oldest first, empty if there are none
+     */
+    List<CustomerVersionView> findCustomerHistory(UUID id);
 
     /**
      * Update an existing customer entry in the database with the passed customer information
@@ -49,4 +79,12 @@ public interface CustomerDataService {
      * @param customerId
      */
     void deleteCustomerById(UUID customerId);
+
+    /**
+     * Deletes customers in bulk, e.g. for account purge jobs. All of them are deleted in one transaction, either all
+     * or none
+     * @param customerIds ids of the customers to delete, ids that do not exist are ignored
+     * @return number of customers deleted
+     */
+    int deleteCustomersById(Collection<UUID> customerIds);
 }
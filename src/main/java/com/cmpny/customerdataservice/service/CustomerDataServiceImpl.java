@@ -1,20 +1,30 @@
 package com.cmpny.customerdataservice.service;
 
+import com.cmpny.customerdataservice.cache.CustomerCache;
+import com.cmpny.customerdataservice.deadline.RequestDeadline;
 import com.cmpny.customerdataservice.exception.CustomerDataNotFoundException;
 import com.cmpny.customerdataservice.exception.CustomerDataServiceException;
 import com.cmpny.customerdataservice.exception.CustomerEmailExistsException;
+import com.cmpny.customerdataservice.metrics.CustomerDataMetrics;
+import com.cmpny.customerdataservice.metrics.ServiceOperation;
 import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerHistoryRepository;
+import com.cmpny.customerdataservice.model.CustomerQuery;
 import com.cmpny.customerdataservice.model.CustomerRepository;
-import io.micrometer.core.annotation.Counted;
-import io.micrometer.core.annotation.Timed;
-import io.micrometer.core.instrument.MeterRegistry;
+import com.cmpny.customerdataservice.model.CustomerVersion;
+import com.cmpny.customerdataservice.model.CustomerVersionView;
+import com.cmpny.customerdataservice.model.CustomerView;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Slf4j
@@ -25,54 +35,96 @@ public class CustomerDataServiceImpl implements CustomerDataService {
     CustomerRepository customerRepository;
 
     @Autowired
-    MeterRegistry meterRegistry;
+    CustomerHistoryRepository historyRepository;
+
+    @Autowired
+    CustomerDataMetrics metrics;
+
+    @Autowired
+    CustomerCache customerCache;
+
+    @Value("${customerdataservice.delete.chunk-size:500}")
+    private int deleteChunkSize;
 
     @Override
-    @Counted("customerdataservice.savecustomer")
-    @Timed("customerdataservice.savecustomer")
     public void saveCustomer(Customer customer) {
+        metrics.run(ServiceOperation.SAVE_CUSTOMER, () -> RequestDeadline.run(() -> doSaveCustomer(customer)));
+    }
+
+    private void doSaveCustomer(Customer customer) {
         try {
             customerRepository.save(customer);
+            customerCache.invalidate(customer.getId(), Customer.normalizeEmail(customer.getEmailAddress()));
         } catch (DataIntegrityViolationException ex) {
             // Right now we only have constraint on email so using exception to check conflicts, if we have more constraints,
             // we can add validations before we make the call
-            meterRegistry.counter("customerdataservice.savecustomer.emailexistsexception").increment();
+            metrics.saveCustomerEmailExists();
             throw new CustomerEmailExistsException();
         } catch (Exception ex) {
-            meterRegistry.counter("customerdataservice.savecustomer.exception").increment();
+            metrics.saveCustomerError();
             throw new CustomerDataServiceException(ex);
         }
     }
 
     @Override
-    @Counted("customerdataservice.fetchcustomers")
-    @Timed("customerdataservice.fetchcustomers")
-    public List<Customer> fetchCustomerList() {
-        return (List<Customer>) customerRepository.findAll();
+    public List<CustomerView> fetchCustomerList(Set<String> fields) {
+        return metrics.time(ServiceOperation.FETCH_CUSTOMER_LIST,
+                () -> RequestDeadline.call(() -> customerRepository.findAllViews(fields)));
+    }
+
+    @Override
+    public List<CustomerView> findCustomers(CustomerQuery query, Set<String> fields) {
+        return metrics.time(ServiceOperation.FIND_CUSTOMERS,
+                () -> RequestDeadline.call(() -> customerRepository.findViews(query, fields)));
     }
 
     @Override
-    @Counted("customerdataservice.findcustomer.byemail")
-    @Timed("customerdataservice.findcustomer.byemail")
-    public Optional<Customer> findCustomerByEmail(String email) {
-        return customerRepository.findByEmailAddress(email);
+    public Optional<CustomerView> findCustomerByEmail(String email) {
+        String normalizedEmail = Customer.normalizeEmail(email);
+        return metrics.time(ServiceOperation.FIND_CUSTOMER_BY_EMAIL, () -> RequestDeadline.call(
+                () -> customerCache.findByEmail(normalizedEmail, this::loadCustomerById,
+                        key -> customerRepository.findByNaturalId(key).map(CustomerView::from))));
     }
 
     @Override
-    @Counted("customerdataservice.findcustomer.byid")
-    @Timed("customerdataservice.findcustomer.byid")
-    public Optional<Customer> findCustomerById(UUID id) {
-        return customerRepository.findById(id);
+    public Optional<CustomerView> findCustomerById(UUID id) {
+        return metrics.time(ServiceOperation.FIND_CUSTOMER_BY_ID,
+                () -> RequestDeadline.call(() -> customerCache.findById(id, this::loadCustomerById)));
+    }
+
+    // cache misses only, the repository lookups run in their own read-only transactions so hibernate keeps no
+    // dirty checking snapshot of the loaded entity, and cache hits do not take a connection at all
+    private Optional<CustomerView> loadCustomerById(UUID id) {
+        return customerRepository.findById(id).map(CustomerView::from);
+    }
+
+    // served by the history index rather than the cache, which only holds current versions
+    @Override
+    public Optional<CustomerView> findCustomerAsOf(UUID id, Instant asOf) {
+        return metrics.time(ServiceOperation.FIND_CUSTOMER_AS_OF, () -> RequestDeadline.call(
+                () -> historyRepository.findFirstByCustomerIdAndValidFromLessThanEqualOrderByValidFromDescIdDesc(id, asOf)
+                        .flatMap(CustomerVersion::toView)));
+    }
+
+    @Override
+    public List<CustomerVersionView> findCustomerHistory(UUID id) {
+        return metrics.time(ServiceOperation.FIND_CUSTOMER_HISTORY, () -> RequestDeadline.call(
+                () -> historyRepository.findByCustomerIdOrderByValidFromAscIdAsc(id).stream()
+                        .map(CustomerVersionView::from)
+                        .toList()));
     }
 
     @Override
-    @Counted("customerdataservice.updatecustomer")
-    @Timed("customerdataservice.updatecustomer")
     public Customer updateCustomer(Customer customer) {
+        return metrics.time(ServiceOperation.UPDATE_CUSTOMER, () -> RequestDeadline.call(() -> doUpdateCustomer(customer)));
+    }
+
+    private Customer doUpdateCustomer(Customer customer) {
         Optional<Customer> customerFromDB = customerRepository.findById(customer.getId());
 
         if(customerFromDB.isPresent()) {
             Customer customerToUpdate = customerFromDB.get();
+            String previousEmail = Customer.normalizeEmail(customerToUpdate.getEmailAddress());
             customerToUpdate.setFirstName(customer.getFirstName());
             customerToUpdate.setMiddleName(customer.getMiddleName());
             customerToUpdate.setLastName(customer.getLastName());
@@ -80,30 +132,44 @@ public class CustomerDataServiceImpl implements CustomerDataService {
             customerToUpdate.setPhoneNumber(customer.getPhoneNumber());
 
             try {
-                return customerRepository.save(customerToUpdate);
+                Customer updated = customerRepository.save(customerToUpdate);
+                customerCache.invalidate(customerToUpdate.getId(), previousEmail,
+                        Customer.normalizeEmail(customerToUpdate.getEmailAddress()));
+                return updated;
             } catch (DataIntegrityViolationException ex) {
                 // Right now we only have constraint on email so using exception to check conflicts, if we have more constraints,
                 // we can add validations before we make the call
-                meterRegistry.counter("customerdataservice.updatecustomer.emailexistsexception").increment();
+                metrics.updateCustomerEmailExists();
                 throw new CustomerEmailExistsException();
             }
             catch (Exception ex) {
-                meterRegistry.counter("customerdataservice.updatecustomer.exception").increment();
+                metrics.updateCustomerError();
                 throw new CustomerDataServiceException(ex);
             }
 
         } else {
             log.error("Customer with id {} not found", customer.getId());
-            meterRegistry.counter("customerdataservice.updatecustomer.customernotfoundexception").increment();
+            metrics.updateCustomerNotFound();
             throw new CustomerDataNotFoundException();
         }
 
     }
 
     @Override
-    @Counted("customerdataservice.deletecustomer")
-    @Timed("customerdataservice.deletecustomer")
     public void deleteCustomerById(UUID customerId) {
-            customerRepository.deleteById(customerId);
+        metrics.run(ServiceOperation.DELETE_CUSTOMER_BY_ID, () -> RequestDeadline.run(() -> {
+            // the email to id pointer is checked against the customer on every cached lookup, evicting the id is enough
+            customerRepository.deleteCustomerById(customerId);
+            customerCache.invalidate(customerId);
+        }));
+    }
+
+    @Override
+    public int deleteCustomersById(Collection<UUID> customerIds) {
+        return metrics.time(ServiceOperation.DELETE_CUSTOMERS_BY_ID, () -> RequestDeadline.call(() -> {
+            int deleted = customerRepository.deleteCustomersByIds(customerIds, deleteChunkSize);
+            customerCache.invalidate(customerIds, List.of());
+            return deleted;
+        }));
     }
 }
@@ -1,10 +1,16 @@
 package com.cmpny.customerdataservice.validator;
 
 import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerQuery;
+import com.cmpny.customerdataservice.model.CustomerView;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.validator.routines.EmailValidator;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * Utility class to validate requests to various operations in the
@@ -45,4 +51,34 @@ public class CustomerRequestValidator {
             throw new IllegalArgumentException("Invalid email address provided");
         }
     }
+
+    public static void validateCustomerIds(List<UUID> customerIds, int maxIds) {
+        if (customerIds == null || customerIds.contains(null)) {
+            throw new IllegalArgumentException("Invalid customer Id provided");
+        }
+        if (customerIds.size() > maxIds) {
+            throw new IllegalArgumentException("At most " + maxIds + " customer Ids can be deleted at once");
+        }
+    }
+
+    public static void validateCustomerQuery(Map<String, String> filters, List<String> sort, int limit, int maxLimit) {
+        if (!CustomerQuery.FIELDS.containsAll(filters.keySet()) || !CustomerQuery.FIELDS.containsAll(sort)) {
+            throw new IllegalArgumentException("Invalid filter or sort fields provided");
+        }
+        if (filters.values().stream().anyMatch(StringUtils::isBlank)) {
+            throw new IllegalArgumentException("Invalid filter value provided");
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxLimit);
+        }
+        if (!CustomerQuery.isIndexed(filters.keySet(), sort)) {
+            throw new IllegalArgumentException("Filter and sort combination is not supported");
+        }
+    }
+
+    public static void validateFields(Set<String> fields) {
+        if (fields != null && !CustomerView.FIELDS.containsAll(fields)) {
+            throw new IllegalArgumentException("Invalid fields provided");
+        }
+    }
 }
@@ -0,0 +1,11 @@
+-- Customer table as first released, emails are unique as provided
+CREATE TABLE customer (
+    id UUID NOT NULL,
+    first_name VARCHAR(255) NOT NULL,
+    middle_name VARCHAR(255),
+    last_name VARCHAR(255) NOT NULL,
+    email_address VARCHAR(255) NOT NULL,
+    phone_number VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_customer_email_address UNIQUE (email_address)
+);
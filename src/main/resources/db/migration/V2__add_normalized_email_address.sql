@@ -0,0 +1,3 @@
+-- Expand: nullable and unconstrained, so adding it does not rewrite or lock the table and writers that do not know
+-- the column yet keep working. V3 backfills it, V4 adds the constraints
+ALTER TABLE customer ADD COLUMN normalized_email_address VARCHAR(255);
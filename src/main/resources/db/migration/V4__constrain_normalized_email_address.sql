@@ -0,0 +1,7 @@
+-- Contract: every row has a normalized email once V3 ran, it becomes the unique lookup key and replaces the
+-- uniqueness of the email as provided. Applied in the same release as V2 and V3 this assumes no instance of a release
+-- that does not write the column is still running, for a rolling upgrade from such a release ship it one release later.
+-- Customers whose emails only differ in case or whitespace are reported by V3 (EmailIndexBackfill) before this runs
+ALTER TABLE customer ALTER COLUMN normalized_email_address SET NOT NULL;
+ALTER TABLE customer ADD CONSTRAINT uk_customer_normalized_email_address UNIQUE (normalized_email_address);
+ALTER TABLE customer DROP CONSTRAINT uk_customer_email_address;
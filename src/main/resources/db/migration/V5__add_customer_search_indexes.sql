@@ -0,0 +1,3 @@
+-- Indexes serving the GET /customers searches, see CustomerQuery
+CREATE INDEX idx_customer_last_name_first_name ON customer (last_name, first_name);
+CREATE INDEX idx_customer_phone_number_last_name_first_name ON customer (phone_number, last_name, first_name);
@@ -0,0 +1,10 @@
+-- Append-only customer history, see CustomerVersion. change_type is the ordinal of CustomerChange
+CREATE TABLE customer_history (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    customer_id UUID NOT NULL,
+    valid_from TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    change_type TINYINT NOT NULL CHECK (change_type BETWEEN 0 AND 2),
+    snapshot VARBINARY(4096),
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_customer_history_customer_id_valid_from ON customer_history (customer_id, valid_from);
@@ -0,0 +1,178 @@
+package com.cmpny.customerdataservice.perf;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summary of a load test run, written as YAML next to the HdrHistogram percentile distributions of each operation.
+ * A report kept under src/perf/baselines is the baseline later runs of the same profile are gated against.
+ * Latencies are in milliseconds and coordinated omission corrected, except serviceTimeP99
+ * @param profile name of the profile run
+ * @param rate offered requests per second
+ * @param duration measured time
+ * @param total all operations together
+ * @param operations per operation, by {@link Operation#profileName()}
+ * @param sustainableThroughput successful requests per second of the highest ramp step that met its latency objective
+ *                              and the error budget, null when the profile has no ramp
+ */
+record LoadReport(String profile, double rate, Duration duration, Stats total, Map<String, Stats> operations,
+                  Double sustainableThroughput) {
+
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+    // below this many requests a p99 is too noisy to gate on
+    private static final long MIN_GATED_REQUESTS = 100;
+
+    /**
+     * @param requests requests arrived, including those not sent because max in flight was reached
+     * @param errors requests failed, timed out or not sent
+     * @param throughput successful requests per second, at most the offered rate
+     * @param serviceTimeP99 p99 of the time from send to response, without the time spent queued behind earlier
+     *                       requests, for comparison with p99
+     */
+    record Stats(long requests, long errors, double throughput, double errorRate, double p50, double p90, double p99,
+                 double p999, double max, double serviceTimeP99) {
+
+        static Stats of(Histogram latency, Histogram serviceTime, long errors, long rejected, Duration duration) {
+            // arrivals not sent are in the latency histogram at the timeout
+            long requests = latency.getTotalCount();
+            long failed = errors + rejected;
+            return new Stats(requests, failed,
+                    (requests - failed) / (duration.toNanos() / 1_000_000_000d),
+                    requests == 0 ? 0 : (double) failed / requests,
+                    millis(latency, 50), millis(latency, 90), millis(latency, 99), millis(latency, 99.9),
+                    latency.getMaxValue() / NANOS_PER_MILLI,
+                    millis(serviceTime, 99));
+        }
+
+        private static double millis(Histogram histogram, double percentile) {
+            return histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+        }
+    }
+
+    static LoadReport of(WorkloadProfile profile, OpenLoadGenerator.Result result) {
+        Histogram totalLatency = new Histogram(3);
+        Histogram totalServiceTime = new Histogram(3);
+        long totalErrors = 0;
+        long totalRejected = 0;
+        Map<String, Stats> operations = new TreeMap<>();
+        for (Map.Entry<Operation, Histogram> latency : result.latency().entrySet()) {
+            Operation operation = latency.getKey();
+            Histogram serviceTime = result.serviceTime().get(operation);
+            long errors = result.errors().get(operation);
+            long rejected = result.rejected().get(operation);
+            operations.put(operation.profileName(),
+                    Stats.of(latency.getValue(), serviceTime, errors, rejected, result.duration()));
+            totalLatency.add(latency.getValue());
+            totalServiceTime.add(serviceTime);
+            totalErrors += errors;
+            totalRejected += rejected;
+        }
+        return new LoadReport(profile.name(), profile.rate(), result.duration(),
+                Stats.of(totalLatency, totalServiceTime, totalErrors, totalRejected, result.duration()), operations,
+                null);
+    }
+
+    LoadReport withSustainableThroughput(double sustainableThroughput) {
+        return new LoadReport(profile, rate, duration, total, operations, sustainableThroughput);
+    }
+
+    static LoadReport read(Path path) throws IOException {
+        return WorkloadProfile.YAML.readValue(path.toFile(), LoadReport.class);
+    }
+
+    void write(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        WorkloadProfile.YAML.writeValue(path.toFile(), this);
+    }
+
+    /**
+     * Writes the corrected latency and service time percentile distributions of every operation in the
+     * HdrHistogram .hgrm format, in milliseconds, e.g. for the HdrHistogram plotter
+     */
+    static void writeDistributions(OpenLoadGenerator.Result result, Path directory, String profile)
+            throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<Operation, Histogram> latency : result.latency().entrySet()) {
+            String prefix = profile + "-" + latency.getKey().profileName();
+            writeDistribution(latency.getValue(), directory.resolve(prefix + "-latency.hgrm"));
+            writeDistribution(result.serviceTime().get(latency.getKey()), directory.resolve(prefix + "-service-time.hgrm"));
+        }
+    }
+
+    private static void writeDistribution(Histogram histogram, Path path) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(path))) {
+            histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    /**
+     * Checks this run against the profile's error budget and, if there is one, against a baseline. The throughput of
+     * the measured phase is not gated, under an open model it only repeats the offered rate; the sustainable
+     * throughput is, when both runs have one
+     * @param gate thresholds
+     * @param baseline earlier run of the same profile, or null
+     * @return one message per threshold exceeded, empty if the run passes
+     */
+    List<String> violations(WorkloadProfile.Gate gate, LoadReport baseline) {
+        List<String> violations = new ArrayList<>();
+        if (total.errorRate() > gate.maxErrorRate()) {
+            violations.add(String.format("error rate %.2f%% exceeds %.2f%%", total.errorRate() * 100,
+                    gate.maxErrorRate() * 100));
+        }
+        if (baseline == null) {
+            return violations;
+        }
+        checkP99("total", total, baseline.total(), gate, violations);
+        operations.forEach((operation, stats) -> {
+            Stats baselineStats = baseline.operations().get(operation);
+            if (baselineStats != null) {
+                checkP99(operation, stats, baselineStats, gate, violations);
+            }
+        });
+        if (sustainableThroughput != null && baseline.sustainableThroughput() != null) {
+            double minThroughput = baseline.sustainableThroughput() * (1 - gate.throughputRegression());
+            if (sustainableThroughput < minThroughput) {
+                violations.add(String.format("sustainable throughput %.1f req/s is below %.1f req/s (baseline %.1f req/s)",
+                        sustainableThroughput, minThroughput, baseline.sustainableThroughput()));
+            }
+        }
+        return violations;
+    }
+
+    private static void checkP99(String name, Stats stats, Stats baseline, WorkloadProfile.Gate gate,
+                                 List<String> violations) {
+        if (stats.requests() < MIN_GATED_REQUESTS || baseline.requests() < MIN_GATED_REQUESTS) {
+            return;
+        }
+        double maxP99 = baseline.p99() * (1 + gate.p99Regression());
+        if (stats.p99() > maxP99) {
+            violations.add(String.format("%s p99 %.2f ms exceeds %.2f ms (baseline %.2f ms)", name, stats.p99(),
+                    maxP99, baseline.p99()));
+        }
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-20s %9s %7s %9s %9s %9s %9s %9s %9s %9s%n", "operation", "requests", "errors", "p50 ms",
+                "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99", "req/s");
+        operations.forEach((operation, stats) -> print(out, operation, stats));
+        print(out, "total", total);
+        if (sustainableThroughput != null) {
+            out.printf("sustainable throughput %.1f req/s%n", sustainableThroughput);
+        }
+    }
+
+    private static void print(PrintStream out, String name, Stats stats) {
+        out.printf("%-20s %9d %7d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %9.1f%n", name, stats.requests(),
+                stats.errors(), stats.p50(), stats.p90(), stats.p99(), stats.p999(), stats.max(),
+                stats.serviceTimeP99(), stats.throughput());
+    }
+}
@@ -0,0 +1,263 @@
+package com.cmpny.customerdataservice.perf;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts the packaged application as a separate process on a free port, seeds it with customers and drives the
+ * workload of a {@link WorkloadProfile} against it over HTTP with an {@link OpenLoadGenerator}: a warm-up that is not
+ * recorded, the measured phase, then the ramp steps if the profile has a ramp. The {@link LoadReport} is printed and
+ * written to the results directory together with the percentile distributions and the application log. The run fails
+ * (exit code 1) when its error rate exceeds the profile's budget or when p99 latency or sustainable throughput
+ * regress beyond the profile's thresholds against the baseline, if there is one. With updateBaseline the run is recorded as the new baseline instead.
+ *
+ * Usage: LoadTest &lt;java executable&gt; &lt;boot jar&gt; &lt;profile name or file&gt; &lt;baseline file&gt;
+ * &lt;results directory&gt; &lt;updateBaseline&gt;, usually through ./gradlew loadTest
+ */
+public final class LoadTest {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    // names may not contain digits, updates rename the customer to one of these
+    private static final String[] FIRST_NAMES = {"Anika", "Bharat", "Chitra", "Dev", "Esha", "Farhan", "Gita", "Hari"};
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private record SeededCustomer(UUID id, String emailAddress) {
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String java = args[0];
+        File jar = new File(args[1]);
+        WorkloadProfile profile = WorkloadProfile.load(args[2]);
+        Path baselineFile = Path.of(args[3]);
+        Path resultsDirectory = Path.of(args[4]);
+        boolean updateBaseline = Boolean.parseBoolean(args[5]);
+        Files.createDirectories(resultsDirectory);
+
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(java, "-jar", jar.getPath(), "--server.port=" + port,
+                "--logging.level.root=WARN"));
+        command.addAll(profile.applicationArguments());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(resultsDirectory.resolve(profile.name() + "-application.log").toFile())
+                .start();
+        LoadReport report;
+        OpenLoadGenerator.Result result;
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(1))
+                    .build();
+            String baseUrl = "http://localhost:" + port;
+            awaitReady(client, baseUrl, process);
+            List<SeededCustomer> customers = seed(client, baseUrl, profile);
+
+            OpenLoadGenerator generator = new OpenLoadGenerator(new HttpClientOperations(client, baseUrl,
+                    profile.timeout(), customers), profile.operationMix(), profile.maxInFlight(), profile.timeout());
+            System.out.printf("Warming up %s at %.0f req/s for %s%n", profile.name(), profile.rate(), profile.warmup());
+            generator.run(profile.rate(), profile.warmup());
+            System.out.printf("Measuring %s at %.0f req/s for %s%n", profile.name(), profile.rate(),
+                    profile.duration());
+            result = generator.run(profile.rate(), profile.duration());
+            report = LoadReport.of(profile, result);
+            if (profile.ramp() != null) {
+                report = report.withSustainableThroughput(sustainableThroughput(generator, profile, report));
+            }
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+
+        report.print(System.out);
+        report.write(resultsDirectory.resolve(profile.name() + ".yaml"));
+        LoadReport.writeDistributions(result, resultsDirectory, profile.name());
+
+        LoadReport baseline = null;
+        if (!updateBaseline && Files.isRegularFile(baselineFile)) {
+            baseline = LoadReport.read(baselineFile);
+        } else if (!updateBaseline) {
+            System.out.println("No baseline " + baselineFile + ", record one with -PloadTest.updateBaseline=true");
+        }
+        List<String> violations = report.violations(profile.gate(), baseline);
+        if (!violations.isEmpty()) {
+            violations.forEach(violation -> System.err.println("Regression: " + violation));
+            System.exit(1);
+        }
+        if (updateBaseline) {
+            report.write(baselineFile);
+            System.out.println("Recorded baseline " + baselineFile);
+        }
+    }
+
+    /**
+     * Raises the offered rate one ramp step at a time, starting from the measured phase, until a step misses the
+     * ramp's p99 or the error budget
+     * @return successful requests per second of the last step that met both, 0 if the measured phase did not
+     */
+    private static double sustainableThroughput(OpenLoadGenerator generator, WorkloadProfile profile,
+                                                LoadReport measured) {
+        WorkloadProfile.Ramp ramp = profile.ramp();
+        if (!sustained(measured.total(), profile)) {
+            return 0;
+        }
+        double sustainable = measured.total().throughput();
+        double rate = profile.rate();
+        for (int step = 0; step < ramp.steps(); step++) {
+            rate *= ramp.factor();
+            System.out.printf("Ramping %s to %.0f req/s for %s%n", profile.name(), rate, ramp.stepDuration());
+            LoadReport.Stats stats = LoadReport.of(profile, generator.run(rate, ramp.stepDuration())).total();
+            if (!sustained(stats, profile)) {
+                System.out.printf("Not sustained at %.0f req/s: p99 %.2f ms, error rate %.2f%%%n", rate, stats.p99(),
+                        stats.errorRate() * 100);
+                break;
+            }
+            sustainable = stats.throughput();
+        }
+        return sustainable;
+    }
+
+    private static boolean sustained(LoadReport.Stats stats, WorkloadProfile profile) {
+        return stats.errorRate() <= profile.gate().maxErrorRate()
+                && stats.p99() <= profile.ramp().maxP99().toNanos() / 1_000_000d;
+    }
+
+    private static void awaitReady(HttpClient client, String baseUrl, Process process) throws Exception {
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue());
+            }
+            try {
+                if (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException ex) {
+                // not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Application not ready within " + STARTUP_TIMEOUT);
+    }
+
+    /**
+     * Creates the profile's seed customers, with emails unique to this run, and returns them as stored
+     */
+    private static List<SeededCustomer> seed(HttpClient client, String baseUrl, WorkloadProfile profile)
+            throws Exception {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            List<Future<Integer>> created = new ArrayList<>();
+            for (int i = 0; i < profile.seedCustomers(); i++) {
+                String email = "seed-" + run + "-" + i + "@loadtest.example.com";
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/customer"))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(customerJson(null, "Seed", email)))
+                        .build();
+                created.add(executor.submit(() -> client.send(request, HttpResponse.BodyHandlers.discarding())
+                        .statusCode()));
+            }
+            for (Future<Integer> status : created) {
+                if (status.get() != 200) {
+                    throw new IllegalStateException("Seeding a customer failed with " + status.get());
+                }
+            }
+        }
+
+        HttpRequest all = HttpRequest.newBuilder(URI.create(baseUrl + "/customers?fields=id,emailAddress")).build();
+        List<SeededCustomer> customers = JSON.readValue(client.send(all, HttpResponse.BodyHandlers.ofString()).body(),
+                new TypeReference<List<SeededCustomer>>() {
+                });
+        System.out.printf("Seeded %d customers, %d in total%n", profile.seedCustomers(), customers.size());
+        return customers;
+    }
+
+    private static String customerJson(UUID id, String firstName, String email) throws IOException {
+        Map<String, Object> customer = new LinkedHashMap<>();
+        if (id != null) {
+            customer.put("id", id);
+        }
+        customer.put("firstName", firstName);
+        customer.put("lastName", "Loadtest");
+        customer.put("emailAddress", email);
+        customer.put("phoneNumber", "4256412243");
+        return JSON.writeValueAsString(customer);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Sends each operation as its HTTP request: lookups and updates pick a random seeded customer, creates use a
+     * new unique email
+     */
+    private record HttpClientOperations(HttpClient client, String baseUrl, Duration timeout,
+                                        List<SeededCustomer> customers, AtomicLong created)
+            implements OpenLoadGenerator.Client {
+
+        HttpClientOperations(HttpClient client, String baseUrl, Duration timeout, List<SeededCustomer> customers) {
+            this(client, baseUrl, timeout, customers, new AtomicLong());
+        }
+
+        @Override
+        public boolean send(Operation operation) throws Exception {
+            SeededCustomer customer = customers.get(ThreadLocalRandom.current().nextInt(customers.size()));
+            HttpRequest.Builder request = switch (operation) {
+                case GET_CUSTOMER -> HttpRequest.newBuilder(uri("/customer?id=" + customer.id()));
+                case GET_CUSTOMER_BY_EMAIL -> HttpRequest.newBuilder(uri("/customerByEmail?email="
+                        + URLEncoder.encode(customer.emailAddress(), StandardCharsets.UTF_8)));
+                case GET_CUSTOMERS -> HttpRequest.newBuilder(uri("/customers?fields=id,emailAddress"));
+                case CREATE_CUSTOMER -> HttpRequest.newBuilder(uri("/customer"))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(customerJson(null, "Created",
+                                "created-" + UUID.randomUUID() + "-" + created.incrementAndGet()
+                                        + "@loadtest.example.com")));
+                case UPDATE_CUSTOMER -> HttpRequest.newBuilder(uri("/customer"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(customerJson(customer.id(),
+                                FIRST_NAMES[ThreadLocalRandom.current().nextInt(FIRST_NAMES.length)],
+                                customer.emailAddress())));
+            };
+            int status = client.send(request.timeout(timeout).build(), HttpResponse.BodyHandlers.discarding())
+                    .statusCode();
+            return status >= 200 && status < 300;
+        }
+
+        private URI uri(String pathAndQuery) {
+            return URI.create(baseUrl + pathAndQuery);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.cmpny.customerdataservice.perf;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open model load generator: requests arrive on a fixed schedule at a constant rate, however quickly the service
+ * answers, each on its own virtual thread. Latency is measured from the time a request was scheduled to be sent,
+ * not from when it actually went out, so a service (or generator) stall shows up in the latencies of every request
+ * that should have been sent meanwhile instead of silently lowering the offered load (coordinated omission). The
+ * uncorrected service time, from send to response, is recorded alongside for comparison. Arrivals turned away
+ * because max in flight was reached are recorded at the timeout, like a request that got no answer, so a saturated
+ * generator cannot hide latency by dropping requests
+ */
+final class OpenLoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = Duration.ofMinutes(5).toNanos();
+
+    /**
+     * Sends one request of an operation
+     */
+    interface Client {
+        /**
+         * @param operation operation to send
+         * @return true if the service answered successfully
+         */
+        boolean send(Operation operation) throws Exception;
+    }
+
+    /**
+     * Recorded latencies and errors of one phase
+     * @param latency coordinated omission corrected latency per operation, in nanoseconds
+     * @param serviceTime time from send to response per operation, in nanoseconds
+     * @param errors failed or timed out requests per operation
+     * @param rejected requests not sent per operation because max in flight was reached, in the latency histogram
+     *                 at the timeout
+     * @param duration length of the phase
+     */
+    record Result(Map<Operation, Histogram> latency, Map<Operation, Histogram> serviceTime,
+                  Map<Operation, Long> errors, Map<Operation, Long> rejected, Duration duration) {
+    }
+
+    private final Client client;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int maxInFlight;
+    private final long timeoutNanos;
+
+    OpenLoadGenerator(Client client, Map<Operation, Integer> mix, int maxInFlight, Duration timeout) {
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+        this.timeoutNanos = Math.min(timeout.toNanos(), HIGHEST_TRACKABLE_NANOS);
+        this.operations = mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Offers the workload at the given rate for the given time and waits for the requests in flight to complete
+     * @param rate requests per second
+     * @param duration how long requests are sent for
+     * @return latencies and errors
+     */
+    Result run(double rate, Duration duration) {
+        Map<Operation, Recorder> latency = new EnumMap<>(Operation.class);
+        Map<Operation, Recorder> serviceTime = new EnumMap<>(Operation.class);
+        Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+        Map<Operation, LongAdder> rejected = new EnumMap<>(Operation.class);
+        for (Operation operation : operations) {
+            latency.put(operation, new Recorder(HIGHEST_TRACKABLE_NANOS, 3));
+            serviceTime.put(operation, new Recorder(HIGHEST_TRACKABLE_NANOS, 3));
+            errors.put(operation, new LongAdder());
+            rejected.put(operation, new LongAdder());
+        }
+
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        double intervalNanos = 1_000_000_000d / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + (long) (i * intervalNanos);
+                if (intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                Operation operation = next();
+                if (!inFlight.tryAcquire()) {
+                    rejected.get(operation).increment();
+                    latency.get(operation).recordValue(timeoutNanos);
+                    continue;
+                }
+                executor.execute(() -> {
+                    long sent = System.nanoTime();
+                    boolean success = false;
+                    try {
+                        success = client.send(operation);
+                    } catch (Exception ex) {
+                        // counted as an error below
+                    } finally {
+                        long done = System.nanoTime();
+                        inFlight.release();
+                        latency.get(operation).recordValue(Math.min(done - intended, HIGHEST_TRACKABLE_NANOS));
+                        serviceTime.get(operation).recordValue(Math.min(done - sent, HIGHEST_TRACKABLE_NANOS));
+                        if (!success) {
+                            errors.get(operation).increment();
+                        }
+                    }
+                });
+            }
+        }
+
+        Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, Histogram> serviceTimes = new EnumMap<>(Operation.class);
+        Map<Operation, Long> errorCounts = new EnumMap<>(Operation.class);
+        Map<Operation, Long> rejectedCounts = new EnumMap<>(Operation.class);
+        for (Operation operation : operations) {
+            latencies.put(operation, latency.get(operation).getIntervalHistogram());
+            serviceTimes.put(operation, serviceTime.get(operation).getIntervalHistogram());
+            errorCounts.put(operation, errors.get(operation).sum());
+            rejectedCounts.put(operation, rejected.get(operation).sum());
+        }
+        return new Result(latencies, serviceTimes, errorCounts, rejectedCounts, duration);
+    }
+
+    private Operation next() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+}
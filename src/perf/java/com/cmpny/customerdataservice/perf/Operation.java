@@ -0,0 +1,31 @@
+package com.cmpny.customerdataservice.perf;
+
+import java.util.Arrays;
+
+/**
+ * Requests a load test workload is mixed from, named as in the profile's mix
+ */
+enum Operation {
+    GET_CUSTOMER("getCustomer"),
+    GET_CUSTOMER_BY_EMAIL("getCustomerByEmail"),
+    GET_CUSTOMERS("getCustomers"),
+    CREATE_CUSTOMER("putCustomer"),
+    UPDATE_CUSTOMER("postCustomer");
+
+    private final String profileName;
+
+    Operation(String profileName) {
+        this.profileName = profileName;
+    }
+
+    String profileName() {
+        return profileName;
+    }
+
+    static Operation fromProfileName(String profileName) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.profileName.equals(profileName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + profileName + " in mix"));
+    }
+}
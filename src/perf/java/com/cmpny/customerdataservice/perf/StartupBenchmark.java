@@ -0,0 +1,169 @@
+package com.cmpny.customerdataservice.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Starts the packaged application as a separate process with each fast start option and measures the time from
+ * process start until the first successful GET /customerByEmail for a seeded customer, i.e. what a pod rollout
+ * waits for. Every option is started a number of times and the median, min and max are reported. After the last run
+ * of each option the resident set size of the process is read and GET /customerByEmail is driven by a fixed number of
+ * concurrent clients for a few seconds to report its peak throughput. When a native executable is given it is
+ * measured as the "native" option.
+ *
+ * Usage: StartupBenchmark &lt;java executable&gt; &lt;boot jar&gt; &lt;cds directory&gt; &lt;runs&gt; [native executable],
+ * usually through ./gradlew startupBenchmark
+ */
+public final class StartupBenchmark {
+
+    private static final String SEEDED_EMAIL = "yuvan@outlook.com";
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration THROUGHPUT_DURATION = Duration.ofSeconds(10);
+    private static final int THROUGHPUT_CLIENTS = 32;
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String java = args[0];
+        File jar = new File(args[1]);
+        File cdsDirectory = new File(args[2]);
+        int runs = Integer.parseInt(args[3]);
+        String extractedJar = new File(cdsDirectory, jar.getName()).getPath();
+        String archive = "-XX:SharedArchiveFile=" + new File(cdsDirectory, "application.jsa").getPath();
+
+        Map<String, List<String>> options = new LinkedHashMap<>();
+        options.put("baseline", List.of(java, "-jar", jar.getPath()));
+        options.put("faststart", List.of(java, "-jar", jar.getPath(), "--spring.profiles.active=faststart"));
+        options.put("aot", List.of(java, "-Dspring.aot.enabled=true", "-jar", jar.getPath()));
+        options.put("cds", List.of(java, archive, "-jar", extractedJar));
+        options.put("aot+cds+faststart", List.of(java, archive, "-Dspring.aot.enabled=true", "-jar", extractedJar,
+                "--spring.profiles.active=faststart"));
+        if (args.length > 4 && new File(args[4]).canExecute()) {
+            options.put("native", List.of(args[4]));
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        System.out.printf("%-20s %10s %10s %10s %10s %10s%n", "option", "median ms", "min ms", "max ms", "rss MiB",
+                "req/s");
+        for (Map.Entry<String, List<String>> option : options.entrySet()) {
+            List<Long> millis = new ArrayList<>();
+            Run last = null;
+            for (int run = 0; run < runs; run++) {
+                last = run(client, option.getValue(), run == runs - 1);
+                millis.add(last.startupMillis());
+            }
+            Collections.sort(millis);
+            System.out.printf("%-20s %10d %10d %10d %10d %10d%n", option.getKey(), millis.get(millis.size() / 2),
+                    millis.get(0), millis.get(millis.size() - 1), last.rssKib() < 0 ? -1 : last.rssKib() / 1024,
+                    last.requestsPerSecond());
+        }
+    }
+
+    private record Run(long startupMillis, long rssKib, long requestsPerSecond) {
+    }
+
+    private static Run run(HttpClient client, List<String> command, boolean measureSteadyState) throws Exception {
+        int port = freePort();
+        List<String> fullCommand = new ArrayList<>(command);
+        fullCommand.add("--server.port=" + port);
+        fullCommand.add("--logging.level.root=WARN");
+        // every request comes from the same client, the throughput burst would only measure the token bucket
+        fullCommand.add("--customerdataservice.ratelimit.enabled=false");
+
+        URI uri = URI.create("http://localhost:" + port + "/customerByEmail?email=" + SEEDED_EMAIL);
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).GET().build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(fullCommand)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ": " + command);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        long startupMillis = (System.nanoTime() - start) / 1_000_000;
+                        if (!measureSteadyState) {
+                            return new Run(startupMillis, -1, -1);
+                        }
+                        long requestsPerSecond = throughput(request);
+                        return new Run(startupMillis, rssKib(process.pid()), requestsPerSecond);
+                    }
+                } catch (IOException ex) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("No successful GET within " + TIMEOUT + ": " + command);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static long throughput(HttpRequest request) throws InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        LongAdder completed = new LongAdder();
+        long end = System.nanoTime() + THROUGHPUT_DURATION.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(THROUGHPUT_CLIENTS);
+        for (int i = 0; i < THROUGHPUT_CLIENTS; i++) {
+            clients.execute(() -> {
+                while (System.nanoTime() < end) {
+                    try {
+                        if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                            completed.increment();
+                        }
+                    } catch (IOException | InterruptedException ex) {
+                        return;
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(THROUGHPUT_DURATION.toSeconds() + 30, TimeUnit.SECONDS);
+        return completed.sum() / THROUGHPUT_DURATION.toSeconds();
+    }
+
+    /**
+     * VmRSS from /proc, so only available on Linux. -1 elsewhere
+     */
+    private static long rssKib(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.cmpny.customerdataservice.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test workload read from a YAML profile, see src/perf/resources/loadtest for the format
+ * @param name profile name, also the name of its baseline
+ * @param rate requests per second offered to the service, whether or not it keeps up
+ * @param warmup time the workload runs before anything is recorded
+ * @param duration time the workload is recorded for
+ * @param seedCustomers customers created before the warm-up, for the lookups and updates to pick from
+ * @param maxInFlight requests outstanding at once, arrivals beyond it are recorded as errors taking the timeout
+ * @param timeout time after which a request is recorded as an error
+ * @param applicationArguments extra arguments the application is started with
+ * @param mix relative weight of each operation, by {@link Operation#profileName()}
+ * @param gate regression thresholds against the baseline
+ * @param ramp steps run after the measured phase to find the sustainable throughput, or null to skip them
+ */
+record WorkloadProfile(String name, double rate, Duration warmup, Duration duration, int seedCustomers,
+                       int maxInFlight, Duration timeout, List<String> applicationArguments,
+                       Map<String, Integer> mix, Gate gate, Ramp ramp) {
+
+    static final ObjectMapper YAML = new ObjectMapper(new YAMLFactory())
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS);
+
+    /**
+     * @param p99Regression allowed relative increase of the p99 latency, e.g. 0.2 for 20%
+     * @param throughputRegression allowed relative decrease of the sustainable throughput, only gated with a ramp
+     * @param maxErrorRate allowed share of failed requests, regardless of the baseline
+     */
+    record Gate(double p99Regression, double throughputRegression, double maxErrorRate) {
+    }
+
+    /**
+     * Under an open model the throughput of the measured phase is the offered rate, whatever the service could do.
+     * The ramp measures what it can do: it offers rate times factor, factor squared and so on, each for
+     * stepDuration, until a step misses maxP99 or the error budget. Throughput is only resolved to one step
+     * @param factor rate increase of each step, e.g. 1.25
+     * @param steps most steps run
+     * @param stepDuration time each step is recorded for
+     * @param maxP99 p99 latency a step must stay within to count as sustained
+     */
+    record Ramp(double factor, int steps, Duration stepDuration, Duration maxP99) {
+    }
+
+    WorkloadProfile {
+        seedCustomers = seedCustomers > 0 ? seedCustomers : 100;
+        maxInFlight = maxInFlight > 0 ? maxInFlight : 1000;
+        timeout = timeout != null ? timeout : Duration.ofSeconds(5);
+        applicationArguments = applicationArguments != null ? applicationArguments : List.of();
+        gate = gate != null ? gate : new Gate(0.2, 0.1, 0.01);
+    }
+
+    /**
+     * Loads a profile by name from the classpath (loadtest/&lt;name&gt;.yaml) or from a file
+     * @param nameOrPath profile name or path to a profile file
+     * @return the profile
+     */
+    static WorkloadProfile load(String nameOrPath) throws IOException {
+        Path path = Path.of(nameOrPath);
+        if (Files.isRegularFile(path)) {
+            return YAML.readValue(path.toFile(), WorkloadProfile.class);
+        }
+        try (InputStream in = WorkloadProfile.class.getResourceAsStream("/loadtest/" + nameOrPath + ".yaml")) {
+            if (in == null) {
+                throw new IllegalArgumentException("No load test profile " + nameOrPath);
+            }
+            return YAML.readValue(in, WorkloadProfile.class);
+        }
+    }
+
+    Map<Operation, Integer> operationMix() {
+        Map<Operation, Integer> operations = new EnumMap<>(Operation.class);
+        mix.forEach((operation, weight) -> operations.put(Operation.fromProfileName(operation), weight));
+        return operations;
+    }
+}
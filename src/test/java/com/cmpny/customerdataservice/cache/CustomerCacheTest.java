@@ -0,0 +1,169 @@
+package com.cmpny.customerdataservice.cache;
+
+import com.cmpny.customerdataservice.model.CustomerView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two cache instances sharing one embedded shared tier and bus, standing in for two pods
+ */
+public class CustomerCacheTest {
+
+    private final SharedCache<CustomerView> sharedCustomers = new EmbeddedSharedCache<>(100, Duration.ofMinutes(1));
+    private final SharedCache<UUID> sharedIdsByEmail = new EmbeddedSharedCache<>(100, Duration.ofMinutes(1));
+    private final EmbeddedInvalidationBus bus = new EmbeddedInvalidationBus("test");
+    private final SimpleMeterRegistry registryA = new SimpleMeterRegistry();
+    private final SimpleMeterRegistry registryB = new SimpleMeterRegistry();
+    private final CustomerCache cacheA = cache(registryA);
+    private final CustomerCache cacheB = cache(registryB);
+
+    // the "database"
+    private final Map<UUID, CustomerView> customers = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<UUID, Optional<CustomerView>> byId = id -> {
+        loads.incrementAndGet();
+        return Optional.ofNullable(customers.get(id));
+    };
+    private final Function<String, Optional<CustomerView>> byEmail = email -> {
+        loads.incrementAndGet();
+        return customers.values().stream().filter(customer -> customer.emailAddress().equals(email)).findFirst();
+    };
+
+    private CustomerCache cache(SimpleMeterRegistry registry) {
+        return new CustomerCache(true, 100, Duration.ofMinutes(1), sharedCustomers, sharedIdsByEmail, bus, registry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cacheA.stop();
+        cacheB.stop();
+        bus.close();
+    }
+
+    private CustomerView customer(UUID id, String email, String phoneNumber) {
+        CustomerView customer = new CustomerView(id, "first", null, "last", email, phoneNumber);
+        customers.put(id, customer);
+        return customer;
+    }
+
+    private double requests(SimpleMeterRegistry registry, String cache, String tier, String result) {
+        return registry.get(CustomerCache.REQUESTS).tag("cache", cache).tag("tier", tier).tag("result", result)
+                .counter().count();
+    }
+
+    @Test
+    public void secondInstanceHitsSharedTierThenItsNearCache() {
+        CustomerView customer = customer(UUID.randomUUID(), "a@email.com", "1");
+
+        assertEquals(Optional.of(customer), cacheA.findById(customer.id(), byId));
+        assertEquals(Optional.of(customer), cacheB.findById(customer.id(), byId));
+        assertEquals(Optional.of(customer), cacheB.findById(customer.id(), byId));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, requests(registryB, "customers", "shared", "hit"));
+        assertEquals(1, requests(registryB, "customers", "near", "hit"));
+    }
+
+    @Test
+    public void emailLookupCachesPointerThenCustomer() {
+        CustomerView customer = customer(UUID.randomUUID(), "a@email.com", "1");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Optional.of(customer), cacheA.findByEmail("a@email.com", byId, byEmail));
+        }
+        // by email on the first miss, by id on the first pointer hit
+        assertEquals(2, loads.get());
+        assertEquals(Optional.of(customer), cacheB.findByEmail("a@email.com", byId, byEmail));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void loadRacingAWriteIsNotCached() {
+        UUID id = UUID.randomUUID();
+        CustomerView stale = customer(id, "a@email.com", "1");
+
+        Optional<CustomerView> loaded = cacheA.findById(id, customerId -> {
+            // another instance commits an update while this load is in flight
+            customer(id, "a@email.com", "2");
+            cacheB.invalidate(id, "a@email.com");
+            return Optional.of(stale);
+        });
+
+        assertEquals(Optional.of(stale), loaded);
+        assertEquals("2", cacheA.findById(id, byId).orElseThrow().phoneNumber());
+    }
+
+    @Test
+    public void invalidationReachesOtherInstance() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        customer(id, "a@email.com", "1");
+        cacheB.findById(id, byId);
+        cacheB.findById(id, byId);
+
+        customer(id, "a@email.com", "2");
+        cacheA.invalidate(id, "a@email.com");
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        // the lag is recorded right after the eviction
+        while ((!"2".equals(cacheB.findById(id, byId).orElseThrow().phoneNumber())
+                || registryB.get(CustomerCache.INVALIDATION_LAG).timer().count() == 0) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals("2", cacheB.findById(id, byId).orElseThrow().phoneNumber());
+        assertEquals(1, registryB.get(CustomerCache.INVALIDATION_LAG).timer().count());
+    }
+
+    @Test
+    public void namedBusAndCacheAreReleasedByTheirLastUser() {
+        EmbeddedInvalidationBus namedBus = EmbeddedInvalidationBus.named("released");
+        assertSame(namedBus, EmbeddedInvalidationBus.named("released"));
+        EmbeddedSharedCache<String> namedCache = EmbeddedSharedCache.named("released", 10, Duration.ofMinutes(1));
+        assertSame(namedCache, EmbeddedSharedCache.named("released", 10, Duration.ofMinutes(1)));
+
+        namedBus.close();
+        namedCache.close();
+        assertSame(namedBus, EmbeddedInvalidationBus.named("released"));
+        assertSame(namedCache, EmbeddedSharedCache.named("released", 10, Duration.ofMinutes(1)));
+        for (int i = 0; i < 2; i++) {
+            namedBus.close();
+            namedCache.close();
+        }
+
+        EmbeddedInvalidationBus newBus = EmbeddedInvalidationBus.named("released");
+        EmbeddedSharedCache<String> newCache = EmbeddedSharedCache.named("released", 10, Duration.ofMinutes(1));
+        assertNotSame(namedBus, newBus);
+        assertNotSame(namedCache, newCache);
+        newBus.close();
+        newCache.close();
+    }
+
+    @Test
+    public void stalePointerFallsBackToEmailLookup() {
+        UUID id = UUID.randomUUID();
+        customer(id, "a@email.com", "1");
+        cacheA.findByEmail("a@email.com", byId, byEmail);
+        cacheA.findByEmail("a@email.com", byId, byEmail);
+
+        // the pointer is left behind when the invalidation for the old email is lost
+        customer(id, "b@email.com", "1");
+        cacheA.invalidate(id);
+        CustomerView newOwner = customer(UUID.randomUUID(), "a@email.com", "3");
+
+        assertEquals(Optional.of(newOwner), cacheA.findByEmail("a@email.com", byId, byEmail));
+        assertTrue(cacheA.findByEmail("b@email.com", byId, byEmail).isPresent());
+    }
+}
@@ -0,0 +1,41 @@
+package com.cmpny.customerdataservice.config;
+
+import com.cmpny.customerdataservice.importer.ImportCheckpoint;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NativeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    public NativeHintsTest() {
+        new NativeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    public void includesSeedDataAndCacheConfiguration() {
+        assertTrue(RuntimeHintsPredicates.resource().forResource("data.json").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("caffeine-jcache.conf").test(hints));
+    }
+
+    @Test
+    public void registersCheckpointAndCachingProviderForReflection() {
+        assertTrue(RuntimeHintsPredicates.reflection().onType(ImportCheckpoint.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onType(TypeReference.of("com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider"))
+                .test(hints));
+    }
+
+    @Test
+    public void registersDeadlineJdbcProxies() {
+        assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(Connection.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(PreparedStatement.class).test(hints));
+    }
+}
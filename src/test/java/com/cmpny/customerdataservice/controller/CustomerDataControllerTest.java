@@ -1,11 +1,23 @@
 package com.cmpny.customerdataservice.controller;
 
+import com.cmpny.customerdataservice.config.ApplicationConfig;
 import com.cmpny.customerdataservice.exception.CustomerDataNotFoundException;
 import com.cmpny.customerdataservice.exception.CustomerDataServiceException;
 import com.cmpny.customerdataservice.exception.CustomerEmailExistsException;
+import com.cmpny.customerdataservice.hotkey.HotKeyCategory;
+import com.cmpny.customerdataservice.hotkey.HotKeys;
 import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerChange;
+import com.cmpny.customerdataservice.model.CustomerQuery;
+import com.cmpny.customerdataservice.model.CustomerVersionView;
+import com.cmpny.customerdataservice.model.CustomerView;
+import com.cmpny.customerdataservice.ratelimit.ClientIdResolver;
 import com.cmpny.customerdataservice.service.CustomerDataService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,6 +26,7 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
@@ -22,25 +35,36 @@ import org.springframework.test.web.servlet.ResultActions;
 import static org.mockito.ArgumentMatchers.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
+import java.time.Instant;
 import java.util.*;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.hamcrest.CoreMatchers.is;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(CustomerDataController.class)
+@Import({SimpleMeterRegistry.class, ClientIdResolver.class, ApplicationConfig.class})
 public class CustomerDataControllerTest {
 
     @MockBean
     CustomerDataService customerDataService;
 
+    @MockBean
+    HotKeys hotKeys;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private Customer customer = Customer.builder()
             .firstName("firstName")
             .lastName("lastName")
@@ -49,13 +73,13 @@ public class CustomerDataControllerTest {
             .phoneNumber("4255252233")
             .build();
 
-    private List<Customer> customers = List.of(customer);
+    private List<CustomerView> customers = List.of(CustomerView.from(customer));
 
     @BeforeEach
     void setUp() {
-        Mockito.when(customerDataService.fetchCustomerList()).thenReturn(customers);
-        Mockito.when(customerDataService.findCustomerById(any(UUID.class))).thenReturn(Optional.of(customer));
-        Mockito.when(customerDataService.findCustomerByEmail(any(String.class))).thenReturn(Optional.of(customer));
+        Mockito.when(customerDataService.fetchCustomerList(any())).thenReturn(customers);
+        Mockito.when(customerDataService.findCustomerById(any(UUID.class))).thenReturn(Optional.of(CustomerView.from(customer)));
+        Mockito.when(customerDataService.findCustomerByEmail(any(String.class))).thenReturn(Optional.of(CustomerView.from(customer)));
         Mockito.when(customerDataService.updateCustomer(any(Customer.class))).thenReturn(customer);
     }
 
@@ -67,6 +91,67 @@ public class CustomerDataControllerTest {
                 .andExpect(jsonPath("$.size()", is(customers.size())));
     }
 
+    @Test
+    public void get_Customers_ReturnsCbor_WhenAccepted() throws Exception{
+        byte[] body = mockMvc.perform(get("/customers").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        CustomerView[] views = new CBORMapper().readValue(body, CustomerView[].class);
+        assertEquals(customers, List.of(views));
+    }
+
+    @Test
+    public void get_Customers_ReturnsOnlyRequestedFields() throws Exception{
+        ResultActions response = mockMvc.perform(get("/customers").param("fields", "id,emailAddress"));
+
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].emailAddress", is(customer.getEmailAddress())))
+                .andExpect(jsonPath("$[0].firstName").doesNotExist());
+        Mockito.verify(customerDataService).fetchCustomerList(Set.of("id", "emailAddress"));
+    }
+
+    @Test
+    public void get_Customers_ReturnsBadRequest_ForUnknownFields() throws Exception{
+        ResultActions response = mockMvc.perform(get("/customers").param("fields", "id,normalizedEmailAddress"));
+
+        response.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void get_Customers_SearchesByIndexedFilterAndSort() throws Exception{
+        Mockito.when(customerDataService.findCustomers(any(), any())).thenReturn(customers);
+
+        mockMvc.perform(get("/customers").param("lastName", "lastName").param("sort", "firstName").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(customers.size())));
+        Mockito.verify(customerDataService).findCustomers(
+                new CustomerQuery(Map.of("lastName", "lastName"), List.of("firstName"), 10), Set.of());
+        Mockito.verify(customerDataService, Mockito.never()).fetchCustomerList(any());
+    }
+
+    @Test
+    public void get_Customers_SearchUsesDefaultLimit() throws Exception{
+        mockMvc.perform(get("/customers").param("sort", "lastName,firstName"))
+                .andExpect(status().isOk());
+        Mockito.verify(customerDataService).findCustomers(
+                new CustomerQuery(Map.of(), List.of("lastName", "firstName"), 100), Set.of());
+    }
+
+    @Test
+    public void get_Customers_ReturnsBadRequest_ForUnindexedSearch() throws Exception{
+        mockMvc.perform(get("/customers").param("firstName", "firstName"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/customers").param("phoneNumber", "4255252233").param("sort", "firstName"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/customers").param("sort", "emailAddress"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/customers").param("lastName", "lastName").param("limit", "100000"))
+                .andExpect(status().isBadRequest());
+        Mockito.verify(customerDataService, Mockito.never()).findCustomers(any(), any());
+    }
+
     @Test
     public void get_Customer_ById_WorksAsExpected() throws Exception {
         ResultActions response = mockMvc.perform(
@@ -78,6 +163,93 @@ public class CustomerDataControllerTest {
                 .andExpect(jsonPath("$.firstName", is(customer.getFirstName())));
     }
 
+    @Test
+    public void get_Customer_ById_RecordsRequestStages() throws Exception {
+        mockMvc.perform(get("/customer").param("id", UUID.randomUUID().toString()))
+                .andExpect(status().isOk());
+
+        for (String stage : List.of("validation", "db", "serialization")) {
+            assertTrue(meterRegistry.get("customerdataservice.request.stage")
+                    .tag("endpoint", "getCustomer")
+                    .tag("stage", stage)
+                    .timer().count() > 0, stage);
+        }
+    }
+
+    @Test
+    public void get_Customer_ById_ReturnsOnlyRequestedFields() throws Exception {
+        ResultActions response = mockMvc.perform(
+                get("/customer")
+                        .param("id", UUID.randomUUID().toString())
+                        .param("fields", "firstName")
+        );
+
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName", is(customer.getFirstName())))
+                .andExpect(jsonPath("$.id").doesNotExist());
+    }
+
+    @Test
+    public void get_Customer_ById_ReturnsFieldsOfEveryFieldsParameter() throws Exception {
+        ResultActions response = mockMvc.perform(
+                get("/customer")
+                        .param("id", UUID.randomUUID().toString())
+                        .param("fields", "firstName")
+                        .param("fields", "lastName")
+        );
+
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName", is(customer.getFirstName())))
+                .andExpect(jsonPath("$.lastName", is(customer.getLastName())))
+                .andExpect(jsonPath("$.id").doesNotExist());
+    }
+
+    @Test
+    public void get_Customer_AsOf_ReadsTheHistory() throws Exception {
+        Instant asOf = Instant.parse("2026-01-01T00:00:00Z");
+        Mockito.when(customerDataService.findCustomerAsOf(customer.getId(), asOf))
+                .thenReturn(Optional.of(CustomerView.from(customer)));
+
+        mockMvc.perform(get("/customer")
+                        .param("id", customer.getId().toString())
+                        .param("asOf", "2026-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.firstName", is(customer.getFirstName())));
+        Mockito.verify(customerDataService, Mockito.never()).findCustomerById(any(UUID.class));
+    }
+
+    @Test
+    public void get_Customer_AsOf_ReturnsNotFound_BeforeTheCustomerExisted() throws Exception {
+        Mockito.when(customerDataService.findCustomerAsOf(any(UUID.class), any(Instant.class))).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/customer")
+                        .param("id", customer.getId().toString())
+                        .param("asOf", "2020-01-01T00:00:00Z"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void get_Customer_History_ListsVersions() throws Exception {
+        Instant created = Instant.parse("2026-01-01T00:00:00Z");
+        Mockito.when(customerDataService.findCustomerHistory(customer.getId())).thenReturn(List.of(
+                new CustomerVersionView(created, CustomerChange.CREATE, CustomerView.from(customer)),
+                new CustomerVersionView(created.plusSeconds(1), CustomerChange.DELETE, null)));
+
+        mockMvc.perform(get("/customer/history").param("id", customer.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].change", is("create")))
+                .andExpect(jsonPath("$[0].customer.emailAddress", is(customer.getEmailAddress())))
+                .andExpect(jsonPath("$[1].change", is("delete")));
+    }
+
+    @Test
+    public void get_Customer_History_ReturnsNotFound_WithoutVersions() throws Exception {
+        Mockito.when(customerDataService.findCustomerHistory(any(UUID.class))).thenReturn(List.of());
+
+        mockMvc.perform(get("/customer/history").param("id", UUID.randomUUID().toString()))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void get_Customer_ByEmail_WorksAsExpected() throws Exception{
         ResultActions response = mockMvc.perform(
@@ -89,6 +261,17 @@ public class CustomerDataControllerTest {
                 .andExpect(jsonPath("$.firstName", is(customer.getFirstName())));
     }
 
+    @Test
+    public void get_Customer_RecordsLookupsAsHotKeys() throws Exception{
+        mockMvc.perform(get("/customer").param("id", customer.getId().toString()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/customerByEmail").param("email", "Email@EMAIL.com"))
+                .andExpect(status().isOk());
+
+        Mockito.verify(hotKeys).record(HotKeyCategory.CUSTOMER_ID, customer.getId());
+        Mockito.verify(hotKeys).record(HotKeyCategory.EMAIL, "email@email.com");
+    }
+
     @Test
     public void get_Customer_ByEmail_ReturnsBadRequest() throws Exception{
         ResultActions response = mockMvc.perform(
@@ -194,6 +377,18 @@ public class CustomerDataControllerTest {
         response.andExpect(status().isOk());
     }
 
+    @Test
+    public void put_customer_AcceptsSmileRequestBody() throws Exception {
+        ResultActions response = mockMvc.perform(
+                put("/customer")
+                        .contentType("application/x-jackson-smile")
+                        .content(new SmileMapper().writeValueAsBytes(customer))
+        );
+
+        response.andExpect(status().isOk());
+        Mockito.verify(customerDataService).saveCustomer(any(Customer.class));
+    }
+
     @Test
     public void put_customer_ReturnsBadRequest_ForInvalidRequestArguments() throws Exception {
 
@@ -252,4 +447,31 @@ public class CustomerDataControllerTest {
 
         response.andExpect(status().isOk());
     }
+
+    @Test
+    public void delete_customers_ReturnsDeletedCount() throws Exception {
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID());
+        Mockito.when(customerDataService.deleteCustomersById(ids)).thenReturn(1);
+
+        ResultActions response = mockMvc.perform(
+                delete("/customers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ids))
+        );
+
+        response.andExpect(status().isOk())
+                .andExpect(content().string("1"));
+    }
+
+    @Test
+    public void delete_customers_RejectsNullIds() throws Exception {
+        ResultActions response = mockMvc.perform(
+                delete("/customers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[\"" + UUID.randomUUID() + "\", null]")
+        );
+
+        response.andExpect(status().isBadRequest());
+        Mockito.verify(customerDataService, Mockito.never()).deleteCustomersById(any());
+    }
 }
@@ -0,0 +1,115 @@
+package com.cmpny.customerdataservice.deadline;
+
+import com.cmpny.customerdataservice.exception.CustomerDataNotFoundException;
+import com.cmpny.customerdataservice.exception.DeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class RequestDeadlineTest {
+
+    @AfterEach
+    public void endRequest() {
+        RequestDeadline.end();
+    }
+
+    @Test
+    public void runsWorkOutsideOfARequest() {
+        assertEquals("done", RequestDeadline.call(() -> "done"));
+    }
+
+    @Test
+    public void skipsWorkOnceTheDeadlineHasPassed() {
+        RequestDeadline deadline = new RequestDeadline(System.nanoTime() - 1);
+        RequestDeadline.begin(deadline);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertThrows(DeadlineExceededException.class, () -> RequestDeadline.run(() -> ran.set(true)));
+        assertFalse(ran.get());
+        assertEquals(1, deadline.avoidedCount(AvoidedWork.SERVICE));
+    }
+
+    @Test
+    public void reportsTimeoutsAfterTheDeadlineAsDeadlineExceeded() {
+        RequestDeadline deadline = new RequestDeadline(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+        RequestDeadline.begin(deadline);
+
+        DeadlineExceededException ex = assertThrows(DeadlineExceededException.class, () -> RequestDeadline.run(() -> {
+            deadline.cancel();
+            throw new QueryTimeoutException("statement cancelled", new SQLTimeoutException());
+        }));
+        assertInstanceOf(QueryTimeoutException.class, ex.getCause());
+    }
+
+    @Test
+    public void reportsFailuresAfterAStatementTimedOutAsDeadlineExceeded() {
+        RequestDeadline deadline = new RequestDeadline(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+        RequestDeadline.begin(deadline);
+
+        assertThrows(DeadlineExceededException.class, () -> RequestDeadline.run(() -> {
+            deadline.timedOut();
+            deadline.cancel();
+            throw new IllegalStateException("rollback failed on a discarded connection");
+        }));
+    }
+
+    @Test
+    public void keepsOtherFailuresAfterTheDeadline() {
+        RequestDeadline deadline = new RequestDeadline(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+        RequestDeadline.begin(deadline);
+
+        assertThrows(CustomerDataNotFoundException.class, () -> RequestDeadline.run(() -> {
+            deadline.cancel();
+            throw new CustomerDataNotFoundException();
+        }));
+    }
+
+    @Test
+    public void keepsFailuresWithinTheDeadline() {
+        RequestDeadline.begin(new RequestDeadline(System.nanoTime() + TimeUnit.SECONDS.toNanos(10)));
+
+        assertThrows(IllegalStateException.class, () -> RequestDeadline.run(() -> {
+            throw new IllegalStateException();
+        }));
+    }
+
+    @Test
+    public void cancelsOnlyStatementsStillOpen() throws Exception {
+        RequestDeadline deadline = new RequestDeadline(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+        Statement running = Mockito.mock(Statement.class);
+        Statement closed = Mockito.mock(Statement.class);
+        deadline.register(running);
+        deadline.register(closed);
+        deadline.unregister(closed);
+
+        deadline.cancel();
+
+        verify(running).cancel();
+        verify(closed, never()).cancel();
+        assertEquals(1, deadline.avoidedCount(AvoidedWork.CANCELLED_STATEMENT));
+    }
+
+    @Test
+    public void cancelsStatementsRegisteredAfterTheDeadline() throws Exception {
+        RequestDeadline deadline = new RequestDeadline(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+        deadline.cancel();
+        Statement statement = Mockito.mock(Statement.class);
+
+        deadline.register(statement);
+
+        verify(statement).cancel();
+    }
+}
@@ -0,0 +1,81 @@
+package com.cmpny.customerdataservice.hotkey;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HeavyHittersTest {
+
+    @Test
+    public void findsHottestKeysAmongManyColdOnes() {
+        HeavyHitters<Integer> heavyHitters = new HeavyHitters<>(3, 1024, 4);
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int roll = random.nextInt(100);
+            // keys 1, 2 and 3 get 20%, 10% and 5% of the traffic, the rest is spread over 50k cold keys
+            int key = roll < 20 ? 1 : roll < 30 ? 2 : roll < 35 ? 3 : 1000 + random.nextInt(50_000);
+            heavyHitters.record(key);
+        }
+
+        List<HeavyHitters.Entry<Integer>> top = heavyHitters.top();
+        assertEquals(List.of(1, 2, 3), top.stream().map(HeavyHitters.Entry::key).toList());
+        assertEquals(100_000, heavyHitters.total());
+        // overcounts by at most total / width with high probability
+        assertTrue(top.get(0).count() >= 20_000 * 0.95 && top.get(0).count() <= 20_000 * 1.05 + 100_000 / 1024);
+    }
+
+    @Test
+    public void neverUnderestimates() {
+        HeavyHitters<String> heavyHitters = new HeavyHitters<>(5, 16, 2);
+        for (int i = 0; i < 1000; i++) {
+            heavyHitters.record("key" + (i % 100));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(heavyHitters.estimate("key" + i) >= 10);
+        }
+    }
+
+    @Test
+    public void decayLetsNewHotKeysTakeOver() {
+        HeavyHitters<String> heavyHitters = new HeavyHitters<>(1, 256, 4);
+        for (int i = 0; i < 1000; i++) {
+            heavyHitters.record("old");
+        }
+        for (int window = 0; window < 5; window++) {
+            heavyHitters.decay();
+        }
+        for (int i = 0; i < 100; i++) {
+            heavyHitters.record("new");
+        }
+
+        assertEquals(List.of(new HeavyHitters.Entry<>("new", 100L)), heavyHitters.top());
+        assertEquals(31, heavyHitters.estimate("old"));
+    }
+
+    @Test
+    public void countsEveryRecordUnderContention() throws Exception {
+        HeavyHitters<Integer> heavyHitters = new HeavyHitters<>(2, 512, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    heavyHitters.record(i % 2 == 0 ? 7 : i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(80_000, heavyHitters.total());
+        assertEquals(7, heavyHitters.top().get(0).key());
+        assertTrue(heavyHitters.estimate(7) >= 40_000);
+    }
+}
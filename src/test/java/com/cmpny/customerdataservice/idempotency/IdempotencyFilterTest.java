@@ -0,0 +1,239 @@
+package com.cmpny.customerdataservice.idempotency;
+
+import com.cmpny.customerdataservice.ratelimit.ClientIdResolver;
+import com.cmpny.customerdataservice.ratelimit.LoadSheddingFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class IdempotencyFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        filter = new IdempotencyFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "maximumSize", 100L);
+        ReflectionTestUtils.setField(filter, "expireAfterWrite", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(filter, "maxWait", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(filter, "maxBodySize", DataSize.ofBytes(16));
+        ReflectionTestUtils.setField(filter, "clientIdResolver", new ClientIdResolver(true));
+        ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+        filter.afterPropertiesSet();
+    }
+
+    @Test
+    public void retryGetsTheStoredResponseWithoutRunningAgain() throws Exception {
+        HttpServlet servlet = servlet(200, null);
+
+        MockHttpServletResponse first = perform(request("POST", "key-1", "{\"a\":1}"), servlet);
+        MockHttpServletResponse retry = perform(request("POST", "key-1", "{\"a\":1}"), servlet);
+
+        assertEquals(1, executions.get());
+        assertEquals(200, retry.getStatus());
+        assertEquals("{\"a\":1}", retry.getContentAsString());
+        assertEquals("application/json", retry.getContentType());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1, outcome("replayed"));
+    }
+
+    @Test
+    public void replayedRetryIsNotSampledByTheConcurrencyLimiter() throws Exception {
+        HttpServlet servlet = servlet(200, null);
+        MockHttpServletRequest first = request("POST", "key-1", "{}");
+        MockHttpServletRequest retry = request("POST", "key-1", "{}");
+
+        perform(first, servlet);
+        perform(retry, servlet);
+
+        assertNull(first.getAttribute(LoadSheddingFilter.UNSAMPLED_ATTRIBUTE));
+        assertEquals(Boolean.TRUE, retry.getAttribute(LoadSheddingFilter.UNSAMPLED_ATTRIBUTE));
+    }
+
+    @Test
+    public void bodyOverTheLimitGets413WithoutRunning() throws Exception {
+        HttpServlet servlet = servlet(200, null);
+        MockHttpServletRequest request = request("POST", "key-1", "{\"name\":\"too long for the limit\"}");
+
+        MockHttpServletResponse response = perform(request, servlet);
+
+        assertEquals(413, response.getStatus());
+        assertEquals(0, executions.get());
+        assertEquals(1, outcome("too_large"));
+    }
+
+    @Test
+    public void clientErrorsAreReplayed() throws Exception {
+        HttpServlet servlet = servlet(400, "Invalid arguments provided");
+
+        perform(request("PUT", "key-1", "{}"), servlet);
+        MockHttpServletResponse retry = perform(request("PUT", "key-1", "{}"), servlet);
+
+        assertEquals(1, executions.get());
+        assertEquals(400, retry.getStatus());
+        assertEquals("Invalid arguments provided", retry.getErrorMessage());
+    }
+
+    @Test
+    public void serverErrorsAreNotStored() throws Exception {
+        HttpServlet servlet = servlet(500, "Error while trying to create customer");
+
+        perform(request("PUT", "key-1", "{}"), servlet);
+        MockHttpServletResponse retry = perform(request("PUT", "key-1", "{}"), servlet);
+
+        assertEquals(2, executions.get());
+        assertNull(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void sameKeyWithDifferentBodyIsRejected() throws Exception {
+        HttpServlet servlet = servlet(200, null);
+
+        perform(request("POST", "key-1", "{\"a\":1}"), servlet);
+        MockHttpServletResponse other = perform(request("POST", "key-1", "{\"a\":2}"), servlet);
+
+        assertEquals(422, other.getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void keysAreScopedToClientAndMethod() throws Exception {
+        HttpServlet servlet = servlet(200, null);
+
+        perform(request("POST", "key-1", "{}"), servlet);
+        perform(request("PUT", "key-1", "{}"), servlet);
+        MockHttpServletRequest otherClient = request("POST", "key-1", "{}");
+        otherClient.addHeader("X-Client-Id", "other");
+        perform(otherClient, servlet);
+
+        assertEquals(3, executions.get());
+    }
+
+    @Test
+    public void requestsWithoutKeyAreNotTracked() throws Exception {
+        HttpServlet servlet = servlet(200, null);
+
+        perform(request("POST", null, "{}"), servlet);
+        perform(request("POST", null, "{}"), servlet);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void concurrentDuplicateWaitsForTheFirstAttempt() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                executions.incrementAndGet();
+                running.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                resp.getOutputStream().write(StreamUtils.copyToByteArray(req.getInputStream()));
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<MockHttpServletResponse> first = executor.submit(() -> perform(request("POST", "key-1", "body"), servlet));
+            running.await(5, TimeUnit.SECONDS);
+            Future<MockHttpServletResponse> duplicate = executor.submit(() -> perform(request("POST", "key-1", "body"), servlet));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("body", first.get(5, TimeUnit.SECONDS).getContentAsString());
+            assertEquals("body", duplicate.get(5, TimeUnit.SECONDS).getContentAsString());
+            assertEquals("true", duplicate.get().getHeader(IdempotencyFilter.REPLAYED_HEADER));
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void duplicateGets409WhenTheFirstAttemptTakesTooLong() throws Exception {
+        ReflectionTestUtils.setField(filter, "maxWait", Duration.ofMillis(10));
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                try {
+                    // the duplicate arrives while the first attempt is still running
+                    MockHttpServletResponse duplicate = perform(request("POST", "key-1", "{}"), servlet(200, null));
+                    resp.setStatus(duplicate.getStatus());
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        };
+
+        MockHttpServletResponse first = perform(request("POST", "key-1", "{}"), servlet);
+
+        assertEquals(409, first.getStatus());
+        assertEquals(1, outcome("conflict"));
+    }
+
+    private HttpServlet servlet(int status, String errorMessage) {
+        return new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                executions.incrementAndGet();
+                if (errorMessage != null) {
+                    resp.sendError(status, errorMessage);
+                    return;
+                }
+                resp.setStatus(status);
+                resp.setContentType("application/json");
+                resp.getOutputStream().write(StreamUtils.copyToByteArray(req.getInputStream()));
+            }
+        };
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, HttpServlet servlet) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/customer");
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.KEY_HEADER, key);
+        }
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("customerdataservice.idempotency.requests").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,46 @@
+package com.cmpny.customerdataservice.importer;
+
+import com.cmpny.customerdataservice.model.Customer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CustomerRecordParserTest {
+
+    @Test
+    public void splitCsv_HandlesQuotesAndEmptyValues() {
+        assertEquals(List.of("a", "", "b, \"c\"", ""), CustomerRecordParser.splitCsv("a,,\"b, \"\"c\"\"\","));
+        assertThrows(IllegalArgumentException.class, () -> CustomerRecordParser.splitCsv("a,\"b"));
+    }
+
+    @Test
+    public void csv_MapsColumnsByHeaderName() {
+        CustomerRecordParser parser = CustomerRecordParser.csv("phoneNumber,emailAddress,lastName,firstName");
+
+        Customer customer = parser.parse("4255252233,Email@Email.com ,Last,First");
+
+        assertEquals("First", customer.getFirstName());
+        assertEquals("Last", customer.getLastName());
+        assertNull(customer.getMiddleName());
+        assertEquals("email@email.com", customer.getNormalizedEmailAddress());
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("4255252233,email@email.com"));
+        assertThrows(IllegalArgumentException.class, () -> CustomerRecordParser.csv("firstName,lastName"));
+    }
+
+    @Test
+    public void ndjson_IgnoresIdAndRejectsInvalidJson() {
+        CustomerRecordParser parser = CustomerRecordParser.ndjson(new ObjectMapper());
+
+        Customer customer = parser.parse("{\"id\":\"3f1e0b8e-6a53-4d6c-9a53-2a0c6d6e7f10\",\"firstName\":\"First\","
+                + "\"lastName\":\"Last\",\"emailAddress\":\"email@email.com\",\"phoneNumber\":\"4255252233\"}");
+
+        assertNull(customer.getId());
+        assertEquals("email@email.com", customer.getNormalizedEmailAddress());
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("{\"firstName\":"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.cmpny.customerdataservice.lifecycle;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class InFlightRequestsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private InFlightRequests inFlightRequests;
+    private HandlerMethod getCustomer;
+    private HandlerMethod getCustomers;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        inFlightRequests = new InFlightRequests();
+        ReflectionTestUtils.setField(inFlightRequests, "meterRegistry", meterRegistry);
+        getCustomer = new HandlerMethod(this, getClass().getMethod("getCustomer"));
+        getCustomers = new HandlerMethod(this, getClass().getMethod("getCustomers"));
+    }
+
+    public void getCustomer() {
+    }
+
+    public void getCustomers() {
+    }
+
+    @Test
+    public void countsRequestsInFlightPerEndpoint() {
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        MockHttpServletRequest second = new MockHttpServletRequest();
+        MockHttpServletRequest dump = new MockHttpServletRequest();
+        inFlightRequests.preHandle(first, response, getCustomer);
+        inFlightRequests.preHandle(second, response, getCustomer);
+        inFlightRequests.preHandle(dump, response, getCustomers);
+
+        assertEquals(Map.of("getCustomer", 2, "getCustomers", 1), inFlightRequests.snapshot());
+        assertEquals(2, meterRegistry.get(InFlightRequests.METER_NAME).tag("endpoint", "getCustomer").gauge().value());
+
+        inFlightRequests.afterCompletion(first, response, getCustomer, null);
+        inFlightRequests.afterCompletion(dump, response, getCustomers, null);
+
+        assertEquals(Map.of("getCustomer", 1), inFlightRequests.snapshot());
+        assertEquals(0, meterRegistry.get(InFlightRequests.METER_NAME).tag("endpoint", "getCustomers").gauge().value());
+    }
+
+    @Test
+    public void asyncRedispatchIsCountedOnce() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        inFlightRequests.preHandle(request, response, getCustomers);
+        inFlightRequests.preHandle(request, response, getCustomers);
+        assertEquals(Map.of("getCustomers", 1), inFlightRequests.snapshot());
+
+        inFlightRequests.afterCompletion(request, response, getCustomers, null);
+        inFlightRequests.afterCompletion(request, response, getCustomers, null);
+        assertEquals(Map.of(), inFlightRequests.snapshot());
+    }
+
+    @Test
+    public void ignoresRequestsWithoutHandlerMethod() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        inFlightRequests.preHandle(request, response, new Object());
+        inFlightRequests.afterCompletion(request, response, new Object(), null);
+        assertEquals(Map.of(), inFlightRequests.snapshot());
+    }
+}
@@ -0,0 +1,56 @@
+package com.cmpny.customerdataservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CustomerSnapshotTest {
+
+    private final UUID id = UUID.randomUUID();
+
+    @Test
+    public void roundTripsAllFields() {
+        Customer customer = Customer.builder()
+                .id(id)
+                .firstName("Zoë")
+                .middleName("Q")
+                .lastName("Smith")
+                .emailAddress("Zoe.Smith@Email.com")
+                .phoneNumber("4255252233")
+                .build();
+
+        assertEquals(CustomerView.from(customer), CustomerSnapshot.decode(id, CustomerSnapshot.encode(customer)));
+    }
+
+    @Test
+    public void missingFieldsStayNull() {
+        Customer customer = Customer.builder().firstName("first").lastName("last").build();
+
+        CustomerView view = CustomerSnapshot.decode(id, CustomerSnapshot.encode(customer));
+
+        assertEquals(new CustomerView(id, "first", null, "last", null, null), view);
+    }
+
+    @Test
+    public void isSmallerThanJson() {
+        Customer customer = Customer.builder()
+                .firstName("firstName")
+                .lastName("lastName")
+                .emailAddress("email@email.com")
+                .phoneNumber("4255252233")
+                .build();
+
+        // 2 header bytes, then a 2 byte length per field
+        assertEquals(2 + 4 * 2 + 9 + 8 + 15 + 10, CustomerSnapshot.encode(customer).length);
+        assertTrue(CustomerSnapshot.encode(customer).length < 60);
+    }
+
+    @Test
+    public void rejectsUnknownFormat() {
+        assertThrows(IllegalArgumentException.class, () -> CustomerSnapshot.decode(id, new byte[]{2, 0}));
+    }
+}
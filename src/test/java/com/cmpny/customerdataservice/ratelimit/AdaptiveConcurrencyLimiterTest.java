@@ -0,0 +1,63 @@
+package com.cmpny.customerdataservice.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void bulkIsShedBeforeCritical() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 1.5);
+
+        assertTrue(limiter.tryAcquire(RequestPriority.BULK));
+        assertTrue(limiter.tryAcquire(RequestPriority.BULK));
+        assertFalse(limiter.tryAcquire(RequestPriority.BULK));
+        assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL));
+        assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL));
+        assertFalse(limiter.tryAcquire(RequestPriority.CRITICAL));
+        assertEquals(4, limiter.getInFlight());
+    }
+
+    @Test
+    public void limitShrinksWhenLatencyRises() {
+        AdaptiveConcurrencyLimiter limiter = saturated(20);
+        for (int i = 0; i < 100; i++) {
+            limiter.release(1_000_000);
+            fill(limiter);
+        }
+        int steadyLimit = limiter.getLimit();
+
+        for (int i = 0; i < 100; i++) {
+            limiter.release(50_000_000);
+            fill(limiter);
+        }
+
+        assertTrue(limiter.getLimit() < steadyLimit, "limit " + limiter.getLimit() + " steady " + steadyLimit);
+    }
+
+    @Test
+    public void limitGrowsWhileLatencyIsFlat() {
+        AdaptiveConcurrencyLimiter limiter = saturated(20);
+        for (int i = 0; i < 100; i++) {
+            limiter.release(1_000_000);
+            fill(limiter);
+        }
+
+        assertTrue(limiter.getLimit() > 20);
+    }
+
+    private static AdaptiveConcurrencyLimiter saturated(int limit) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(limit, 1, 200, 1.5);
+        fill(limiter);
+        return limiter;
+    }
+
+    private static void fill(AdaptiveConcurrencyLimiter limiter) {
+        while (limiter.tryAcquire(RequestPriority.CRITICAL)) {
+            // keep the limiter saturated so every release adapts the limit
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.cmpny.customerdataservice.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LoadSheddingFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LoadSheddingFilter filter;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        filter = new LoadSheddingFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "clientPermitsPerSecond", 1.0);
+        ReflectionTestUtils.setField(filter, "clientBurst", 3);
+        ReflectionTestUtils.setField(filter, "bulkPermitsPerSecond", 1.0);
+        ReflectionTestUtils.setField(filter, "bulkBurst", 1);
+        ReflectionTestUtils.setField(filter, "initialLimit", 2);
+        ReflectionTestUtils.setField(filter, "minLimit", 1);
+        ReflectionTestUtils.setField(filter, "maxLimit", 10);
+        ReflectionTestUtils.setField(filter, "tolerance", 1.5);
+        ReflectionTestUtils.setField(filter, "clientIdResolver", new ClientIdResolver(true));
+        ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+        filter.afterPropertiesSet();
+    }
+
+    @Test
+    public void clientOverItsRateGets429WithRetryAfter() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform(request("GET", "/customer", "client-a")).getStatus());
+        }
+
+        MockHttpServletResponse response = perform(request("GET", "/customer", "client-a"));
+        assertEquals(429, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(200, perform(request("GET", "/customer", "client-b")).getStatus());
+        assertEquals(1, meterRegistry.get("customerdataservice.ratelimit.rejected")
+                .tag("reason", "client").tag("priority", "critical").counter().count());
+    }
+
+    @Test
+    public void bulkEndpointIsThrottledWhilePointLookupsPass() throws Exception {
+        assertEquals(200, perform(request("GET", "/customers", "client-a")).getStatus());
+        assertEquals(429, perform(request("GET", "/customers", "client-b")).getStatus());
+        assertEquals(200, perform(request("GET", "/customer", "client-c")).getStatus());
+    }
+
+    @Test
+    public void untrustedClientIdHeaderDoesNotGetAFreshBucket() throws Exception {
+        ReflectionTestUtils.setField(filter, "clientIdResolver", new ClientIdResolver(false));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform(request("GET", "/customer", "client-" + i)).getStatus());
+        }
+
+        assertEquals(429, perform(request("GET", "/customer", "client-3")).getStatus());
+    }
+
+    @Test
+    public void bulkEndpointBucketIsSharedAcrossIdsOfARoute() throws Exception {
+        assertEquals(200, perform(request("GET", "/customers/exports/a", "client-a")).getStatus());
+        assertEquals(429, perform(request("GET", "/customers/exports/b", "client-b")).getStatus());
+        assertEquals(200, perform(request("GET", "/customers/imports/a", "client-c")).getStatus());
+    }
+
+    @Test
+    public void routeIsThePatternOfTheMatchedEndpoint() {
+        assertEquals("/customers/exports/{id}/file", LoadSheddingFilter.route(request("GET", "/customers/exports/42/file", "a")));
+        assertEquals("/customers", LoadSheddingFilter.route(request("GET", "/customers", "a")));
+        assertEquals("other", LoadSheddingFilter.route(request("GET", "/customers/unknown/1/2", "a")));
+    }
+
+    @Test
+    public void concurrencyLimitKeepsRoomForPointLookups() throws Exception {
+        List<Integer> nested = new ArrayList<>();
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                try {
+                    // a bulk request already holds half the limit, which leaves no room for writes but some for lookups
+                    nested.add(perform(request("POST", "/customer", "client-b")).getStatus());
+                    nested.add(perform(request("GET", "/customerByEmail", "client-c")).getStatus());
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        };
+
+        ReflectionTestUtils.setField(filter, "bulkBurst", 10);
+        filter.doFilter(request("GET", "/customers", "client-a"), new MockHttpServletResponse(), new MockFilterChain(servlet));
+
+        assertEquals(List.of(503, 200), nested);
+        assertEquals(0, filter.getConcurrencyLimiter().getInFlight());
+    }
+
+    @Test
+    public void actuatorIsNeverShed() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, perform(request("GET", "/actuator/health", "client-a")).getStatus());
+        }
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String clientId) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.addHeader(ClientIdResolver.CLIENT_ID_HEADER, clientId);
+        return request;
+    }
+}
@@ -1,31 +1,41 @@
 package com.cmpny.customerdataservice.service;
 
+import com.cmpny.customerdataservice.cache.CustomerCache;
 import com.cmpny.customerdataservice.exception.CustomerDataNotFoundException;
 import com.cmpny.customerdataservice.exception.CustomerDataServiceException;
 import com.cmpny.customerdataservice.exception.CustomerEmailExistsException;
+import com.cmpny.customerdataservice.metrics.CustomerDataMetrics;
 import com.cmpny.customerdataservice.model.Customer;
+import com.cmpny.customerdataservice.model.CustomerChange;
+import com.cmpny.customerdataservice.model.CustomerHistoryRepository;
+import com.cmpny.customerdataservice.model.CustomerSnapshot;
 import com.cmpny.customerdataservice.model.CustomerRepository;
-import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Metrics;
+import com.cmpny.customerdataservice.model.CustomerVersion;
+import com.cmpny.customerdataservice.model.CustomerVersionView;
+import com.cmpny.customerdataservice.model.CustomerView;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -36,8 +46,17 @@ public class CustomerDataServiceTest {
     @Mock
     CustomerRepository customerRepository;
 
-    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
-    MeterRegistry meterRegistry;
+    @Mock
+    CustomerHistoryRepository historyRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    CustomerDataMetrics metrics = new CustomerDataMetrics(meterRegistry);
+
+    // disabled, lookups go straight to the repository
+    @Spy
+    CustomerCache customerCache = new CustomerCache(false, 0, Duration.ZERO, null, null, null, meterRegistry);
 
     @InjectMocks
     CustomerDataServiceImpl customerDataService;
@@ -50,33 +69,34 @@ public class CustomerDataServiceTest {
             .phoneNumber("4255252233")
             .build();
 
-    private final List<Customer> customers = List.of(customer);
-
-    @BeforeEach
-    public void setUp() {
-        var meterRegistry = new SimpleMeterRegistry();
-        Metrics.addRegistry(meterRegistry);
-    }
+    private final List<CustomerView> customers = List.of(CustomerView.from(customer));
 
     @Test
     public void fetchCustomers_worksAsExpected() throws Exception {
-        Mockito.when(customerRepository.findAll()).thenReturn(customers);
-        List<Customer> cstrs = customerDataService.fetchCustomerList();
+        Mockito.when(customerRepository.findAllViews(Set.of())).thenReturn(customers);
+        List<CustomerView> cstrs = customerDataService.fetchCustomerList(Set.of());
         assertEquals(cstrs, customers);
     }
 
     @Test
     public void findCustomerByEmail_worksAsExpected() throws Exception {
-        Mockito.when(customerRepository.findByEmailAddress(any(String.class))).thenReturn(Optional.of(customer));
-        Optional<Customer> cstr = customerDataService.findCustomerByEmail("email@email.com");
-        assertEquals(cstr, Optional.of(customer));
+        Mockito.when(customerRepository.findByNaturalId(any(String.class))).thenReturn(Optional.of(customer));
+        Optional<CustomerView> cstr = customerDataService.findCustomerByEmail("email@email.com");
+        assertEquals(cstr, Optional.of(CustomerView.from(customer)));
+    }
+
+    @Test
+    public void findCustomerByEmail_LooksUpNormalizedEmail() throws Exception {
+        Mockito.when(customerRepository.findByNaturalId("email@email.com")).thenReturn(Optional.of(customer));
+        Optional<CustomerView> cstr = customerDataService.findCustomerByEmail(" Email@EMAIL.com ");
+        assertEquals(cstr, Optional.of(CustomerView.from(customer)));
     }
 
     @Test
     public void findCustomerById_worksAsExpected() throws Exception {
         Mockito.when(customerRepository.findById(any(UUID.class))).thenReturn(Optional.of(customer));
-        Optional<Customer> cstr = customerDataService.findCustomerById(UUID.randomUUID());
-        assertEquals(cstr, Optional.of(customer));
+        Optional<CustomerView> cstr = customerDataService.findCustomerById(UUID.randomUUID());
+        assertEquals(cstr, Optional.of(CustomerView.from(customer)));
     }
 
     @Test
@@ -84,6 +104,7 @@ public class CustomerDataServiceTest {
         Mockito.when(customerRepository.save(any(Customer.class))).thenReturn(customer);
         customerDataService.saveCustomer(customer);
         verify(customerRepository, times(1)).save(customer);
+        assertEquals(1, meterRegistry.get("customerdataservice.service").tag("method", "saveCustomer").timer().count());
     }
 
     @Test
@@ -91,6 +112,7 @@ public class CustomerDataServiceTest {
         Mockito.when(customerRepository.save(any(Customer.class))).thenThrow(DataIntegrityViolationException.class);
         assertThrows(CustomerEmailExistsException.class, () -> customerDataService.saveCustomer(customer));
         verify(customerRepository, times(1)).save(customer);
+        assertEquals(1, meterRegistry.counter("customerdataservice.savecustomer.emailexistsexception").count());
     }
 
     @Test
@@ -109,12 +131,29 @@ public class CustomerDataServiceTest {
         verify(customerRepository, times(1)).save(customer);
     }
 
+    @Test
+    public void updateCustomer_InvalidatesCacheForPreviousAndNewEmail() throws Exception {
+        Customer stored = Customer.builder()
+                .id(UUID.randomUUID())
+                .firstName("firstName")
+                .lastName("lastName")
+                .emailAddress("Old@email.com")
+                .phoneNumber("4255252233")
+                .build();
+        Mockito.when(customerRepository.findById(any(UUID.class))).thenReturn(Optional.of(stored));
+        Mockito.when(customerRepository.save(any(Customer.class))).thenReturn(stored);
+
+        customerDataService.updateCustomer(customer);
+        verify(customerCache, times(1)).invalidate(stored.getId(), "old@email.com", "email@email.com");
+    }
+
     @Test
     public void updateCustomer_ThrowsCustomerNotFoundException() throws Exception {
         Mockito.when(customerRepository.findById(any(UUID.class))).thenReturn(Optional.empty());
 
         assertThrows(CustomerDataNotFoundException.class, () -> customerDataService.updateCustomer(customer));
         verify(customerRepository, times(0)).save(customer);
+        assertEquals(1, meterRegistry.counter("customerdataservice.updatecustomer.customernotfoundexception").count());
     }
 
     @Test
@@ -139,6 +178,53 @@ public class CustomerDataServiceTest {
     public void deleteCustomer_worksAsExpected() throws Exception {
         UUID id = UUID.randomUUID();
         customerDataService.deleteCustomerById(id);
-        verify(customerRepository, times(1)).deleteById(id);
+        verify(customerRepository, times(1)).deleteCustomerById(id);
+        verify(customerRepository, never()).deleteById(any(UUID.class));
+        verify(customerCache, times(1)).invalidate(id);
+    }
+
+    @Test
+    public void deleteCustomers_DeletesInChunksAndInvalidatesAllIds() throws Exception {
+        ReflectionTestUtils.setField(customerDataService, "deleteChunkSize", 2);
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        Mockito.when(customerRepository.deleteCustomersByIds(ids, 2)).thenReturn(2);
+
+        assertEquals(2, customerDataService.deleteCustomersById(ids));
+        verify(customerCache, times(1)).invalidate(ids, List.of());
+    }
+
+    @Test
+    public void findCustomerAsOf_ReadsTheVersionInEffect() throws Exception {
+        Instant asOf = Instant.parse("2026-01-01T00:00:00Z");
+        CustomerVersion version = new CustomerVersion(1L, customer.getId(), asOf.minusSeconds(60), CustomerChange.UPDATE,
+                CustomerSnapshot.encode(customer));
+        Mockito.when(historyRepository.findFirstByCustomerIdAndValidFromLessThanEqualOrderByValidFromDescIdDesc(
+                customer.getId(), asOf)).thenReturn(Optional.of(version));
+
+        assertEquals(Optional.of(CustomerView.from(customer)), customerDataService.findCustomerAsOf(customer.getId(), asOf));
+        verify(customerRepository, never()).findById(any(UUID.class));
+    }
+
+    @Test
+    public void findCustomerAsOf_IsEmptyAfterDelete() throws Exception {
+        Instant asOf = Instant.parse("2026-01-01T00:00:00Z");
+        CustomerVersion deleted = new CustomerVersion(2L, customer.getId(), asOf, CustomerChange.DELETE, null);
+        Mockito.when(historyRepository.findFirstByCustomerIdAndValidFromLessThanEqualOrderByValidFromDescIdDesc(
+                customer.getId(), asOf)).thenReturn(Optional.of(deleted));
+
+        assertEquals(Optional.empty(), customerDataService.findCustomerAsOf(customer.getId(), asOf));
+    }
+
+    @Test
+    public void findCustomerHistory_ListsVersionsOldestFirst() throws Exception {
+        Instant created = Instant.parse("2026-01-01T00:00:00Z");
+        Mockito.when(historyRepository.findByCustomerIdOrderByValidFromAscIdAsc(customer.getId())).thenReturn(List.of(
+                new CustomerVersion(1L, customer.getId(), created, CustomerChange.CREATE, CustomerSnapshot.encode(customer)),
+                new CustomerVersion(2L, customer.getId(), created.plusSeconds(1), CustomerChange.DELETE, null)));
+
+        assertEquals(List.of(
+                new CustomerVersionView(created, CustomerChange.CREATE, CustomerView.from(customer)),
+                new CustomerVersionView(created.plusSeconds(1), CustomerChange.DELETE, null)),
+                customerDataService.findCustomerHistory(customer.getId()));
     }
 }